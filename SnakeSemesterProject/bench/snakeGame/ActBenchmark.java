@@ -0,0 +1,73 @@
+package snakeGame;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Map;
+
+import ch.aplu.jgamegrid.GameGrid;
+import ch.aplu.jgamegrid.Location;
+
+/**
+ * One full Snake.act() tick with the actors on a (hidden) GameGrid. The snake follows the cycle.
+ */
+class ActBenchmark extends SnakeBenchmark {
+
+	private GameGrid grid;
+	private SnakeEngine engine;
+	private CycleDriver driver;
+	private Snake snake;
+
+	ActBenchmark() {
+		super("act");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100" },
+			{ "apples", "10", "100" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		engine = new SnakeEngine(width, height, intParam(params, "apples"), 1L);
+		driver = new CycleDriver(width, height);
+
+		grid = new GameGrid(width, height, 18, Color.gray, false);
+		snake = new Snake(engine);
+		snake.directions = new DirectionQueue(5);
+		snake.apples = new ArrayList<Apple>();
+		grid.addActor(snake, new Location(engine.getHeadX(), engine.getHeadY()));
+		for (int i = 0; i < engine.getAppleCount(); i++) {
+			Apple apple = new Apple();
+			snake.apples.add(apple);
+			grid.addActor(apple, new Location(engine.getAppleX(i), engine.getAppleY(i)));
+		}
+		snake.initSnake();
+		return true;
+	}
+
+	@Override
+	long operation() {
+		snake.directions.offer(driver.direction(engine.getHeadX(), engine.getHeadY()));
+		snake.act();
+		if (engine.isGameFinish()) {
+			engine.reset();
+			snake.reset();
+		}
+		return engine.getTick();
+	}
+
+	@Override
+	void tearDown() {
+		grid.dispose();
+	}
+
+	@Override
+	boolean requiresDisplay() {
+		return true;
+	}
+}
@@ -0,0 +1,56 @@
+package snakeGame;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One tick of the arena (Arena.step()) for all snakes, with 1 thread (no pool) or a pool.
+ */
+class ArenaBenchmark extends SnakeBenchmark {
+
+	private Arena arena;
+	private ForkJoinPool pool;
+
+	ArenaBenchmark() {
+		super("arenaStep");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "200x200", "1000x1000" },
+			{ "snakes", "64", "1024", "8192" },
+			{ "threads", "1", "4" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int snakes = intParam(params, "snakes");
+		int threads = intParam(params, "threads");
+		if ((long) snakes * 40 > (long) width * height) {
+			return false; // too crowded, the snakes only die
+		}
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		arena = new Arena(width, height, snakes, snakes, ArenaGreedyBot.FACTORY, pool, 1L);
+		for (int i = 0; i < 200; i++) {
+			arena.step(); // the snakes have grown to their usual length
+		}
+		return true;
+	}
+
+	@Override
+	long operation() {
+		arena.step();
+		return arena.getFreeCellCount();
+	}
+
+	@Override
+	void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+}
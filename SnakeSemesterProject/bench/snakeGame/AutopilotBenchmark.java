@@ -0,0 +1,59 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * One decision of the AutopilotBot and the step of the engine, at different lengths of the snake.
+ */
+class AutopilotBenchmark extends SnakeBenchmark {
+
+	private SnakeEngine engine;
+	private AutopilotBot bot;
+	private int length;
+
+	AutopilotBenchmark() {
+		super("autopilot");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100" },
+			{ "fill", "0", "25", "50" } // percent of the grid covered by the snake (denser: only the cycle, no search)
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		engine = new SnakeEngine(width, height, 10, 1L);
+		bot = new AutopilotBot();
+		length = (int) ((long) width * height * intParam(params, "fill") / 100);
+		return playTo(length);
+	}
+
+	/**
+	 * Lets the autopilot play until the snake has the length.
+	 * @return false, if the game ended before
+	 */
+	private boolean playTo(int length) {
+		while (engine.getLength() < length) {
+			engine.step(bot.nextDirection(engine));
+			if (engine.isGameFinish()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	long operation() {
+		engine.step(bot.nextDirection(engine));
+		if (engine.isGameFinish()) {
+			engine.reset(); // won: the restart is measured too, rarely on big grids
+			playTo(length);
+		}
+		return engine.getTick();
+	}
+}
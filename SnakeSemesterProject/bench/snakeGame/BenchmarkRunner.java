@@ -0,0 +1,255 @@
+package snakeGame;
+
+import java.awt.GraphicsEnvironment;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks of the game (average time per operation) and writes the results as JSON,
+ * in the same format as JMH, so results of two versions can be compared with the usual JMH tools.
+ *
+ * Usage: java -cp bin;libraries/JGameGrid.jar snakeGame.BenchmarkRunner [options] [benchmark name ...]
+ *   -wi n          warmup iterations (default 3)
+ *   -i n           measurement iterations (default 5)
+ *   -r ms          time of one iteration (default 1000)
+ *   -p name=a,b    replaces the values of a parameter, e.g. -p grid=48x48,200x200
+ *   -rf file       JSON result file (default bench-results.json)
+ */
+public class BenchmarkRunner {
+
+	// Student's t for a 99.9% confidence interval (like JMH), index = degrees of freedom - 1
+	private static final double[] STUDENT_T = { 636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59,
+												4.44, 4.32, 4.22, 4.14, 4.07, 4.01, 3.97, 3.92, 3.88, 3.85 };
+
+	private int warmupIterations = 3;
+	private int measurementIterations = 5;
+	private long iterationNanos = 1000 * 1000000L;
+	private String resultFile = "bench-results.json";
+	private Map<String, String[]> paramOverrides = new LinkedHashMap<String, String[]>();
+	private List<String> filter = new ArrayList<String>();
+
+	private long sink; // results of the operations, so the JIT can not remove them
+	public static volatile long blackhole;
+
+	public static void main(String[] args) throws IOException {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.parseArgs(args);
+
+		List<SnakeBenchmark> benchmarks = new ArrayList<SnakeBenchmark>();
+		benchmarks.add(new TickBenchmark());
+		benchmarks.add(new BodyBenchmark());
+		benchmarks.add(new RespawnBenchmark());
+		benchmarks.add(new RenderBenchmark());
+		benchmarks.add(new ActBenchmark());
+		benchmarks.add(new ColorBenchmark());
+		benchmarks.add(new ResetBenchmark());
+		benchmarks.add(new ArenaBenchmark());
+		benchmarks.add(new AutopilotBenchmark());
+		benchmarks.add(new RewindBenchmark());
+		benchmarks.add(new VectorEnvBenchmark());
+		benchmarks.add(new GameBatchBenchmark());
+
+		runner.run(benchmarks);
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-wi")) {
+				warmupIterations = Integer.parseInt(args[++i]);
+			}
+			else if (arg.equals("-i")) {
+				measurementIterations = Integer.parseInt(args[++i]);
+			}
+			else if (arg.equals("-r")) {
+				iterationNanos = Long.parseLong(args[++i]) * 1000000L;
+			}
+			else if (arg.equals("-rf")) {
+				resultFile = args[++i];
+			}
+			else if (arg.equals("-p")) {
+				String param = args[++i];
+				int split = param.indexOf('=');
+				paramOverrides.put(param.substring(0, split), param.substring(split + 1).split(","));
+			}
+			else {
+				filter.add(arg);
+			}
+		}
+		if (measurementIterations < 2) {
+			throw new IllegalArgumentException("At least 2 measurement iterations needed");
+		}
+	}
+
+	private void run(List<SnakeBenchmark> benchmarks) throws IOException {
+		StringBuilder json = new StringBuilder("[\n");
+		boolean headless = GraphicsEnvironment.isHeadless();
+
+		for (SnakeBenchmark benchmark : benchmarks) {
+			if (!filter.isEmpty() && !filter.contains(benchmark.getName())) {
+				continue;
+			}
+			if (benchmark.requiresDisplay() && headless) {
+				System.out.println("# " + benchmark.getName() + ": skipped, needs a display");
+				continue;
+			}
+
+			for (Map<String, String> params : combinations(benchmark.parameters())) {
+				if (!benchmark.setUp(params)) {
+					System.out.println("# " + benchmark.getName() + " " + params + ": skipped, not possible");
+					continue;
+				}
+				double[] scores = measure(benchmark);
+				benchmark.tearDown();
+
+				double mean = mean(scores);
+				double error = error(scores);
+				System.out.println(String.format(Locale.ROOT, "%-16s %-50s %14.3f +- %10.3f ns/op",
+						benchmark.getName(), params, mean, error));
+
+				if (json.length() > 2) {
+					json.append(",\n");
+				}
+				appendJson(json, benchmark, params, scores, mean, error);
+			}
+		}
+		json.append("\n]\n");
+		blackhole = sink;
+
+		Writer writer = new FileWriter(resultFile);
+		try {
+			writer.write(json.toString());
+		}
+		finally {
+			writer.close();
+		}
+		System.out.println("# Results: " + resultFile);
+	}
+
+	/**
+	 * Runs the warmup and the measurement iterations.
+	 * @return average time per operation of every measurement iteration (ns)
+	 */
+	private double[] measure(SnakeBenchmark benchmark) {
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(benchmark);
+		}
+		double[] scores = new double[measurementIterations];
+		for (int i = 0; i < measurementIterations; i++) {
+			scores[i] = iteration(benchmark);
+		}
+		return scores;
+	}
+
+	private double iteration(SnakeBenchmark benchmark) {
+		final int batch = 16; // operations between two time checks
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < batch; i++) {
+				sink += benchmark.operation();
+			}
+			operations += batch;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationNanos);
+		return (double) elapsed / operations;
+	}
+
+	/**
+	 * @return all combinations of the parameter values (with the values of -p)
+	 */
+	private List<Map<String, String>> combinations(String[][] parameters) {
+		List<Map<String, String>> result = new ArrayList<Map<String, String>>();
+		result.add(new LinkedHashMap<String, String>());
+		for (String[] parameter : parameters) {
+			String name = parameter[0];
+			String[] values = paramOverrides.get(name);
+			if (values == null) {
+				values = new String[parameter.length - 1];
+				System.arraycopy(parameter, 1, values, 0, values.length);
+			}
+
+			List<Map<String, String>> next = new ArrayList<Map<String, String>>();
+			for (Map<String, String> combination : result) {
+				for (String value : values) {
+					Map<String, String> params = new LinkedHashMap<String, String>(combination);
+					params.put(name, value);
+					next.add(params);
+				}
+			}
+			result = next;
+		}
+		return result;
+	}
+
+	private static double mean(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum / values.length;
+	}
+
+	/**
+	 * @return half of the 99.9% confidence interval
+	 */
+	private static double error(double[] values) {
+		double mean = mean(values);
+		double sum = 0;
+		for (double value : values) {
+			sum += (value - mean) * (value - mean);
+		}
+		double deviation = Math.sqrt(sum / (values.length - 1));
+		double t = STUDENT_T[Math.min(values.length - 2, STUDENT_T.length - 1)];
+		return t * deviation / Math.sqrt(values.length);
+	}
+
+	private void appendJson(StringBuilder json, SnakeBenchmark benchmark, Map<String, String> params,
+							double[] scores, double mean, double error) {
+		json.append("  {\n");
+		json.append("    \"benchmark\" : \"").append(benchmark.getClass().getName()).append('.')
+			.append(benchmark.getName()).append("\",\n");
+		json.append("    \"mode\" : \"avgt\",\n");
+		json.append("    \"threads\" : 1,\n");
+		json.append("    \"forks\" : 0,\n");
+		json.append("    \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+		json.append("    \"vmName\" : \"").append(System.getProperty("java.vm.name")).append("\",\n");
+		json.append("    \"warmupIterations\" : ").append(warmupIterations).append(",\n");
+		json.append("    \"warmupTime\" : \"").append(iterationNanos / 1000000).append(" ms\",\n");
+		json.append("    \"measurementIterations\" : ").append(measurementIterations).append(",\n");
+		json.append("    \"measurementTime\" : \"").append(iterationNanos / 1000000).append(" ms\",\n");
+		json.append("    \"params\" : {");
+		boolean first = true;
+		for (Map.Entry<String, String> param : params.entrySet()) {
+			json.append(first ? "\n" : ",\n");
+			json.append("      \"").append(param.getKey()).append("\" : \"").append(param.getValue()).append('"');
+			first = false;
+		}
+		json.append("\n    },\n");
+		json.append("    \"primaryMetric\" : {\n");
+		json.append("      \"score\" : ").append(number(mean)).append(",\n");
+		json.append("      \"scoreError\" : ").append(number(error)).append(",\n");
+		json.append("      \"scoreConfidence\" : [ ").append(number(mean - error)).append(", ")
+			.append(number(mean + error)).append(" ],\n");
+		json.append("      \"scoreUnit\" : \"ns/op\",\n");
+		json.append("      \"rawData\" : [ [ ");
+		for (int i = 0; i < scores.length; i++) {
+			json.append(i > 0 ? ", " : "").append(number(scores[i]));
+		}
+		json.append(" ] ]\n");
+		json.append("    },\n");
+		json.append("    \"secondaryMetrics\" : {}\n");
+		json.append("  }");
+	}
+
+	private static String number(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
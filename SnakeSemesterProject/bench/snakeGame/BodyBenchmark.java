@@ -0,0 +1,67 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Moving the snake body (updateSnakeBody) at a fixed length. The one apple makes the snake longer now and then,
+ * so the game goes back to the start length (from a snapshot) after it grew by SLACK squares.
+ */
+class BodyBenchmark extends SnakeBenchmark {
+
+	private static final int SLACK = 64; // squares the snake may grow before the start state is loaded again
+
+	private SnakeEngine engine;
+	private CycleDriver driver;
+	private ByteBuffer start; // snapshot of the game at the start length
+	private int[] cells; // reused by the loads
+	private int maxLength;
+
+	BodyBenchmark() {
+		super("updateSnakeBody");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "320x320" },
+			{ "apples", "1" },
+			{ "length", "3", "1000", "100000" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int length = intParam(params, "length");
+		if (length + SLACK + intParam(params, "apples") >= width * height) {
+			return false;
+		}
+		engine = new SnakeEngine(width, height, intParam(params, "apples"), 1L);
+		driver = new CycleDriver(width, height);
+		if (!growTo(engine, driver, length)) {
+			return false;
+		}
+		start = GameSnapshot.save(engine);
+		cells = null;
+		maxLength = engine.getLength() + SLACK;
+		return true;
+	}
+
+	@Override
+	long operation() {
+		long result = driver.step(engine);
+		if (engine.getLength() >= maxLength) {
+			try {
+				start.rewind();
+				cells = GameSnapshot.load(start, engine, cells);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e); // own snapshot, cannot be broken
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,64 @@
+package snakeGame;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Map;
+
+import ch.aplu.jgamegrid.GameGrid;
+import ch.aplu.jgamegrid.Location;
+
+/**
+ * Snake.changeColor() on a long snake (SnakeBody actors on a hidden GameGrid), should not depend on the length.
+ */
+class ColorBenchmark extends SnakeBenchmark {
+
+	private GameGrid grid;
+	private Snake snake;
+
+	ColorBenchmark() {
+		super("changeColor");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "100x100" },
+			{ "apples", "1" },
+			{ "length", "3", "1000", "9000" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		SnakeEngine engine = new SnakeEngine(width, height, intParam(params, "apples"), 1L);
+		if (!growTo(engine, new CycleDriver(width, height), intParam(params, "length"))) {
+			return false;
+		}
+
+		grid = new GameGrid(width, height, 18, Color.gray, false);
+		snake = new Snake(engine);
+		snake.directions = new DirectionQueue(5);
+		snake.apples = new ArrayList<Apple>();
+		grid.addActor(snake, new Location(engine.getHeadX(), engine.getHeadY()));
+		snake.initSnake();
+		return true;
+	}
+
+	@Override
+	long operation() {
+		snake.changeColor();
+		return snake.getIdVisible();
+	}
+
+	@Override
+	void tearDown() {
+		grid.dispose();
+	}
+
+	@Override
+	boolean requiresDisplay() {
+		return true;
+	}
+}
@@ -0,0 +1,54 @@
+package snakeGame;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One step of all games of a GameBatch with random turns, finished games start again.
+ */
+class GameBatchBenchmark extends SnakeBenchmark {
+
+	private static final int DIRECTION_SETS = 16; // different sets of directions, used by turns
+
+	private GameBatch batch;
+	private int[][] directions;
+	private int[] events;
+	private int next;
+
+	GameBatchBenchmark() {
+		super("gameBatch");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24" },
+			{ "games", "1000", "100000" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int games = intParam(params, "games");
+		batch = null; // the off-heap memory of the last batch can go
+		batch = new GameBatch(games, gridWidth(params), gridHeight(params), 1);
+		batch.reset(1L);
+		Random random = new Random(1L);
+		directions = new int[DIRECTION_SETS][games];
+		for (int[] set : directions) {
+			for (int i = 0; i < games; i++) {
+				set[i] = random.nextInt(4) == 0 ? random.nextInt(4) : SnakeEngine.NO_DIRECTION;
+			}
+		}
+		events = new int[games];
+		return true;
+	}
+
+	@Override
+	long operation() {
+		next = (next + 1) & (DIRECTION_SETS - 1);
+		int ended = batch.step(directions[next], events);
+		batch.restartFinished();
+		return ended;
+	}
+}
@@ -0,0 +1,145 @@
+package snakeGame;
+
+import java.util.Random;
+
+/**
+ * Differential check of the GameBatch: plays the same games in SnakeEngines and in a batch, gives both the same
+ * directions and compares the events, the values and every cell of every game after every step. Finished games
+ * start again (SnakeEngine.reset() and GameBatch.restartFinished()), so the restarts are checked too.
+ *
+ * Random turns (also invalid directions) let the games end early and often, the AutopilotBot plays long snakes
+ * and won games. The grids include odd, narrow and single row ones, the smallest possible is 6x1.
+ * Usage: java snakeGame.GameBatchCheck [ticks] [games]
+ */
+public class GameBatchCheck {
+
+	private static final int[][] GRIDS = { // width, height, apples
+		{ 6, 1, 1 }, { 6, 4, 1 }, { 6, 4, 3 }, { 7, 5, 2 }, { 13, 3, 1 }, { 6, 21, 2 },
+		{ 9, 9, 4 }, { 10, 10, 1 }, { 24, 24, 3 }, { 40, 30, 5 }
+	};
+
+	private final SnakeEngine[] engines;
+	private final SnakeBot[] bots; // null = random turns
+	private final GameBatch batch;
+	private final Random random;
+	private final int[] directions;
+	private final int[] engineEvents;
+	private final int[] batchEvents;
+	private long ends;
+	private long wins;
+
+	/**
+	 * @param games amount of games in every batch
+	 * @param autopilot true = AutopilotBot, false = random turns
+	 * @param seed seed of the games and the turns
+	 */
+	GameBatchCheck(int games, int width, int height, int appleCount, boolean autopilot, long seed) {
+		engines = new SnakeEngine[games];
+		bots = new SnakeBot[games];
+		for (int i = 0; i < games; i++) {
+			engines[i] = new SnakeEngine(width, height, appleCount, BatchRunner.gameSeed(seed, i));
+			bots[i] = autopilot ? AutopilotBot.FACTORY.create(i) : null;
+		}
+		batch = new GameBatch(games, width, height, appleCount);
+		batch.reset(seed);
+		random = new Random(seed);
+		directions = new int[games];
+		engineEvents = new int[games];
+		batchEvents = new int[games];
+	}
+
+	/**
+	 * Does the ticks and compares after every one.
+	 * @return null or the first difference
+	 */
+	String run(int ticks) {
+		String difference = compareAll(-1);
+		for (int tick = 0; tick < ticks && difference == null; tick++) {
+			for (int i = 0; i < engines.length; i++) {
+				directions[i] = bots[i] != null ? bots[i].nextDirection(engines[i])
+						: random.nextInt(4) == 0 ? random.nextInt(6) - 1 : SnakeEngine.NO_DIRECTION; // 4 = invalid
+				engineEvents[i] = engines[i].step(directions[i]);
+			}
+			batch.step(directions, batchEvents);
+			difference = compareAll(tick);
+
+			for (SnakeEngine engine : engines) {
+				if (engine.isGameFinish()) {
+					ends++;
+					wins += engine.isGameWon() ? 1 : 0;
+					engine.reset(); // next seed from the random generator of the game, like the batch
+				}
+			}
+			batch.restartFinished();
+		}
+		return difference == null ? compareAll(ticks) : difference; // after the last restarts
+	}
+
+	private String compareAll(int tick) {
+		for (int game = 0; game < engines.length; game++) {
+			String difference = compare(engines[game], tick >= 0 ? engineEvents[game] : 0, batch, batchEvents, game);
+			if (difference != null) {
+				return "tick " + tick + ", game " + game + ": " + difference;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return null or the first value of the batch game which differs from the engine
+	 */
+	private static String compare(SnakeEngine engine, int events, GameBatch batch, int[] batchEvents, int game) {
+		if (batchEvents[game] != events) {
+			return "events " + batchEvents[game] + " instead of " + events;
+		}
+		if (batch.getSeed(game) != engine.getSeed() || batch.getTick(game) != engine.getTick()
+				|| batch.getScore(game) != engine.getScore() || batch.getAppleEaten(game) != engine.getAppleEaten()
+				|| batch.getLength(game) != engine.getLength() || batch.getDirection(game) != engine.getDirection()
+				|| batch.getHeadX(game) != engine.getHeadX() || batch.getHeadY(game) != engine.getHeadY()
+				|| batch.getSpeedPercent(game) != engine.getSpeedPercent()
+				|| batch.getSimulationPeriod(game) != engine.getSimulationPeriod()
+				|| batch.isGameFinish(game) != engine.isGameFinish() || batch.isGameWon(game) != engine.isGameWon()) {
+			return "values";
+		}
+		for (int y = 0; y < engine.getHeight(); y++) {
+			for (int x = 0; x < engine.getWidth(); x++) {
+				if (batch.getOccupant(game, x, y) != engine.getOccupant(x, y)) {
+					return "cell " + x + "," + y;
+				}
+			}
+		}
+		for (int i = 0; i < engine.getLength(); i++) {
+			if (batch.getBodyCell(game, i) != engine.toCell(engine.getBodyX(i), engine.getBodyY(i))) {
+				return "body square " + i;
+			}
+		}
+		for (int apple = 0; apple < engine.getAppleCount(); apple++) {
+			if (batch.getAppleCell(game, apple) != engine.getAppleCell(apple)) {
+				return "apple " + apple;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks all grids with random turns and with the autopilot, exit code 1 if a game differs.
+	 */
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 300; // more than one block of the sweeps
+		boolean failed = false;
+		for (int[] grid : GRIDS) {
+			for (int autopilot = 0; autopilot <= 1; autopilot++) {
+				GameBatchCheck check = new GameBatchCheck(games, grid[0], grid[1], grid[2], autopilot == 1, 285);
+				String difference = check.run(ticks);
+				System.out.println(grid[0] + "x" + grid[1] + ", " + grid[2] + " apples, " + (autopilot == 1 ? "autopilot" : "random")
+						+ ": " + check.ends + " games ended, " + check.wins + " won | "
+						+ (difference == null ? "same" : "DIFFERENT at " + difference));
+				failed |= difference != null;
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless check of NetProtocol and the GameServer:
+ * 1. own games: every step of the server engine goes as a delta frame (sometimes a snapshot) to a client engine,
+ *    which has to show the same game (body, apples, score, speed, end of the game), over many games.
+ * 2. arena match: every tick of the server arena goes as a tick frame (sometimes a snapshot) to a copy of the arena,
+ *    which has to have the same checksum and the same snapshot, while players take and leave snakes.
+ * 3. over localhost: GameClients of a GameServer with an arena match play random directions, all copies of the
+ *    arena have the same checksum at the same tick and every client plays another snake.
+ * Usage: java snakeGame.NetCheck [games] [ticks]
+ */
+public class NetCheck {
+
+	private static final int[][] GRIDS = { { 6, 4, 1 }, { 10, 10, 3 }, { 25, 25, 10 }, { 100, 60, 40 } }; // width, height, apples
+	private static final int[][] ARENAS = { { 8, 8, 6, 2 }, { 25, 25, 20, 10 }, { 100, 100, 300, 50 }, { 300, 200, 2000, 500 } }; // width, height, snakes, apples
+	private static final int LIVE_CLIENTS = 12;
+	private static final int LIVE_SNAKES = 8; // fewer snakes than clients: some clients only watch
+
+	private final Random random = new Random(285);
+	private final ByteBuffer frames = ByteBuffer.allocate(NetProtocol.MAX_FRAME);
+	private int failures;
+	private long checkedFrames;
+
+	/**
+	 * Plays games on the server engine and sends every step to the client engine.
+	 */
+	private void ownGames(int width, int height, int apples, int games) {
+		SnakeEngine server = new SnakeEngine(width, height, apples, BatchRunner.gameSeed(285, width));
+		SnakeEngine client = new SnakeEngine(width, height, apples, 0);
+		int[] cells = new int[width * height + 1];
+		int[] appleCells = new int[apples];
+		SnakeBot bot = GreedyBot.FACTORY.create(width);
+		send(snapshot(server), client, cells, appleCells);
+
+		for (int game = 0; game < games; game++) {
+			while (!server.isGameFinish()) {
+				int direction = random.nextInt(8) == 0 ? random.nextInt(4) : bot.nextDirection(server);
+				int events = server.step(direction);
+				ByteBuffer frame;
+				boolean snapshot = random.nextInt(200) == 0;
+				if (snapshot) {
+					frame = snapshot(server); // the client fell behind
+				}
+				else {
+					frames.clear();
+					NetProtocol.putDelta(frames, server, events);
+					frames.flip();
+					frame = frames;
+				}
+				int clientEvents = send(frame, client, cells, appleCells);
+				if (!snapshot && clientEvents != events) {
+					fail("own game: events " + clientEvents + " instead of " + events, server.getSeed(), server.getTick());
+				}
+				if (!sameGame(server, client)) {
+					fail("own game: the client shows another game", server.getSeed(), server.getTick());
+					return;
+				}
+			}
+			server.reset(); // a new game gets sent as a snapshot
+			send(snapshot(server), client, cells, appleCells);
+		}
+	}
+
+	private ByteBuffer snapshot(SnakeEngine engine) {
+		frames.clear();
+		NetProtocol.putSnapshot(frames, engine);
+		frames.flip();
+		return frames;
+	}
+
+	/**
+	 * Reads the length of the frame like the client and applies it.
+	 * @return events of the step
+	 */
+	private int send(ByteBuffer frame, SnakeEngine client, int[] cells, int[] appleCells) {
+		checkedFrames++;
+		int length = NetProtocol.getFrameLength(frame);
+		if (length != frame.remaining()) {
+			fail("frame length " + length + " of " + frame.remaining() + " bytes", client.getSeed(), client.getTick());
+		}
+		return NetProtocol.apply(frame, client, cells, appleCells);
+	}
+
+	/**
+	 * @return true, if both engines show the same game (the client does not know the random generator)
+	 */
+	private static boolean sameGame(SnakeEngine a, SnakeEngine b) {
+		if (a.getTick() != b.getTick() || a.getScore() != b.getScore() || a.getLength() != b.getLength()
+				|| a.getDirection() != b.getDirection() || a.getHeadX() != b.getHeadX() || a.getHeadY() != b.getHeadY()
+				|| a.isGameFinish() != b.isGameFinish() || a.isGameWon() != b.isGameWon()
+				|| a.getSimulationPeriod() != b.getSimulationPeriod()) {
+			return false;
+		}
+		for (int i = 0; i < a.getLength(); i++) {
+			if (a.getBodyCellAt(a.getBodySlot(i)) != b.getBodyCellAt(b.getBodySlot(i))) {
+				return false;
+			}
+		}
+		for (int i = 0; i < a.getAppleCount(); i++) {
+			if (a.getAppleCell(i) != b.getAppleCell(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Plays an arena match and sends every tick to the copy of the arena. Players (random directions) take and leave snakes.
+	 */
+	private void arenaMatch(int width, int height, int snakes, int apples, long ticks, ForkJoinPool pool) {
+		long seed = BatchRunner.gameSeed(285, snakes);
+		Arena server = new Arena(width, height, snakes, apples, ArenaGreedyBot.FACTORY, pool, seed);
+		int[] moves = new int[snakes];
+		Arena client = new Arena(width, height, snakes, apples, NetProtocol.moveBots(moves), null, 0);
+		int[] cells = new int[width * height];
+		ArenaKeyboard[] players = new ArenaKeyboard[snakes];
+		sendArena(arenaSnapshot(server), client, moves, cells);
+
+		for (long tick = 0; tick < ticks; tick++) {
+			int snake = random.nextInt(snakes);
+			if (random.nextInt(50) == 0) { // a connection comes or goes
+				players[snake] = players[snake] == null ? new ArenaKeyboard(5) : null;
+				server.setBot(snake, players[snake]);
+			}
+			if (players[snake] != null) {
+				players[snake].offer(random.nextInt(4));
+			}
+
+			server.step();
+			ByteBuffer frame;
+			if (random.nextInt(100) == 0) {
+				frame = arenaSnapshot(server); // the client fell behind
+			}
+			else {
+				frames.clear();
+				NetProtocol.putArenaTick(frames, server);
+				frames.flip();
+				frame = frames;
+			}
+			sendArena(frame, client, moves, cells);
+			if (client.checksum() != server.checksum()) {
+				fail("arena " + width + "x" + height + ": other checksum", seed, server.getTick());
+				return;
+			}
+		}
+		byte[] expected = arenaSnapshotBytes(server);
+		if (!Arrays.equals(arenaSnapshotBytes(client), expected)) {
+			fail("arena " + width + "x" + height + ": other snapshot", seed, server.getTick());
+		}
+	}
+
+	private ByteBuffer arenaSnapshot(Arena arena) {
+		frames.clear();
+		NetProtocol.putArenaSnapshot(frames, arena, 0);
+		frames.flip();
+		return frames;
+	}
+
+	private byte[] arenaSnapshotBytes(Arena arena) {
+		ByteBuffer frame = arenaSnapshot(arena);
+		return Arrays.copyOf(frame.array(), frame.limit());
+	}
+
+	private void sendArena(ByteBuffer frame, Arena client, int[] moves, int[] cells) {
+		checkedFrames++;
+		int length = NetProtocol.getFrameLength(frame);
+		if (length != frame.remaining()) {
+			fail("arena frame length " + length + " of " + frame.remaining() + " bytes", client.getSeed(), client.getTick());
+		}
+		NetProtocol.applyArena(frame, client, moves, cells);
+	}
+
+	/**
+	 * Connects GameClients to a local GameServer with an arena match and compares their copies of the arena.
+	 */
+	private void liveMatch(long millis) throws IOException, InterruptedException {
+		GameServer server = new GameServer(0, 30, 30, 10, LIVE_SNAKES);
+		Thread serverThread = new Thread(server, "Snake GameServer");
+		serverThread.start();
+
+		GameClient[] clients = new GameClient[LIVE_CLIENTS];
+		for (int i = 0; i < clients.length; i++) {
+			clients[i] = new GameClient("localhost", server.getPort());
+		}
+		boolean[] taken = new boolean[LIVE_SNAKES];
+		int watching = 0;
+		for (GameClient client : clients) {
+			int snake = client.getOwnSnake();
+			if (snake < 0) {
+				watching++;
+			}
+			else if (taken[snake]) {
+				fail("live: snake " + snake + " got two clients", 0, 0);
+			}
+			else {
+				taken[snake] = true;
+			}
+		}
+		if (watching != LIVE_CLIENTS - LIVE_SNAKES) {
+			fail("live: " + watching + " clients watch instead of " + (LIVE_CLIENTS - LIVE_SNAKES), 0, 0);
+		}
+
+		HashMap<Long, Long> checksums = new HashMap<Long, Long>(); // tick --> checksum of the first client there
+		long compared = 0;
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			for (GameClient client : clients) {
+				if (!client.applyArena()) {
+					continue;
+				}
+				Arena arena = client.getArena();
+				Long checksum = checksums.get(arena.getTick());
+				if (checksum == null) {
+					checksums.put(arena.getTick(), arena.checksum());
+				}
+				else if (checksum.longValue() != arena.checksum()) {
+					fail("live: client at tick " + arena.getTick() + " has another checksum", arena.getSeed(), arena.getTick());
+				}
+				else {
+					compared++;
+				}
+				if (client.getOwnSnake() >= 0 && random.nextInt(3) == 0) {
+					client.send(random.nextInt(4));
+				}
+			}
+			Thread.sleep(2);
+		}
+		for (GameClient client : clients) {
+			client.close();
+		}
+		server.stop();
+		serverThread.join();
+		if (compared == 0) {
+			fail("live: no tick to compare", 0, 0);
+		}
+		System.out.println("localhost: " + LIVE_CLIENTS + " clients, " + checksums.size() + " ticks, " + compared + " equal copies");
+	}
+
+	private void fail(String message, long seed, long tick) {
+		failures++;
+		System.out.println("seed " + seed + " tick " + tick + ": " + message);
+	}
+
+	/**
+	 * Checks all grids and arenas, exit code 1 if anything went wrong.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		long ticks = args.length > 1 ? Long.parseLong(args[1]) : 3000;
+		NetCheck check = new NetCheck();
+		for (int[] grid : GRIDS) {
+			check.ownGames(grid[0], grid[1], grid[2], games);
+			System.out.println(grid[0] + "x" + grid[1] + ", " + grid[2] + " apples: " + games + " own games");
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int[] arena : ARENAS) {
+			check.arenaMatch(arena[0], arena[1], arena[2], arena[3], ticks, null);
+			check.arenaMatch(arena[0], arena[1], arena[2], arena[3], ticks, pool); // the server may run the phases in parallel
+			System.out.println(arena[0] + "x" + arena[1] + ", " + arena[2] + " snakes: " + ticks + " ticks");
+		}
+		pool.shutdown();
+		check.liveMatch(2000);
+		System.out.println(check.checkedFrames + " frames | " + (check.failures == 0 ? "ok" : check.failures + " FAILURES"));
+		if (check.failures > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package snakeGame;
+
+import java.awt.Color;
+import java.util.Map;
+
+/**
+ * One tick of the game rules and the drawing of the changed cells into the back buffer of the CellRenderer.
+ * The time should not depend on the grid size (compare with "tick").
+ */
+class RenderBenchmark extends SnakeBenchmark {
+
+	private SnakeEngine engine;
+	private CycleDriver driver;
+	private CellRenderer renderer;
+
+	RenderBenchmark() {
+		super("renderCells");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100", "200x200" }, // back buffer: 18 pixel per cell
+			{ "apples", "10" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		engine = new SnakeEngine(width, height, intParam(params, "apples"), 1L);
+		driver = new CycleDriver(width, height);
+		renderer = new CellRenderer(engine, 18, 4, Color.white, Color.gray);
+		renderer.render(null, 0);
+		return true;
+	}
+
+	@Override
+	long operation() {
+		int events = driver.step(engine);
+		if (engine.isGameFinish()) {
+			engine.reset();
+		}
+		renderer.render(null, 0);
+		return events;
+	}
+}
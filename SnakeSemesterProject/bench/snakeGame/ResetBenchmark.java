@@ -0,0 +1,51 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * GameWindow.reset(): new game in the engine, removeAllApples() / addApples() and the SnakeBody (from the actor pools).
+ */
+class ResetBenchmark extends SnakeBenchmark {
+
+	private GameWindow window;
+
+	ResetBenchmark() {
+		super("reset");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100" },
+			{ "apples", "10", "1000" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int apples = intParam(params, "apples");
+		if (apples >= width * height / 2) {
+			return false;
+		}
+		window = new GameWindow(width, height, apples); // not shown
+		return true;
+	}
+
+	@Override
+	long operation() {
+		window.reset();
+		return window.getNumberOfActors();
+	}
+
+	@Override
+	void tearDown() {
+		window.dispose();
+	}
+
+	@Override
+	boolean requiresDisplay() {
+		return true;
+	}
+}
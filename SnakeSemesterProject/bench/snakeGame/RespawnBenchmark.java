@@ -0,0 +1,44 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * Moving an eaten apple to a new empty cell (checkForApple) when the snake fills nearly the whole grid.
+ */
+class RespawnBenchmark extends SnakeBenchmark {
+
+	private SnakeEngine engine;
+	private int apple;
+
+	RespawnBenchmark() {
+		super("checkForApple");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100", "1000x1000", "4096x4096" },
+			{ "apples", "1", "10" },
+			{ "fill", "50", "99" } // percent of the grid covered by the snake
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int apples = intParam(params, "apples");
+		int cells = width * height;
+		int length = Math.min((int) ((long) cells * intParam(params, "fill") / 100), cells - 2 * apples - 2);
+
+		engine = new SnakeEngine(width, height, apples, 1L);
+		apple = 0;
+		return growTo(engine, new CycleDriver(width, height), length);
+	}
+
+	@Override
+	long operation() {
+		apple = (apple + 1) % engine.getAppleCount();
+		return engine.respawnApple(apple) ? engine.getFreeCellCount() : -1;
+	}
+}
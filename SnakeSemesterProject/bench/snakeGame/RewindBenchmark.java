@@ -0,0 +1,49 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * One seek of the RewindBuffer over a distance of ticks, back and forward again by turns.
+ */
+class RewindBenchmark extends SnakeBenchmark {
+
+	private static final int TICKS = 20000; // recorded steps
+
+	private SnakeEngine engine;
+	private RewindBuffer rewind;
+	private long newest;
+	private long oldTick;
+
+	RewindBenchmark() {
+		super("rewind");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100" },
+			{ "distance", "1", "100", "10000" } // ticks
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		engine = new SnakeEngine(gridWidth(params), gridHeight(params), 10, 1L);
+		rewind = new RewindBuffer(1 << 20, 1024, 32);
+		rewind.reset(engine);
+		AutopilotBot bot = new AutopilotBot();
+		while (engine.getTick() < TICKS && !engine.isGameFinish()) {
+			engine.step(bot.nextDirection(engine));
+			rewind.record(engine);
+		}
+		newest = rewind.getNewestTick();
+		oldTick = newest - intParam(params, "distance");
+		return oldTick >= rewind.getOldestTick(); // the game was long enough
+	}
+
+	@Override
+	long operation() {
+		rewind.seek(engine, engine.getTick() == newest ? oldTick : newest);
+		return engine.getTick();
+	}
+}
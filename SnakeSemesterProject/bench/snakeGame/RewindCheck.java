@@ -0,0 +1,106 @@
+package snakeGame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Headless check of RewindBuffer: plays games, saves a GameSnapshot after every step and seeks to random ticks.
+ * The engine has to save the same bytes as at the recorded tick (cells, counters, random generator, free cell index),
+ * also after the game went on from an earlier tick (a new branch) and after the buffer dropped its oldest frames.
+ * Usage: java snakeGame.RewindCheck [games]
+ */
+public class RewindCheck {
+
+	// width, height, apples, capacity, keyframe interval, keyframes
+	private static final int[][] CONFIGS = {
+		{ 20, 15, 5, 1 << 16, 64, 8 },
+		{ 12, 8, 3, 256, 16, 4 },		// small buffer: the oldest frames get dropped
+		{ 20, 15, 5, 128, 7, 2 },
+		{ 300, 300, 40, 1 << 12, 50, 3 },	// big grid
+		{ 30, 30, 900, 1 << 14, 100, 4 },	// apples everywhere
+	};
+	private static final int MAX_TICKS = 3000; // per game
+	private static final int MAX_BRANCHES = 3; // per game
+
+	private final Random random = new Random(1);
+	private int failures;
+	private long seeks;
+
+	private void play(int[] config, long seed) {
+		SnakeEngine engine = new SnakeEngine(config[0], config[1], config[2], seed);
+		RewindBuffer rewind = new RewindBuffer(config[3], config[4], config[5]);
+		rewind.reset(engine);
+		SnakeBot bot = (seed & 1) == 0 ? GreedyBot.FACTORY.create(seed) : AutopilotBot.FACTORY.create(seed);
+		HashMap<Long, byte[]> states = new HashMap<Long, byte[]>(); // tick --> saved engine
+		states.put(engine.getTick(), save(engine));
+		int branches = 0;
+
+		while (!engine.isGameFinish() && engine.getTick() < MAX_TICKS) {
+			engine.step(random.nextInt(10) == 0 ? random.nextInt(4) : bot.nextDirection(engine));
+			rewind.record(engine);
+			states.put(engine.getTick(), save(engine));
+			if (random.nextInt(40) != 0 && !engine.isGameFinish()) {
+				continue;
+			}
+
+			for (int i = 0; i < 5; i++) {
+				long oldest = rewind.getOldestTick();
+				long target = oldest + (long) (random.nextDouble() * (rewind.getNewestTick() - oldest + 1));
+				rewind.seek(engine, target);
+				seeks++;
+				if (engine.getTick() != target || !Arrays.equals(save(engine), states.get(target))) {
+					fail(config, seed, "seek to " + target + " gives another state (tick " + engine.getTick() + ")");
+					return;
+				}
+			}
+			if (random.nextBoolean() || branches >= MAX_BRANCHES) {
+				rewind.seek(engine, rewind.getNewestTick());
+			}
+			else {
+				branches++; // the game goes on from here, the later states are gone
+				Iterator<Long> ticks = states.keySet().iterator();
+				while (ticks.hasNext()) {
+					if (ticks.next() > engine.getTick()) {
+						ticks.remove();
+					}
+				}
+			}
+			if (!Arrays.equals(save(engine), states.get(engine.getTick()))) {
+				fail(config, seed, "goes on from another state");
+				return;
+			}
+		}
+	}
+
+	private static byte[] save(SnakeEngine engine) {
+		ByteBuffer saved = GameSnapshot.save(engine);
+		return Arrays.copyOf(saved.array(), saved.limit());
+	}
+
+	private void fail(int[] config, long seed, String message) {
+		failures++;
+		System.out.println(config[0] + "x" + config[1] + " seed " + seed + ": " + message);
+	}
+
+	/**
+	 * Checks all configurations, exit code 1 if anything went wrong.
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		RewindCheck check = new RewindCheck();
+		for (int[] config : CONFIGS) {
+			for (long game = 0; game < games; game++) {
+				check.play(config, game);
+			}
+			System.out.println(config[0] + "x" + config[1] + ", " + config[3] + " bytes, keyframe every " + config[4]
+					+ " ticks: " + games + " games");
+		}
+		System.out.println(check.seeks + " seeks | " + (check.failures == 0 ? "ok" : check.failures + " FAILURES"));
+		if (check.failures > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * One benchmark of the BenchmarkRunner. The runner calls setUp() once for every combination of the parameters,
+ * then operation() as often as possible and measures the average time per call.
+ */
+abstract class SnakeBenchmark {
+
+	private final String name;
+
+	SnakeBenchmark(String name) {
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return parameter names with their default values, e.g. { { "grid", "24x24", "100x100" }, { "apples", "10" } }
+	 */
+	abstract String[][] parameters();
+
+	/**
+	 * Prepares the measurement for one combination of the parameters.
+	 * @return false, if the combination is not possible (e.g. the snake does not fit into the grid)
+	 */
+	abstract boolean setUp(Map<String, String> params);
+
+	/**
+	 * The measured code.
+	 * @return any value of the calculation, so the JIT can not remove it
+	 */
+	abstract long operation();
+
+	void tearDown() {
+		// nothing to do
+	}
+
+	/**
+	 * @return true, if the benchmark needs GameGrid actors (and sprites), these do not run headless
+	 */
+	boolean requiresDisplay() {
+		return false;
+	}
+
+	static int gridWidth(Map<String, String> params) {
+		String grid = params.get("grid");
+		return Integer.parseInt(grid.substring(0, grid.indexOf('x')));
+	}
+
+	static int gridHeight(Map<String, String> params) {
+		String grid = params.get("grid");
+		return Integer.parseInt(grid.substring(grid.indexOf('x') + 1));
+	}
+
+	static int intParam(Map<String, String> params, String name) {
+		return Integer.parseInt(params.get(name));
+	}
+
+	/**
+	 * Lets the snake grow until it has (at least) the length. The snake follows the cycle, so it does not die.
+	 * @return false, if the game ended before (grid full)
+	 */
+	static boolean growTo(SnakeEngine engine, CycleDriver driver, int length) {
+		int missing = length - engine.getLength() - engine.getExpandSnakeLength();
+		if (missing > 0) {
+			engine.expand(missing);
+		}
+		while (engine.getLength() < length) {
+			driver.step(engine);
+			if (engine.isGameFinish()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,169 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless check of GameSnapshot: saves games at random ticks, loads them into another engine and compares
+ * the saved bytes, also after both engines played on with the same directions (same apples).
+ * Then loads broken snapshots (wrong bytes, cut off, wrong free cells): a load may only fail with an
+ * IOException, a snapshot of another grid with an IllegalArgumentException that leaves the engine unchanged,
+ * and a reset after a failed load gives the same game as a new engine.
+ * Usage: java snakeGame.SnapshotCheck [games]
+ */
+public class SnapshotCheck {
+
+	private static final int[][] GRIDS = { { 6, 4, 1 }, { 10, 10, 3 }, { 25, 25, 10 }, { 300, 300, 5 } }; // width, height, apples
+	private static final int CORRUPTIONS = 200; // broken snapshots per game
+
+	private final Random random = new Random(285);
+	private int failures;
+	private long loads;
+	private long failedLoads;
+
+	/**
+	 * Plays the game to a random tick (greedy bot, some random turns), so the snakes have all lengths.
+	 */
+	private SnakeEngine play(int width, int height, int apples, long seed) {
+		SnakeEngine engine = new SnakeEngine(width, height, apples, seed);
+		SnakeBot bot = GreedyBot.FACTORY.create(seed);
+		int ticks = random.nextInt(20 * width * height);
+		for (int tick = 0; tick < ticks && !engine.isGameFinish(); tick++) {
+			engine.step(random.nextInt(8) == 0 ? random.nextInt(4) : bot.nextDirection(engine));
+		}
+		return engine;
+	}
+
+	private void roundTrip(SnakeEngine engine) throws IOException {
+		ByteBuffer saved = GameSnapshot.save(engine);
+		SnakeEngine copy = GameSnapshot.load(saved.duplicate());
+		if (!Arrays.equals(GameSnapshot.save(copy).array(), saved.array())) {
+			fail("loaded game saves other bytes", engine);
+			return;
+		}
+		for (int tick = 0; tick < 200; tick++) {
+			int direction = random.nextInt(4) == 0 ? random.nextInt(4) : SnakeEngine.NO_DIRECTION;
+			if (engine.step(direction) != copy.step(direction)) {
+				fail("loaded game goes on with other events", engine);
+				return;
+			}
+		}
+		if (!Arrays.equals(GameSnapshot.save(copy).array(), GameSnapshot.save(engine).array())) {
+			fail("loaded game goes on differently", engine);
+		}
+	}
+
+	private void corrupt(SnakeEngine engine) {
+		byte[] saved = GameSnapshot.save(engine).array();
+		SnakeEngine target = new SnakeEngine(engine.getWidth(), engine.getHeight(), engine.getAppleCount(), 1L);
+		for (int i = 0; i < CORRUPTIONS; i++) {
+			byte[] data = Arrays.copyOf(saved, saved.length);
+			int freeCount = engine.getFreeCell(0) >= 0 ? engine.getFreeCellCount() : 0;
+			int kind = random.nextInt(4);
+			if (kind == 0) {
+				data = Arrays.copyOf(data, random.nextInt(data.length)); // cut off
+			}
+			else if (kind == 1 && freeCount >= 2) { // a free cell twice
+				int first = data.length - 2 * freeCount;
+				int index = 1 + random.nextInt(freeCount - 1);
+				data[first + 2 * index] = data[first];
+				data[first + 2 * index + 1] = data[first + 1];
+			}
+			else if (kind == 2 && freeCount >= 1) { // the head as a free cell
+				int head = engine.toCell(engine.getHeadX(), engine.getHeadY());
+				int at = data.length - 2 * freeCount + 2 * random.nextInt(freeCount);
+				data[at] = (byte) (head >>> 8);
+				data[at + 1] = (byte) head;
+			}
+			else {
+				for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+					data[5 + random.nextInt(data.length - 5)] ^= 1 << random.nextInt(8); // behind the header
+				}
+			}
+
+			loads++;
+			try {
+				GameSnapshot.load(ByteBuffer.wrap(data), target);
+			}
+			catch (IOException e) {
+				failedLoads++;
+				long seed = random.nextLong();
+				target.reset(seed);
+				SnakeEngine fresh = new SnakeEngine(engine.getWidth(), engine.getHeight(), engine.getAppleCount(), seed);
+				if (!sameGameAfterSteps(target, fresh)) {
+					fail("reset after a broken load differs from a new game (" + e.getMessage() + ")", engine);
+					return;
+				}
+			}
+			catch (IllegalArgumentException e) {
+				if (!e.getMessage().equals("Snapshot of another grid")) {
+					fail("IllegalArgumentException on a broken snapshot: " + e.getMessage(), engine);
+					return;
+				}
+			}
+			catch (RuntimeException e) {
+				fail("broken snapshot throws " + e, engine);
+				return;
+			}
+		}
+
+		// another grid: the engine does not change
+		SnakeEngine other = new SnakeEngine(engine.getWidth() + 1, engine.getHeight(), engine.getAppleCount(), 2L);
+		byte[] before = GameSnapshot.save(other).array();
+		try {
+			GameSnapshot.load(ByteBuffer.wrap(saved), other);
+			fail("snapshot of another grid loaded", engine);
+		}
+		catch (IllegalArgumentException e) {
+			if (!Arrays.equals(GameSnapshot.save(other).array(), before)) {
+				fail("snapshot of another grid changed the engine", engine);
+			}
+		}
+		catch (IOException e) {
+			fail("snapshot of another grid: " + e, engine);
+		}
+	}
+
+	/**
+	 * @return true, if both games give the same events and the same state after some random steps
+	 */
+	private boolean sameGameAfterSteps(SnakeEngine a, SnakeEngine b) {
+		for (int tick = 0; tick < 100; tick++) {
+			int direction = random.nextInt(4) == 0 ? random.nextInt(4) : SnakeEngine.NO_DIRECTION;
+			if (a.step(direction) != b.step(direction)) {
+				return false;
+			}
+		}
+		return Arrays.equals(GameSnapshot.save(a).array(), GameSnapshot.save(b).array());
+	}
+
+	private void fail(String message, SnakeEngine engine) {
+		failures++;
+		System.out.println(engine.getWidth() + "x" + engine.getHeight() + " seed " + engine.getSeed()
+				+ " tick " + engine.getTick() + ": " + message);
+	}
+
+	/**
+	 * Checks all grids, exit code 1 if anything went wrong.
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		SnapshotCheck check = new SnapshotCheck();
+		for (int[] grid : GRIDS) {
+			int gridGames = grid[0] * grid[1] > 10000 ? Math.max(1, games / 30) : games; // big grids take long
+			for (int game = 0; game < gridGames; game++) {
+				SnakeEngine engine = check.play(grid[0], grid[1], grid[2], BatchRunner.gameSeed(285, game));
+				check.roundTrip(engine);
+				check.corrupt(engine);
+			}
+			System.out.println(grid[0] + "x" + grid[1] + ", " + grid[2] + " apples: " + gridGames + " games");
+		}
+		System.out.println(check.loads + " broken snapshots, " + check.failedLoads + " refused | "
+				+ (check.failures == 0 ? "ok" : check.failures + " FAILURES"));
+		if (check.failures > 0) {
+			System.exit(1);
+		}
+	}
+}
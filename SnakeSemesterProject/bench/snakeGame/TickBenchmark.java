@@ -0,0 +1,47 @@
+package snakeGame;
+
+import java.util.Map;
+
+/**
+ * One full tick of the game rules (everything Snake.act() did before the engine): the snake follows the cycle,
+ * eats the apples on its way and the game starts again when the grid is full.
+ */
+class TickBenchmark extends SnakeBenchmark {
+
+	private SnakeEngine engine;
+	private CycleDriver driver;
+
+	TickBenchmark() {
+		super("tick");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "24x24", "100x100", "1000x1000" },
+			{ "apples", "10", "1000" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int apples = intParam(params, "apples");
+		if (apples >= width * height / 2) {
+			return false;
+		}
+		engine = new SnakeEngine(width, height, apples, 1L);
+		driver = new CycleDriver(width, height);
+		return true;
+	}
+
+	@Override
+	long operation() {
+		int events = driver.step(engine);
+		if (engine.isGameFinish()) {
+			engine.reset();
+		}
+		return events;
+	}
+}
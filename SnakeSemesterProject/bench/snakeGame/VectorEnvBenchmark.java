@@ -0,0 +1,56 @@
+package snakeGame;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One step of all games of a VectorEnv with random turns (observations, rewards and restarts included).
+ */
+class VectorEnvBenchmark extends SnakeBenchmark {
+
+	private static final int ACTION_SETS = 256; // different sets of actions, used by turns
+
+	private VectorEnv env;
+	private int[][] actions;
+	private int[] rewards;
+	private boolean[] dones;
+	private int next;
+
+	VectorEnvBenchmark() {
+		super("vectorEnv");
+	}
+
+	@Override
+	String[][] parameters() {
+		return new String[][] {
+			{ "grid", "10x10", "24x24" },
+			{ "games", "64", "1024" }
+		};
+	}
+
+	@Override
+	boolean setUp(Map<String, String> params) {
+		int width = gridWidth(params);
+		int height = gridHeight(params);
+		int games = intParam(params, "games");
+		env = new VectorEnv(games, width, height, 1, 100L * width * height,
+				new long[games * VectorEnv.PLANES * VectorEnv.planeWords(width, height)], new int[games * VectorEnv.SCALARS]);
+		env.reset(1L);
+		Random random = new Random(1L);
+		actions = new int[ACTION_SETS][games];
+		for (int[] set : actions) {
+			for (int i = 0; i < games; i++) {
+				set[i] = random.nextInt(4) == 0 ? random.nextInt(4) : SnakeEngine.NO_DIRECTION;
+			}
+		}
+		rewards = new int[games];
+		dones = new boolean[games];
+		return true;
+	}
+
+	@Override
+	long operation() {
+		next = (next + 1) & (ACTION_SETS - 1);
+		return env.step(actions[next], rewards, dones);
+	}
+}
@@ -0,0 +1,113 @@
+package snakeGame;
+
+import java.util.ArrayList;
+
+import ch.aplu.jgamegrid.Actor;
+import ch.aplu.jgamegrid.GameGrid;
+import ch.aplu.jgamegrid.Location;
+
+/**
+ * Reuses actors instead of creating new ones (loading the sprites) and removing them again.
+ *
+ * All actors of the pool stay on the GameGrid: a free actor is only hidden, acquire() moves and shows it again.
+ * So growing, dying and resetting do not create actors and do not change the actor list of the GameGrid,
+ * as long as the pool has enough free actors (prewarm()). A miss creates a new actor, it stays in the pool afterwards.
+ *
+ * Not thread-safe: only used by the simulation thread and the reset (GameGrid is paused).
+ * @param <T> type of the actors
+ */
+public abstract class ActorPool<T extends Actor> {
+
+	private final GameGrid grid;
+	private final ArrayList<T> free = new ArrayList<T>(); // hidden actors
+	private int size; // amount of created actors
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param grid the actors get added to this grid
+	 */
+	public ActorPool(GameGrid grid) {
+		this.grid = grid;
+	}
+
+	/**
+	 * @return a new actor (called on a miss and by prewarm())
+	 */
+	protected abstract T create();
+
+	/**
+	 * Creates actors until the pool has count free actors.
+	 * @param count amount of free actors
+	 */
+	public void prewarm(int count) {
+		free.ensureCapacity(size + count);
+		while (free.size() < count) {
+			T actor = create();
+			grid.addActor(actor, new Location(0, 0));
+			actor.hide();
+			free.add(actor);
+			size++;
+		}
+	}
+
+	/**
+	 * Takes a free actor (or creates one) and shows it.
+	 * @param location new location of the actor (copied)
+	 * @param spriteId visible sprite
+	 */
+	public T acquire(Location location, int spriteId) {
+		T actor;
+		if (free.isEmpty()) {
+			misses++;
+			actor = create();
+			grid.addActor(actor, location);
+			size++;
+		}
+		else {
+			hits++;
+			actor = free.remove(free.size() - 1);
+			actor.setLocation(location);
+		}
+		actor.show(spriteId);
+		return actor;
+	}
+
+	/**
+	 * Hides the actor and gives it back to the pool.
+	 */
+	public void release(T actor) {
+		actor.hide();
+		free.add(actor);
+	}
+
+	/**
+	 * Hides all free actors again (GameGrid.doReset() shows every actor of the grid).
+	 */
+	public void hideFree() {
+		for (int i = 0; i < free.size(); i++) {
+			free.get(i).hide();
+		}
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public int getFreeCount() {
+		return free.size();
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "size " + size + " | free " + free.size() + " | hits " + hits + " | misses " + misses;
+	}
+}
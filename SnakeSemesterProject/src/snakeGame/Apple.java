@@ -9,6 +9,6 @@ public class Apple extends Actor {
 	 */
 	public Apple() {
 		//Constructs an unrotatable actor based on the specified sprite image.
-		super("sprites/apple_small_18.png");
+		super(SpriteAtlas.APPLE); // one sprite for all apples
 	}
 }
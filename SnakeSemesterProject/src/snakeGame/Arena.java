@@ -0,0 +1,753 @@
+package snakeGame;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless arena: many snakes (each played by an ArenaBot) on one grid with one set of apples.
+ * All snakes move at the same time, a dead snake starts again with SNAKE_START_LENGTH on a random empty cell.
+ *
+ * One step() has five phases, the first four run in parallel on the fork-join pool:
+ * 1. move:    the bots choose their directions (chunks of snakes), the board is only read.
+ *             Every target cell gets sorted into the list of its stripe (a band of rows).
+ * 2. resolve: one task per stripe checks the targets of its cells, so no cell is shared between two tasks and
+ *             no lock is needed. Target occupied (body or head at the start of the tick) --> the snake dies,
+ *             except the tail of a snake which does not grow: it leaves in this tick (same rule as SnakeEngine).
+ *             Several heads on the same cell --> the longest snake wins (and eats the apple), all others die,
+ *             equal lengths --> all of them die.
+ * 3. tails:   every snake which does not grow clears its tail (chunks of snakes), also the dying ones.
+ * 4. apply:   every snake moves its head onto its target (chunks of snakes), dead snakes clear their cells.
+ *             An eaten apple lets the snake grow from the next tick on, like in SnakeEngine.
+ * 5. respawn: eaten apples and dead snakes get new cells, in the order of the snakes (current thread).
+ * The random generator is only used in phase 5 and the lists are walked in the order of the snakes,
+ * so the result only depends on the seed, not on the amount of threads.
+ */
+public class Arena {
+
+	public static final int MAX_GRID = 2048; // max. width and height (13 bytes per cell)
+
+	static final int SNAKE_START_LENGTH = SnakeEngine.SNAKE_START_LENGTH;
+	static final int SNAKE_EXPAND_PER_APPLE = SnakeEngine.SNAKE_EXPAND_PER_APPLE;
+
+	private static final int BODY_CAPACITY_START = 16; // the ring buffer of a snake grows with the snake
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int STRIPES_PER_THREAD = 8;
+	private static final int RANDOM_PROBES = 64; // random cells tried before the empty cell gets searched
+
+	private static final int PHASE_MOVE = 0;
+	private static final int PHASE_RESOLVE = 1;
+	private static final int PHASE_TAILS = 2;
+	private static final int PHASE_APPLY = 3;
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final int width;
+	private final int height;
+	private final int snakeCount;
+	private final int appleCount;
+	private final ArenaBot.Factory botFactory;
+	private final ArenaBot[] bots;
+	private final ArenaBot[] players; // set with setBot(), they stay over a reset (null = bot of the factory)
+	private final ForkJoinPool pool; // null = all phases on the current thread
+	private final SnakeEngine.GameRandom random; // its state goes into the snapshots of the GameServer
+	private long seed;
+	private long tick;
+
+	// board
+	private final byte[] occupants; // EMPTY, BODY, HEAD or APPLE for every cell
+	private final int[] owners; // snake of a BODY or HEAD cell, apple of an APPLE cell
+	private int freeCount;
+	private final int[] appleCell; // -1 = not placed (no empty cell)
+	private long applesEaten;
+
+	// snakes
+	private final int[][] bodies; // ring buffer of cells per snake, tail at bodyTail, head at the end
+	private final int[] bodyTail;
+	private final int[] length;
+	private final int[] expand; // squares still to grow
+	private final int[] direction;
+	private final int[] headCell;
+	private final int[] score; // apples since the last start
+	private final int[] deaths;
+	private final boolean[] alive;
+
+	// state of the running tick
+	private final int[] nextDirection; // chosen in phase 1, used in phase 4 (bots read direction[])
+	private final int[] target; // next head cell, -1 = dies at the wall
+	private final boolean[] dies;
+	private final int[] eatenApple; // apple eaten in this tick, -1 = none
+	private final int[] nextInStripe; // next snake of the same chunk with a target in the same stripe
+	private final int[] stripeFirst; // [chunk * stripeCount + stripe], -1 = empty list
+	private final int[] stripeLast;
+	private final int[] claimStamp; // (int) tick of the last claim of the cell, older claims are ignored
+	private final int[] claimSnake; // winner of the cell, -1 = equal lengths (all died)
+	private final int[] claimLength;
+	private final int[] freeDelta; // change of freeCount per chunk
+	private final int chunkSize;
+	private final int chunkCount;
+	private final int stripeRows;
+	private final int stripeCount;
+
+	/**
+	 * Creates the arena and starts the first game.
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param snakeCount amount of snakes
+	 * @param appleCount amount of apples on the grid
+	 * @param botFactory creates the player of every snake
+	 * @param pool runs the phases of a step (null = current thread)
+	 * @param seed start value of the random generator
+	 */
+	public Arena(int width, int height, int snakeCount, int appleCount, ArenaBot.Factory botFactory, ForkJoinPool pool, long seed) {
+		if (width < 1 || height < 1 || width > MAX_GRID || height > MAX_GRID) {
+			throw new IllegalArgumentException("Grid size not possible: " + width + "x" + height + " (max. " + MAX_GRID + ")");
+		}
+		if (snakeCount < 1 || (long) snakeCount * SNAKE_START_LENGTH + appleCount > (long) width * height) {
+			throw new IllegalArgumentException(snakeCount + " snakes and " + appleCount + " apples do not fit into " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.snakeCount = snakeCount;
+		this.appleCount = appleCount;
+		this.botFactory = botFactory;
+		this.pool = pool;
+		this.random = new SnakeEngine.GameRandom(seed);
+
+		int cells = width * height;
+		occupants = new byte[cells];
+		owners = new int[cells];
+		claimStamp = new int[cells];
+		claimSnake = new int[cells];
+		claimLength = new int[cells];
+		appleCell = new int[appleCount];
+
+		bots = new ArenaBot[snakeCount];
+		players = new ArenaBot[snakeCount];
+		bodies = new int[snakeCount][BODY_CAPACITY_START];
+		bodyTail = new int[snakeCount];
+		length = new int[snakeCount];
+		expand = new int[snakeCount];
+		direction = new int[snakeCount];
+		headCell = new int[snakeCount];
+		score = new int[snakeCount];
+		deaths = new int[snakeCount];
+		alive = new boolean[snakeCount];
+		nextDirection = new int[snakeCount];
+		target = new int[snakeCount];
+		dies = new boolean[snakeCount];
+		eatenApple = new int[snakeCount];
+		nextInStripe = new int[snakeCount];
+
+		int threads = pool != null ? pool.getParallelism() : 1;
+		int chunks = Math.min(snakeCount, threads * CHUNKS_PER_THREAD);
+		chunkSize = (snakeCount + chunks - 1) / chunks;
+		chunkCount = (snakeCount + chunkSize - 1) / chunkSize;
+		int stripes = Math.min(height, threads * STRIPES_PER_THREAD);
+		stripeRows = (height + stripes - 1) / stripes;
+		stripeCount = (height + stripeRows - 1) / stripeRows;
+		stripeFirst = new int[chunkCount * stripeCount];
+		stripeLast = new int[chunkCount * stripeCount];
+		freeDelta = new int[chunkCount];
+
+		reset(seed);
+	}
+
+	/**
+	 * Starts a new game with a new seed drawn from the current random generator.
+	 */
+	public void reset() {
+		reset(random.nextLong());
+	}
+
+	/**
+	 * Starts a new game: all snakes on random cells (one square, growing to SNAKE_START_LENGTH), new apples
+	 * and new bots (except the players set with setBot()).
+	 * @param seed start value of the random generator (same seed and same bots --> same game)
+	 */
+	public void reset(long seed) {
+		this.seed = seed;
+		random.setSeed(seed);
+		Arrays.fill(occupants, SnakeEngine.EMPTY);
+		Arrays.fill(claimStamp, 0);
+		freeCount = occupants.length;
+		tick = 0;
+		applesEaten = 0;
+
+		for (int snake = 0; snake < snakeCount; snake++) {
+			bots[snake] = players[snake] != null ? players[snake] : botFactory.create(BatchRunner.gameSeed(seed, snake));
+			score[snake] = 0;
+			deaths[snake] = 0;
+			spawnSnake(snake);
+		}
+		for (int apple = 0; apple < appleCount; apple++) {
+			placeApple(apple);
+		}
+	}
+
+	/**
+	 * Lets another player play the snake from the next tick on, e.g. an ArenaKeyboard. Not during a step().
+	 * @param snake index of the snake
+	 * @param player plays the snake also after a reset, null = a new bot of the factory takes over again
+	 */
+	public void setBot(int snake, ArenaBot player) {
+		players[snake] = player;
+		bots[snake] = player != null ? player : botFactory.create(BatchRunner.gameSeed(seed, snake));
+	}
+
+	/**
+	 * Calculates one tick for all snakes.
+	 */
+	public void step() {
+		tick++;
+		runPhase(PHASE_MOVE, chunkCount);
+		runPhase(PHASE_RESOLVE, stripeCount);
+		runPhase(PHASE_TAILS, chunkCount);
+		runPhase(PHASE_APPLY, chunkCount);
+
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			freeCount += freeDelta[chunk];
+		}
+		for (int snake = 0; snake < snakeCount; snake++) {
+			if (eatenApple[snake] >= 0) {
+				applesEaten++;
+				placeApple(eatenApple[snake]);
+			}
+		}
+		for (int snake = 0; snake < snakeCount; snake++) {
+			if (!alive[snake]) {
+				spawnSnake(snake); // stays dead, if there is no empty cell
+			}
+		}
+	}
+
+	private void runPhase(int phase, int parts) {
+		if (pool != null) {
+			pool.invoke(new PhaseTask(phase, 0, parts));
+			return;
+		}
+		for (int part = 0; part < parts; part++) {
+			runPart(phase, part); // fork() outside of a pool would use the common pool
+		}
+	}
+
+	private void runPart(int phase, int part) {
+		switch (phase) {
+		case PHASE_MOVE:
+			move(part);
+			break;
+		case PHASE_RESOLVE:
+			resolve(part);
+			break;
+		case PHASE_TAILS:
+			clearTails(part);
+			break;
+		default:
+			apply(part);
+			break;
+		}
+	}
+
+	/**
+	 * Runs one phase for the parts (chunks of snakes or stripes of rows) [from, to), splits the range until one part is left.
+	 */
+	private class PhaseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int phase;
+		private final int from;
+		private final int to;
+
+		PhaseTask(int phase, int from, int to) {
+			this.phase = phase;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				PhaseTask left = new PhaseTask(phase, from, middle);
+				left.fork();
+				new PhaseTask(phase, middle, to).compute();
+				left.join();
+			}
+			else {
+				runPart(phase, from);
+			}
+		}
+	}
+
+	/**
+	 * Phase 1: asks the bots of the chunk and sorts the targets into the stripe lists of the chunk.
+	 */
+	private void move(int chunk) {
+		int lists = chunk * stripeCount;
+		Arrays.fill(stripeFirst, lists, lists + stripeCount, -1);
+		Arrays.fill(stripeLast, lists, lists + stripeCount, -1);
+
+		int end = Math.min(snakeCount, (chunk + 1) * chunkSize);
+		for (int snake = chunk * chunkSize; snake < end; snake++) {
+			dies[snake] = false;
+			eatenApple[snake] = -1;
+			if (!alive[snake]) {
+				continue;
+			}
+			int current = direction[snake];
+			int wanted = bots[snake].nextDirection(this, snake);
+			if (wanted >= SnakeEngine.NORTH && wanted <= SnakeEngine.WEST && wanted != SnakeEngine.opposite(current)) {
+				current = wanted;
+			}
+			nextDirection[snake] = current;
+
+			int x = cellX(headCell[snake]) + DX[current];
+			int y = cellY(headCell[snake]) + DY[current];
+			if (!isInGrid(x, y)) {
+				target[snake] = -1;
+				dies[snake] = true; // hit the border
+				continue;
+			}
+			target[snake] = toCell(x, y);
+
+			int list = lists + y / stripeRows;
+			nextInStripe[snake] = -1;
+			if (stripeLast[list] < 0) {
+				stripeFirst[list] = snake;
+			}
+			else {
+				nextInStripe[stripeLast[list]] = snake;
+			}
+			stripeLast[list] = snake;
+		}
+	}
+
+	/**
+	 * Phase 2: decides which snake dies on the cells of the stripe. Only this task reads and writes
+	 * the claims of these cells and the dies flag of these snakes.
+	 */
+	private void resolve(int stripe) {
+		int stamp = (int) tick;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			for (int snake = stripeFirst[chunk * stripeCount + stripe]; snake >= 0; snake = nextInStripe[snake]) {
+				int cell = target[snake];
+				byte occupant = occupants[cell];
+				if ((occupant == SnakeEngine.BODY && !isLeavingTail(cell)) || occupant == SnakeEngine.HEAD) {
+					dies[snake] = true; // collision with a snake
+					continue;
+				}
+
+				int snakeLength = length[snake];
+				if (claimStamp[cell] != stamp) {
+					claimStamp[cell] = stamp; // first head on this cell
+					claimSnake[cell] = snake;
+					claimLength[cell] = snakeLength;
+				}
+				else if (snakeLength > claimLength[cell]) {
+					if (claimSnake[cell] >= 0) {
+						dies[claimSnake[cell]] = true;
+					}
+					claimSnake[cell] = snake;
+					claimLength[cell] = snakeLength;
+				}
+				else if (snakeLength == claimLength[cell]) {
+					if (claimSnake[cell] >= 0) {
+						dies[claimSnake[cell]] = true;
+					}
+					dies[snake] = true;
+					claimSnake[cell] = -1;
+				}
+				else {
+					dies[snake] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true, if the cell is the tail of a snake which does not grow in this tick (it is empty after phase 3)
+	 */
+	private boolean isLeavingTail(int cell) {
+		int owner = owners[cell];
+		return alive[owner] && expand[owner] == 0 && bodies[owner][bodyTail[owner]] == cell;
+	}
+
+	/**
+	 * Phase 3: the snakes of the chunk which do not grow clear their tail, before any head moves
+	 * (a head may move onto the tail of a snake of another chunk).
+	 */
+	private void clearTails(int chunk) {
+		int delta = 0;
+		int end = Math.min(snakeCount, (chunk + 1) * chunkSize);
+		for (int snake = chunk * chunkSize; snake < end; snake++) {
+			if (alive[snake] && expand[snake] == 0) {
+				int[] body = bodies[snake];
+				occupants[body[bodyTail[snake]]] = SnakeEngine.EMPTY;
+				bodyTail[snake] = (bodyTail[snake] + 1) & (body.length - 1);
+				length[snake]--;
+				delta++;
+			}
+		}
+		freeDelta[chunk] = delta;
+	}
+
+	/**
+	 * Phase 4: moves the heads of the snakes of the chunk. A snake writes only its own cells and its target
+	 * (nobody else won it), so the chunks do not need a lock.
+	 */
+	private void apply(int chunk) {
+		int delta = 0;
+		int end = Math.min(snakeCount, (chunk + 1) * chunkSize);
+		for (int snake = chunk * chunkSize; snake < end; snake++) {
+			if (!alive[snake]) {
+				continue;
+			}
+			if (dies[snake]) {
+				delta += removeSnake(snake);
+				continue;
+			}
+			direction[snake] = nextDirection[snake];
+			if (expand[snake] > 0) {
+				expand[snake]--; // the tail stayed in phase 3
+			}
+
+			int cell = target[snake];
+			if (occupants[cell] == SnakeEngine.APPLE) {
+				eatenApple[snake] = owners[cell];
+				expand[snake] += SNAKE_EXPAND_PER_APPLE;
+				score[snake]++;
+			}
+			else {
+				delta--;
+			}
+
+			int[] body = bodies[snake];
+			if (length[snake] == body.length) {
+				body = growBody(snake);
+			}
+			int mask = body.length - 1;
+			occupants[headCell[snake]] = SnakeEngine.BODY;
+			body[(bodyTail[snake] + length[snake]) & mask] = cell;
+			occupants[cell] = SnakeEngine.HEAD;
+			owners[cell] = snake;
+			headCell[snake] = cell;
+			length[snake]++;
+		}
+		freeDelta[chunk] += delta;
+	}
+
+	/**
+	 * Doubles the ring buffer of the snake, the tail moves to slot 0.
+	 */
+	private int[] growBody(int snake) {
+		int[] body = bodies[snake];
+		int[] larger = new int[body.length * 2];
+		for (int i = 0; i < length[snake]; i++) {
+			larger[i] = body[(bodyTail[snake] + i) & (body.length - 1)];
+		}
+		bodies[snake] = larger;
+		bodyTail[snake] = 0;
+		return larger;
+	}
+
+	/**
+	 * Clears the cells of a dead snake.
+	 * @return amount of cells which got empty
+	 */
+	private int removeSnake(int snake) {
+		int[] body = bodies[snake];
+		int mask = body.length - 1;
+		for (int i = 0; i < length[snake]; i++) {
+			occupants[body[(bodyTail[snake] + i) & mask]] = SnakeEngine.EMPTY;
+		}
+		alive[snake] = false;
+		deaths[snake]++;
+		return length[snake];
+	}
+
+	/**
+	 * Puts the snake as one square with a random direction on a random empty cell, it grows to SNAKE_START_LENGTH.
+	 */
+	private void spawnSnake(int snake) {
+		int cell = randomEmptyCell();
+		if (cell < 0) {
+			alive[snake] = false;
+			return;
+		}
+		occupants[cell] = SnakeEngine.HEAD;
+		owners[cell] = snake;
+		freeCount--;
+
+		bodies[snake][0] = cell;
+		bodyTail[snake] = 0;
+		length[snake] = 1;
+		expand[snake] = SNAKE_START_LENGTH - 1;
+		direction[snake] = random.nextInt(4);
+		headCell[snake] = cell;
+		score[snake] = 0;
+		alive[snake] = true;
+	}
+
+	/**
+	 * Puts the apple on a random empty cell, it stays away if the grid is full.
+	 */
+	private void placeApple(int apple) {
+		int cell = randomEmptyCell();
+		appleCell[apple] = cell;
+		if (cell >= 0) {
+			occupants[cell] = SnakeEngine.APPLE;
+			owners[cell] = apple;
+			freeCount--;
+		}
+	}
+
+	/**
+	 * Tries random cells first, then searches from a random cell on (the grid is nearly full).
+	 * @return an empty cell, -1 if there is none
+	 */
+	private int randomEmptyCell() {
+		if (freeCount <= 0) {
+			return -1;
+		}
+		for (int i = 0; i < RANDOM_PROBES; i++) {
+			int cell = random.nextInt(occupants.length);
+			if (occupants[cell] == SnakeEngine.EMPTY) {
+				return cell;
+			}
+		}
+		int start = random.nextInt(occupants.length);
+		for (int i = 0; i < occupants.length; i++) {
+			int cell = start + i < occupants.length ? start + i : start + i - occupants.length;
+			if (occupants[cell] == SnakeEngine.EMPTY) {
+				return cell;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties the board for a snapshot (NetProtocol), loadSnake() and loadApple() put the snakes and apples back.
+	 * The bots stay, the client plays the snakes with the directions of the server.
+	 */
+	void load(long seed, long tick, long randomState, long applesEaten) {
+		this.seed = seed;
+		this.tick = tick;
+		random.setState(randomState);
+		this.applesEaten = applesEaten;
+		Arrays.fill(occupants, SnakeEngine.EMPTY);
+		Arrays.fill(claimStamp, 0); // (int) tick of a step is never 0 (except after 2^32 ticks)
+		Arrays.fill(appleCell, -1);
+		Arrays.fill(alive, false);
+		freeCount = occupants.length;
+	}
+
+	/**
+	 * Puts a snake of a snapshot on the board (after load()).
+	 * @param cells body from the tail to the head (only used for a living snake)
+	 */
+	void loadSnake(int snake, boolean living, int[] cells, int length, int expand, int direction, int score, int deaths) {
+		this.length[snake] = length;
+		this.expand[snake] = expand;
+		this.direction[snake] = direction;
+		this.score[snake] = score;
+		this.deaths[snake] = deaths;
+		alive[snake] = living;
+		if (!living) {
+			return;
+		}
+		int capacity = bodies[snake].length;
+		while (capacity < length) {
+			capacity *= 2;
+		}
+		if (capacity != bodies[snake].length) {
+			bodies[snake] = new int[capacity];
+		}
+		System.arraycopy(cells, 0, bodies[snake], 0, length);
+		bodyTail[snake] = 0;
+		for (int i = 0; i < length; i++) {
+			occupants[cells[i]] = i == length - 1 ? SnakeEngine.HEAD : SnakeEngine.BODY;
+			owners[cells[i]] = snake;
+		}
+		headCell[snake] = cells[length - 1];
+		freeCount -= length;
+	}
+
+	/**
+	 * Puts an apple of a snapshot on the board (after load()).
+	 * @param cell -1 = not placed (grid full)
+	 */
+	void loadApple(int apple, int cell) {
+		appleCell[apple] = cell;
+		if (cell >= 0) {
+			occupants[cell] = SnakeEngine.APPLE;
+			owners[cell] = apple;
+			freeCount--;
+		}
+	}
+
+	private boolean isInGrid(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	public int toCell(int x, int y) {
+		return y * width + x;
+	}
+
+	public int cellX(int cell) {
+		return cell % width;
+	}
+
+	public int cellY(int cell) {
+		return cell / width;
+	}
+
+	/**
+	 * @return EMPTY, BODY, HEAD, APPLE or WALL (outside of the grid)
+	 */
+	public byte getOccupant(int x, int y) {
+		if (!isInGrid(x, y)) {
+			return SnakeEngine.WALL;
+		}
+		return occupants[toCell(x, y)];
+	}
+
+	/**
+	 * @return snake of a BODY or HEAD cell, apple of an APPLE cell, undefined for EMPTY cells
+	 */
+	public int getOwner(int x, int y) {
+		return owners[toCell(x, y)];
+	}
+
+	/**
+	 * @return cell of the apple, -1 if it has no cell (grid full)
+	 */
+	public int getAppleCell(int apple) {
+		return appleCell[apple];
+	}
+
+	public int getHeadX(int snake) {
+		return cellX(headCell[snake]);
+	}
+
+	public int getHeadY(int snake) {
+		return cellY(headCell[snake]);
+	}
+
+	public int getDirection(int snake) {
+		return direction[snake];
+	}
+
+	public int getLength(int snake) {
+		return length[snake];
+	}
+
+	/**
+	 * @param index 0 = tail .. getLength() - 1 = head
+	 * @return cell of a square of a living snake
+	 */
+	int getBodyCell(int snake, int index) {
+		int[] body = bodies[snake];
+		return body[(bodyTail[snake] + index) & (body.length - 1)];
+	}
+
+	/**
+	 * @return squares the snake still grows
+	 */
+	int getExpand(int snake) {
+		return expand[snake];
+	}
+
+	/**
+	 * @return direction the snake moved (or died) in the last step, undefined if it was dead at its start
+	 */
+	int getMoveDirection(int snake) {
+		return nextDirection[snake];
+	}
+
+	long getRandomState() {
+		return random.getState();
+	}
+
+	/**
+	 * @return apples eaten since the last start of the snake
+	 */
+	public int getScore(int snake) {
+		return score[snake];
+	}
+
+	public int getDeaths(int snake) {
+		return deaths[snake];
+	}
+
+	public boolean isAlive(int snake) {
+		return alive[snake];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSnakeCount() {
+		return snakeCount;
+	}
+
+	public int getAppleCount() {
+		return appleCount;
+	}
+
+	/**
+	 * @return amount of empty cells
+	 */
+	public int getFreeCellCount() {
+		return freeCount;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return apples eaten by all snakes since the last reset
+	 */
+	public long getApplesEaten() {
+		return applesEaten;
+	}
+
+	/**
+	 * @return seed of the current game (see reset(long))
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return amount of chunks of snakes (phases 1 and 3) and stripes of rows (phase 2) in one string, for the log
+	 */
+	public String getPartitioning() {
+		return chunkCount + " chunks of " + chunkSize + " snakes | " + stripeCount + " stripes of " + stripeRows + " rows";
+	}
+
+	/**
+	 * @return hash of all cells and snakes, equal for equal games (to compare runs with different amounts of threads)
+	 */
+	public long checksum() {
+		long hash = tick;
+		for (int cell = 0; cell < occupants.length; cell++) {
+			hash = hash * 31 + occupants[cell];
+			if (occupants[cell] != SnakeEngine.EMPTY) {
+				hash = hash * 31 + owners[cell];
+			}
+		}
+		for (int snake = 0; snake < snakeCount; snake++) {
+			hash = hash * 31 + (alive[snake] ? headCell[snake] : -1);
+			hash = hash * 31 + length[snake] + 7L * deaths[snake] + 131L * score[snake];
+		}
+		return hash;
+	}
+}
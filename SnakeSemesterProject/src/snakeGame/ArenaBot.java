@@ -0,0 +1,26 @@
+package snakeGame;
+
+/**
+ * Plays one snake of an Arena: chooses the direction for the next tick.
+ * The bots of all snakes are called in parallel, a bot may only read the arena and change its own state.
+ */
+public interface ArenaBot {
+
+	/**
+	 * Creates one bot per snake.
+	 */
+	interface Factory {
+		/**
+		 * @param seed start value for the random generator of the bot
+		 */
+		ArenaBot create(long seed);
+	}
+
+	/**
+	 * Called once per tick for every living snake (on any thread).
+	 * @param arena state at the start of the tick (read only)
+	 * @param snake index of the snake
+	 * @return SnakeEngine.NORTH, EAST, SOUTH, WEST or NO_DIRECTION (keep the direction)
+	 */
+	int nextDirection(Arena arena, int snake);
+}
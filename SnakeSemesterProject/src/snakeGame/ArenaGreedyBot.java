@@ -0,0 +1,93 @@
+package snakeGame;
+
+import java.util.Random;
+
+/**
+ * GreedyBot for the arena: goes to one apple (the nearest of a few random ones) and never steps on the border
+ * or a snake, if there is another way. Looks only one step ahead and does not avoid the heads of other snakes.
+ * Checks only a few apples, so a tick costs the same for any amount of apples.
+ */
+public class ArenaGreedyBot implements ArenaBot {
+
+	public static final Factory FACTORY = new Factory() {
+		public ArenaBot create(long seed) {
+			return new ArenaGreedyBot(seed);
+		}
+	};
+
+	private static final int APPLE_SAMPLES = 8; // apples compared when a new target gets chosen
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final Random random;
+	private int targetApple = -1;
+	private int targetCell = -1; // cell of the target apple when it got chosen, the apple moved if it is not there anymore
+
+	public ArenaGreedyBot(long seed) {
+		random = new Random(seed);
+	}
+
+	@Override
+	public int nextDirection(Arena arena, int snake) {
+		int headX = arena.getHeadX(snake);
+		int headY = arena.getHeadY(snake);
+		if (targetApple < 0 || targetCell < 0 || arena.getAppleCell(targetApple) != targetCell) {
+			chooseTarget(arena, headX, headY);
+		}
+		int appleX = targetCell >= 0 ? arena.cellX(targetCell) : headX;
+		int appleY = targetCell >= 0 ? arena.cellY(targetCell) : headY;
+
+		int current = arena.getDirection(snake);
+		int best = SnakeEngine.NO_DIRECTION;
+		int bestDistance = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			if (direction == SnakeEngine.opposite(current)) {
+				continue;
+			}
+			int x = headX + DX[direction];
+			int y = headY + DY[direction];
+			byte occupant = arena.getOccupant(x, y);
+			if (occupant == SnakeEngine.WALL || occupant == SnakeEngine.BODY || occupant == SnakeEngine.HEAD) {
+				continue;
+			}
+
+			int distance = Math.abs(appleX - x) + Math.abs(appleY - y);
+			if (distance < bestDistance) {
+				best = direction;
+				bestDistance = distance;
+				ties = 1;
+			}
+			else if (distance == bestDistance && random.nextInt(++ties) == 0) {
+				best = direction; // choose one of the equal directions by chance
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Takes the nearest (Manhattan distance) of APPLE_SAMPLES random apples.
+	 */
+	private void chooseTarget(Arena arena, int headX, int headY) {
+		targetApple = -1;
+		targetCell = -1;
+		if (arena.getAppleCount() == 0) {
+			return;
+		}
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < APPLE_SAMPLES; i++) {
+			int apple = random.nextInt(arena.getAppleCount());
+			int cell = arena.getAppleCell(apple);
+			if (cell < 0) {
+				continue;
+			}
+			int distance = Math.abs(arena.cellX(cell) - headX) + Math.abs(arena.cellY(cell) - headY);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				targetApple = apple;
+				targetCell = cell;
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package snakeGame;
+
+/**
+ * Player of one arena snake: takes the directions of the keys (or of a network player) from a DirectionQueue.
+ * The key listener calls offer(), the arena calls nextDirection() (same single producer / single consumer rule as the queue).
+ * After the snake died it starts again with a random direction, so the queue gets cleared with the next key
+ * (also after the first tick, the snake may have been played by a bot before).
+ */
+public class ArenaKeyboard implements ArenaBot {
+
+	private final DirectionQueue directions;
+
+	// written by the arena
+	private volatile int spawnDirection = SnakeEngine.EAST;
+	private volatile int deaths = -1; // deaths of the snake at the last nextDirection(), written after spawnDirection
+
+	// written by the producer only
+	private int clearedDeaths = -1;
+
+	/**
+	 * @param maxSize max. amount of stored directions
+	 */
+	public ArenaKeyboard(int maxSize) {
+		directions = new DirectionQueue(maxSize);
+	}
+
+	/**
+	 * Adds a direction (producer thread only).
+	 * @param direction SnakeEngine.NORTH, EAST, SOUTH or WEST
+	 * @return false, if the direction got collapsed or dropped (queue full)
+	 */
+	public boolean offer(int direction) {
+		int died = deaths;
+		if (died != clearedDeaths) {
+			clearedDeaths = died;
+			directions.clear(spawnDirection); // the inputs were for the dead snake
+		}
+		return directions.offer(direction);
+	}
+
+	@Override
+	public int nextDirection(Arena arena, int snake) {
+		int died = arena.getDeaths(snake);
+		if (died != deaths) {
+			spawnDirection = arena.getDirection(snake);
+			deaths = died;
+		}
+		return directions.poll();
+	}
+}
@@ -0,0 +1,130 @@
+package snakeGame;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the cells of an Arena into a back buffer with the sprites of the SpriteAtlas (like the CellRenderer).
+ * The arena has no list of changed cells, so every render() draws the whole view. The own snake has color 0,
+ * the other snakes the remaining colors. The view follows the head of the own snake, if it is smaller than the grid.
+ */
+public class ArenaRenderer {
+
+	private final Arena arena;
+	private final int cellSize;
+	private final Color background;
+	private final Color gridColor;
+	private final int viewWidth;
+	private final int viewHeight;
+	private final BufferedImage buffer;
+	private final Graphics2D bufferGraphics;
+	private final SpriteAtlas sprites;
+	private int viewX;
+	private int viewY;
+
+	/**
+	 * @param arena arena to draw
+	 * @param cellSize pixel per cell
+	 * @param background color of empty cells
+	 * @param gridColor color of the lines between the cells
+	 * @param viewWidth visible cells (horizontal)
+	 * @param viewHeight visible cells (vertical)
+	 */
+	public ArenaRenderer(Arena arena, int cellSize, Color background, Color gridColor, int viewWidth, int viewHeight) {
+		this.arena = arena;
+		this.cellSize = cellSize;
+		this.background = background;
+		this.gridColor = gridColor;
+		this.viewWidth = Math.min(viewWidth, arena.getWidth());
+		this.viewHeight = Math.min(viewHeight, arena.getHeight());
+
+		buffer = new BufferedImage(this.viewWidth * cellSize + 1, this.viewHeight * cellSize + 1, BufferedImage.TYPE_INT_RGB);
+		bufferGraphics = buffer.createGraphics();
+		sprites = SpriteAtlas.get();
+	}
+
+	/**
+	 * Draws the view into the back buffer and copies it to the screen. Call it on the thread of the arena, not during a step().
+	 * @param screen graphics of the window (null = only draw the back buffer)
+	 * @param ownSnake snake in color 0 which the view follows, -1 = none (the view stays)
+	 */
+	public void render(Graphics screen, int ownSnake) {
+		synchronized (buffer) {
+			if (ownSnake >= 0 && arena.isAlive(ownSnake)) {
+				viewX = moveView(viewX, viewWidth, arena.getHeadX(ownSnake), arena.getWidth());
+				viewY = moveView(viewY, viewHeight, arena.getHeadY(ownSnake), arena.getHeight());
+			}
+			bufferGraphics.setColor(background);
+			bufferGraphics.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+			bufferGraphics.setColor(gridColor);
+			for (int x = 0; x <= viewWidth; x++) {
+				bufferGraphics.drawLine(x * cellSize, 0, x * cellSize, viewHeight * cellSize);
+			}
+			for (int y = 0; y <= viewHeight; y++) {
+				bufferGraphics.drawLine(0, y * cellSize, viewWidth * cellSize, y * cellSize);
+			}
+
+			for (int y = viewY; y < viewY + viewHeight; y++) {
+				for (int x = viewX; x < viewX + viewWidth; x++) {
+					drawCell(x, y, ownSnake);
+				}
+			}
+			if (screen != null) {
+				screen.drawImage(buffer, 0, 0, null);
+			}
+		}
+	}
+
+	/**
+	 * Copies the whole back buffer to the screen (window got repainted by the system).
+	 */
+	public void paint(Graphics screen) {
+		synchronized (buffer) {
+			screen.drawImage(buffer, 0, 0, null);
+		}
+	}
+
+	/**
+	 * @return new start of the view in one dimension (head in the middle), or the old one if the head is far enough inside
+	 */
+	private static int moveView(int start, int size, int head, int gridSize) {
+		int margin = size / 4;
+		if (head >= start + margin && head < start + size - margin) {
+			return start;
+		}
+		return Math.max(0, Math.min(head - size / 2, gridSize - size));
+	}
+
+	/**
+	 * Draws the occupant of the cell, centered and clipped to the cell (the apple is bigger).
+	 */
+	private void drawCell(int x, int y, int ownSnake) {
+		byte occupant = arena.getOccupant(x, y);
+		if (occupant == SnakeEngine.EMPTY) {
+			return;
+		}
+		int px = (x - viewX) * cellSize;
+		int py = (y - viewY) * cellSize;
+		bufferGraphics.setClip(px + 1, py + 1, cellSize - 1, cellSize - 1);
+		if (occupant == SnakeEngine.APPLE) {
+			drawSprite(sprites.getAppleImage(), px, py);
+		}
+		else {
+			int snake = arena.getOwner(x, y);
+			int color = snake == ownSnake ? 0 : 1 + snake % (SpriteAtlas.COLOR_COUNT - 1);
+			if (occupant == SnakeEngine.HEAD) {
+				drawSprite(sprites.getHeadImage(color, arena.getDirection(snake)), px, py);
+			}
+			else {
+				drawSprite(sprites.getBodyImage(color), px, py);
+			}
+		}
+		bufferGraphics.setClip(null);
+	}
+
+	private void drawSprite(BufferedImage image, int px, int py) {
+		bufferGraphics.drawImage(image, px + (cellSize - image.getWidth()) / 2, py + (cellSize - image.getHeight()) / 2, null);
+	}
+}
@@ -0,0 +1,49 @@
+package snakeGame;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays an arena headless with ArenaGreedyBots and prints the speed and a checksum of the end state.
+ * The checksum only depends on the seed, so runs with a different amount of threads must print the same one.
+ */
+public class ArenaRunner {
+
+	/**
+	 * Usage: java snakeGame.ArenaRunner [snakes] [threads] [width] [height] [apples] [ticks] [seed]
+	 */
+	public static void main(String[] args) {
+		int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+		int apples = args.length > 4 ? Integer.parseInt(args[4]) : snakes;
+		long ticks = args.length > 5 ? Long.parseLong(args[5]) : 2000;
+		long seed = args.length > 6 ? Long.parseLong(args[6]) : 285;
+
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		Arena arena = new Arena(width, height, snakes, apples, ArenaGreedyBot.FACTORY, pool, seed);
+		System.out.println(arena.getPartitioning());
+
+		long start = System.nanoTime();
+		for (long tick = 0; tick < ticks; tick++) {
+			arena.step();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (pool != null) {
+			pool.shutdown();
+		}
+
+		int living = 0;
+		long deaths = 0;
+		int longest = 0;
+		for (int snake = 0; snake < snakes; snake++) {
+			living += arena.isAlive(snake) ? 1 : 0;
+			deaths += arena.getDeaths(snake);
+			longest = Math.max(longest, arena.getLength(snake));
+		}
+		System.out.println(String.format("ticks %d | alive %d | deaths %d | apples %d | longest %d | checksum %016x",
+				arena.getTick(), living, deaths, arena.getApplesEaten(), longest, arena.checksum()));
+		System.out.println(String.format("%d threads: %.2f s | %.0f ticks/s | %.0f moves/s",
+				threads, seconds, ticks / seconds, (double) ticks * snakes / seconds));
+	}
+}
@@ -0,0 +1,240 @@
+package snakeGame;
+
+import ch.aplu.jgamegrid.*;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+
+/**
+ * Window of an arena: the keys play one snake, ArenaGreedyBots play all the others.
+ * The ArenaRenderer draws the arena, the GameGrid only provides the window and the keys (no actors).
+ * In a match of a GameServer the keys go to the server and the window shows the copy of the arena of the GameClient.
+ */
+public class ArenaWindow extends GameGrid implements GGKeyListener {
+
+	private static final long serialVersionUID = 1L; // needs to be defined for a serializable class
+
+	public static final int PERIOD = 120; // ms per tick, the arena does not get faster
+	private static final int GRID_SIZE = 18; // 18 Pixel, like the GameWindow
+	private static final int VIEW_MAX_WIDTH = 50; // bigger arenas are shown in a view which follows the own head
+	private static final int VIEW_MAX_HEIGHT = 40;
+	private static final Color GRID_COLOR = Color.gray;
+	private static final int CLIENT_PERIOD = 10; // ms between two checks for ticks of the server
+	private static final int MAX_QUEUED_DIRECTIONS = 5; // amount of stored key-inputs
+
+	private final Arena arena;
+	private final ArenaRenderer renderer;
+	private final ArenaKeyboard keyboard = new ArenaKeyboard(MAX_QUEUED_DIRECTIONS);
+	private final GameClient client; // null = local arena, otherwise the keys go to the server and the arena shows its match
+	private int mySnake; // snake of the keys, -1 = only watches (all snakes of the match are taken)
+	private boolean autopilot; // true = a bot plays the own snake (key B)
+	private TickScheduler scheduler; // runs the arena instead of the GameGrid thread
+	private int shownScore = -1; // title shows the score and the deaths of the own snake
+	private int shownDeaths = -1;
+
+	/**
+	 * Creates a new arena and shows it, the keys play snake 0.
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param snakeCount amount of snakes (the own one and the bots)
+	 * @param appleCount amount of apples
+	 */
+	public ArenaWindow(int width, int height, int snakeCount, int appleCount) {
+		this(new Arena(width, height, snakeCount, appleCount, ArenaGreedyBot.FACTORY, null, System.nanoTime()), null);
+		mySnake = 0;
+		arena.setBot(mySnake, keyboard);
+		render();
+		setTitle("Press ENTER to start...");
+	}
+
+	/**
+	 * Shows the arena match of the server, the keys play the snake the server gave to the connection.
+	 * The match runs on the server, it can not be paused.
+	 * @param client connection to a server which hosts an arena match (getArena() is not null)
+	 */
+	public ArenaWindow(GameClient client) {
+		this(client.getArena(), client);
+		mySnake = client.getOwnSnake();
+		render();
+		setTitle(mySnake >= 0 ? "Your snake: " + mySnake : "All snakes are taken, you are watching");
+		doRun();
+	}
+
+	/**
+	 * Creates the window and the (paused) thread which runs the arena, or which applies the ticks of the server.
+	 */
+	private ArenaWindow(final Arena arena, final GameClient client) {
+		super(Math.min(arena.getWidth(), VIEW_MAX_WIDTH), Math.min(arena.getHeight(), VIEW_MAX_HEIGHT), GRID_SIZE, GRID_COLOR, false); // false = do not show toolbar
+		this.arena = arena;
+		this.client = client;
+		renderer = new ArenaRenderer(arena, GRID_SIZE, getBgColor(), GRID_COLOR, getNbHorzCells(), getNbVertCells());
+		setRefreshEnable(false); // the renderer draws
+
+		addKeyListener(this);
+		scheduler = new TickScheduler(new TickScheduler.Task() {
+			public void tick() {
+				if (client == null) {
+					arena.step();
+					render();
+				}
+				else if (client.applyArena()) {
+					render();
+				}
+			}
+
+			public int getPeriod() {
+				return client == null ? PERIOD : CLIENT_PERIOD;
+			}
+		});
+		show();
+	}
+
+	/**
+	 * Draws the arena directly into the window and shows the score of the own snake in the title, if it changed.
+	 */
+	private void render() {
+		Graphics screen = getGraphics(); // null = not shown yet, only the back buffer gets drawn
+		renderer.render(screen, mySnake);
+		if (screen != null) {
+			screen.dispose();
+			Toolkit.getDefaultToolkit().sync();
+		}
+
+		if (mySnake < 0) {
+			return;
+		}
+		int score = arena.getScore(mySnake);
+		int deaths = arena.getDeaths(mySnake);
+		if (!isPaused() && (score != shownScore || deaths != shownDeaths)) {
+			shownScore = score;
+			shownDeaths = deaths;
+			setTitle("Score: " + score + " | Deaths: " + deaths + " | " + arena.getSnakeCount() + " snakes");
+		}
+	}
+
+	/**
+	 * Arrows play the own snake, ENTER starts and pauses, R starts a new arena, B lets a bot play the own snake.
+	 * In a match of a server only the arrows work, they go to the server.
+	 * @param evt KeyEvent
+	 * @return keyEvent has been handled
+	 */
+	public boolean keyPressed(KeyEvent evt) {
+		int direction = toDirection(evt.getKeyCode());
+		if (direction != SnakeEngine.NO_DIRECTION) {
+			if (client != null) {
+				client.send(direction); // the server queues and collapses the inputs
+			}
+			else {
+				keyboard.offer(direction); // the queue drops the input if MAX_QUEUED_DIRECTIONS are stored already
+			}
+			return true;
+		}
+		if (client != null) {
+			return true; // the match of the server can not be paused
+		}
+
+		switch (evt.getKeyCode()) {
+		case KeyEvent.VK_ENTER: // start / toggle Pause
+		case KeyEvent.VK_P:
+		case KeyEvent.VK_SPACE:
+			if (isPaused()) {
+				shownScore = -1; // title shows the score again
+				doRun();
+			}
+			else {
+				doPause();
+				setTitle("P A U S E D");
+			}
+			break;
+
+		case KeyEvent.VK_R: // new arena
+			doPause();
+			arena.reset(System.nanoTime());
+			render();
+			setTitle("Press ENTER to start...");
+			break;
+		case KeyEvent.VK_B: // toggle the bot of the own snake
+			doPause(); // setBot() not during a step
+			autopilot = !autopilot;
+			arena.setBot(mySnake, autopilot ? null : keyboard);
+			setTitle((autopilot ? "Autopilot on" : "Autopilot off") + " (ENTER goes on)");
+			break;
+
+		default:
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * @return direction of an arrow key, NO_DIRECTION for other keys
+	 */
+	private static int toDirection(int keyCode) {
+		switch (keyCode) {
+		case KeyEvent.VK_UP:
+			return SnakeEngine.NORTH;
+		case KeyEvent.VK_RIGHT:
+			return SnakeEngine.EAST;
+		case KeyEvent.VK_DOWN:
+			return SnakeEngine.SOUTH;
+		case KeyEvent.VK_LEFT:
+			return SnakeEngine.WEST;
+		default:
+			return SnakeEngine.NO_DIRECTION;
+		}
+	}
+
+	/**
+	 * Draws the back buffer of the renderer when the system repaints the window.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		if (renderer != null) { // GameGrid paints before our constructor
+			renderer.paint(g);
+		}
+	}
+
+	@Override
+	public void update(Graphics g) {
+		paint(g); // do not clear the window first
+	}
+
+	/**
+	 * Starts the arena. Our TickScheduler runs it, the GameGrid thread is not used.
+	 */
+	@Override
+	public void doRun() {
+		if (scheduler != null) {
+			scheduler.resume();
+		}
+	}
+
+	/**
+	 * Pauses the arena and waits for a running tick, so the arena can be changed afterwards on this thread.
+	 */
+	@Override
+	public void doPause() {
+		if (scheduler != null) { // GameGrid calls it before our constructor
+			scheduler.pause();
+		}
+		super.doPause();
+	}
+
+	@Override
+	public boolean isPaused() {
+		return scheduler == null || scheduler.isPaused();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return !isPaused();
+	}
+
+	@Override
+	public boolean keyReleased(KeyEvent evt) {
+		// not used
+		return true;
+	}
+}
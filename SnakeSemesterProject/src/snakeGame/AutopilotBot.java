@@ -0,0 +1,400 @@
+package snakeGame;
+
+/**
+ * Autopilot: plays the game until it is won, without allocations during the game.
+ *
+ * If the grid has a cycle (CycleDriver) and the body lies in the order of the cycle
+ * (tail first, then forward to the head), the snake only moves forward on the cycle and never beyond its tail,
+ * so the cycle behind the head always leads back to the tail. Within this window a breadth-first search finds the
+ * shortest way to the nearest apple (shortcuts across the cycle). The window keeps free cells for the growth,
+ * and there are no shortcuts at all on dense boards: then the snake follows the cycle and fills the grid.
+ *
+ * Otherwise (no cycle, or the body is not in order yet, e.g. after a reset or key inputs) the snake takes
+ * the direction of the cycle or the shortest way to the nearest apple, if its tail stays reachable afterwards.
+ * If both are not safe, it takes the safe direction with the longest way to the tail.
+ * After getLength() steps along the cycle, the body lies in order.
+ */
+public class AutopilotBot implements SnakeBot {
+
+	public static final Factory FACTORY = new Factory() {
+		public SnakeBot create(long seed) {
+			return new AutopilotBot();
+		}
+	};
+
+	private static final double SHORTCUT_MAX_FILL = 0.5; // no shortcuts if the snake covers more of the grid
+	private static final int SHORTCUT_MARGIN = 4; // cells kept free in front of the tail for the growth after a shortcut
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private int width;
+	private int height;
+	private CycleDriver cycle; // null = the grid has no cycle
+	private int[] queue = new int[0]; // cells of the breadth-first search
+	private int[] visited = new int[0]; // search stamp of the last visit
+	private int[] distance = new int[0]; // steps from the start of the search (forward steps on the cycle for an ordered snake)
+	private byte[] firstStep = new byte[0]; // direction of the first step of the way to the cell
+	private int[] parent = new int[0]; // previous cell of the way to the cell
+	private int stamp;
+	private byte[] path = new byte[0]; // directions of the way to the apple (ordered snake)
+	private int pathLength;
+	private int pathStep; // next direction of the way
+	private int pathHead; // cell of the head before the next direction, otherwise the way is not valid anymore
+	private int pathApple; // cell of the apple at the end of the way
+	private int tailDistance; // steps from the new head to the tail, found by the last isSafe()
+
+	private boolean ordered; // body lies in the order of the cycle
+	private long lastTick = -1;
+
+	@Override
+	public int nextDirection(SnakeEngine engine) {
+		prepare(engine);
+		if (engine.getTick() != lastTick + 1) {
+			ordered = false; // reset or someone else played: check the order again
+			pathLength = 0;
+		}
+		lastTick = engine.getTick();
+
+		int head = engine.toCell(engine.getHeadX(), engine.getHeadY());
+		if (cycle != null) {
+			if (!ordered) {
+				ordered = isOrdered(engine, head);
+			}
+			if (ordered) {
+				return cycleMove(engine, head);
+			}
+		}
+		return searchMove(engine, head);
+	}
+
+	@Override
+	public void reset(long seed) {
+		ordered = false;
+		pathLength = 0;
+		lastTick = -1;
+	}
+
+	/**
+	 * Creates the cycle and the arrays of the search for the grid size of the engine (only once per size).
+	 */
+	private void prepare(SnakeEngine engine) {
+		if (engine.getWidth() == width && engine.getHeight() == height) {
+			return;
+		}
+		width = engine.getWidth();
+		height = engine.getHeight();
+		int cells = width * height;
+		cycle = CycleDriver.exists(width, height) ? new CycleDriver(width, height) : null;
+		queue = new int[cells];
+		visited = new int[cells];
+		distance = new int[cells];
+		firstStep = new byte[cells];
+		parent = new int[cells];
+		path = new byte[cells];
+		pathLength = 0;
+		stamp = 0;
+		ordered = false;
+	}
+
+	/**
+	 * @return true, if the positions on the cycle grow from the tail to the head (forward, across the end of the cycle)
+	 */
+	private boolean isOrdered(SnakeEngine engine, int head) {
+		int cells = cycle.getLength();
+		int tailIndex = cycle.index(tailCell(engine));
+		int previous = 0;
+		for (int i = engine.getLength() - 2; i >= -1; i--) {
+			int cell = i >= 0 ? engine.getBodyCellAt(engine.getBodySlot(i)) : head;
+			int forward = (cycle.index(cell) - tailIndex + cells) % cells;
+			if (forward <= previous) {
+				return false;
+			}
+			previous = forward;
+		}
+		return true;
+	}
+
+	/**
+	 * Next step of an ordered snake: the next step of the shortest forward way to an apple inside the window
+	 * in front of the head, or the biggest step forward if there is no apple in the window.
+	 * The way stays valid until its apple is eaten (apples only move when they get eaten), so it gets searched only once.
+	 */
+	private int cycleMove(SnakeEngine engine, int head) {
+		if (pathStep < pathLength && head == pathHead && engine.getOccupant(engine.cellX(pathApple), engine.cellY(pathApple)) == SnakeEngine.APPLE) {
+			return followPath(engine);
+		}
+		pathLength = 0;
+
+		int cells = cycle.getLength();
+		int headIndex = cycle.index(head);
+		int growth = engine.getExpandSnakeLength();
+		int toTail = forward(tailCell(engine), headIndex, cells);
+		int reserve = growth + SnakeEngine.SNAKE_EXPAND_PER_APPLE * engine.getAppleCount(); // every apple could be eaten before the tail moves on
+		int limit = 1; // max. forward distance of a cell on the way
+		if (engine.getLength() + 1 + reserve < cells * SHORTCUT_MAX_FILL) {
+			limit = toTail - reserve - SHORTCUT_MARGIN;
+		}
+		if (limit <= 1) {
+			return nextPosition(engine, headIndex, cells);
+		}
+
+		// the way only goes forward: cells beyond the last apple in the window are not needed
+		int lastApple = 0;
+		for (int apple = 0; apple < engine.getAppleCount(); apple++) {
+			if (engine.getAppleCell(apple) >= 0) {
+				int forward = forward(engine.getAppleCell(apple), headIndex, cells);
+				if (forward <= limit && forward > lastApple) {
+					lastApple = forward;
+				}
+			}
+		}
+
+		stamp++;
+		visited[head] = stamp;
+		distance[head] = 0; // forward distance of the visited cells
+		queue[0] = head;
+		int read = 0;
+		int write = 1;
+		while (read < write) {
+			int cell = queue[read++];
+			int x = cell % width;
+			int y = cell / width;
+			for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+				int nextX = x + DX[direction];
+				int nextY = y + DY[direction];
+				if (nextX < 0 || nextX >= width || nextY < 0 || nextY >= height) {
+					continue;
+				}
+				int next = nextY * width + nextX;
+				int nextForward = forward(next, headIndex, cells);
+				if (nextForward <= distance[cell] || nextForward > lastApple || visited[next] == stamp) {
+					continue; // only forward, never beyond the window
+				}
+				byte occupant = engine.getOccupant(nextX, nextY);
+				if (occupant == SnakeEngine.BODY || occupant == SnakeEngine.HEAD) {
+					continue;
+				}
+				visited[next] = stamp;
+				distance[next] = nextForward;
+				parent[next] = cell;
+				if (occupant == SnakeEngine.APPLE) {
+					storePath(engine, head, next);
+					return followPath(engine);
+				}
+				queue[write++] = next;
+			}
+		}
+
+		// no apple in the window: jump as far as possible
+		int headX = engine.getHeadX();
+		int headY = engine.getHeadY();
+		int best = cycle.direction(headX, headY);
+		int bestForward = 1;
+		for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			byte occupant = engine.getOccupant(headX + DX[direction], headY + DY[direction]);
+			if (occupant != SnakeEngine.EMPTY) {
+				continue;
+			}
+			int forward = forward(engine.toCell(headX + DX[direction], headY + DY[direction]), headIndex, cells);
+			if (forward > bestForward && forward <= limit) {
+				best = direction;
+				bestForward = forward;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return steps on the cycle from the head position to the cell
+	 */
+	private int forward(int cell, int headIndex, int cells) {
+		int forward = cycle.index(cell) - headIndex;
+		return forward < 0 ? forward + cells : forward;
+	}
+
+	/**
+	 * Stores the way from the head to the apple (parent of every cell, found by the search).
+	 */
+	private void storePath(SnakeEngine engine, int head, int apple) {
+		pathLength = 0;
+		for (int cell = apple; cell != head; cell = parent[cell]) {
+			pathLength++;
+		}
+		int step = pathLength;
+		for (int cell = apple; cell != head; cell = parent[cell]) {
+			int from = parent[cell];
+			int dx = engine.cellX(cell) - engine.cellX(from);
+			int dy = engine.cellY(cell) - engine.cellY(from);
+			path[--step] = (byte) (dx > 0 ? SnakeEngine.EAST : dx < 0 ? SnakeEngine.WEST : dy > 0 ? SnakeEngine.SOUTH : SnakeEngine.NORTH);
+		}
+		pathStep = 0;
+		pathHead = head;
+		pathApple = apple;
+	}
+
+	private int followPath(SnakeEngine engine) {
+		int direction = path[pathStep++];
+		pathHead = engine.toCell(engine.getHeadX() + DX[direction], engine.getHeadY() + DY[direction]);
+		return direction;
+	}
+
+	/**
+	 * @return direction of the cycle, or of the detour (see CycleDriver) to the same position if there is an apple
+	 */
+	private int nextPosition(SnakeEngine engine, int headIndex, int cells) {
+		int headX = engine.getHeadX();
+		int headY = engine.getHeadY();
+		for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			int x = headX + DX[direction];
+			int y = headY + DY[direction];
+			if (engine.getOccupant(x, y) == SnakeEngine.APPLE && forward(engine.toCell(x, y), headIndex, cells) == 1) {
+				return direction;
+			}
+		}
+		return cycle.direction(headX, headY);
+	}
+
+	/**
+	 * Next step of a snake which does not lie in the order of the cycle. Every step keeps the tail reachable, if possible.
+	 */
+	private int searchMove(SnakeEngine engine, int head) {
+		int growth = engine.getExpandSnakeLength();
+		int headX = engine.getHeadX();
+		int headY = engine.getHeadY();
+
+		// along the cycle, until the body lies in order
+		if (cycle != null && isSafe(engine, head, cycle.direction(headX, headY), growth)) {
+			return cycle.direction(headX, headY);
+		}
+
+		// shortest way to the nearest apple
+		int direction = searchApple(engine, head, growth);
+		if (direction >= 0 && isSafe(engine, head, direction, growth)) {
+			return direction;
+		}
+
+		// follow the tail on the longest way
+		int best = SnakeEngine.NO_DIRECTION;
+		int bestDistance = -1;
+		for (direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			if (isSafe(engine, head, direction, growth) && tailDistance > bestDistance) {
+				best = direction;
+				bestDistance = tailDistance;
+			}
+		}
+		if (best >= 0) {
+			return best;
+		}
+
+		// no safe direction: any free cell
+		for (direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			if (isFree(engine, headX + DX[direction], headY + DY[direction], growth)) {
+				return direction;
+			}
+		}
+		return SnakeEngine.NO_DIRECTION;
+	}
+
+	/**
+	 * @return first direction of the shortest way to the nearest apple, NO_DIRECTION if no apple is reachable
+	 */
+	private int searchApple(SnakeEngine engine, int head, int growth) {
+		stamp++;
+		visited[head] = stamp;
+		queue[0] = head;
+		int read = 0;
+		int write = 1;
+		while (read < write) {
+			int cell = queue[read++];
+			int x = engine.cellX(cell);
+			int y = engine.cellY(cell);
+			for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+				int nextX = x + DX[direction];
+				int nextY = y + DY[direction];
+				if (!isFree(engine, nextX, nextY, growth)) {
+					continue;
+				}
+				int next = engine.toCell(nextX, nextY);
+				if (visited[next] == stamp) {
+					continue;
+				}
+				visited[next] = stamp;
+				firstStep[next] = (byte) (cell == head ? direction : firstStep[cell]);
+				if (engine.getOccupant(nextX, nextY) == SnakeEngine.APPLE) {
+					return firstStep[next];
+				}
+				queue[write++] = next;
+			}
+		}
+		return SnakeEngine.NO_DIRECTION;
+	}
+
+	/**
+	 * Checks if the tail is reachable after the step: searches from the new head to the new tail,
+	 * the old head is a body square then and the old tail is free (if the snake does not grow).
+	 * Sets tailDistance to the length of the way.
+	 * @return true, if the tail is reachable
+	 */
+	private boolean isSafe(SnakeEngine engine, int head, int direction, int growth) {
+		int startX = engine.getHeadX() + DX[direction];
+		int startY = engine.getHeadY() + DY[direction];
+		if (direction == SnakeEngine.opposite(engine.getDirection()) || !isFree(engine, startX, startY, growth)) {
+			return false;
+		}
+		int start = engine.toCell(startX, startY);
+		int oldTail = tailCell(engine);
+		int newTail = growth > 0 || engine.getLength() < 2 ? oldTail : engine.getBodyCellAt(engine.getBodySlot(engine.getLength() - 2));
+
+		stamp++;
+		visited[start] = stamp;
+		visited[head] = stamp; // the neck after the step
+		distance[start] = 0;
+		queue[0] = start;
+		int read = 0;
+		int write = 1;
+		while (read < write) {
+			int cell = queue[read++];
+			if (cell == newTail) {
+				tailDistance = distance[cell];
+				return true;
+			}
+			int x = engine.cellX(cell);
+			int y = engine.cellY(cell);
+			for (int next = SnakeEngine.NORTH; next <= SnakeEngine.WEST; next++) {
+				int nextX = x + DX[next];
+				int nextY = y + DY[next];
+				byte occupant = engine.getOccupant(nextX, nextY);
+				if (occupant == SnakeEngine.WALL) {
+					continue;
+				}
+				int nextCell = engine.toCell(nextX, nextY);
+				if (visited[nextCell] == stamp) {
+					continue;
+				}
+				if (occupant == SnakeEngine.BODY && nextCell != newTail && (nextCell != oldTail || growth > 0)) {
+					continue;
+				}
+				visited[nextCell] = stamp;
+				distance[nextCell] = distance[cell] + 1;
+				queue[write++] = nextCell;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true, if the head can move onto the cell (the tail moves away before, if the snake does not grow)
+	 */
+	private static boolean isFree(SnakeEngine engine, int x, int y, int growth) {
+		byte occupant = engine.getOccupant(x, y);
+		if (occupant == SnakeEngine.EMPTY || occupant == SnakeEngine.APPLE) {
+			return true;
+		}
+		return occupant == SnakeEngine.BODY && growth == 0 && engine.toCell(x, y) == tailCell(engine);
+	}
+
+	private static int tailCell(SnakeEngine engine) {
+		return engine.getBodyCellAt(engine.getBodySlot(engine.getLength() - 1));
+	}
+}
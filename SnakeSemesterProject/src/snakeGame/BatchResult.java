@@ -0,0 +1,78 @@
+package snakeGame;
+
+/**
+ * Summary of many finished games (see BatchRunner).
+ */
+public class BatchResult {
+
+	private final Distribution score = new Distribution(10);	// SCORE_PER_APPLE
+	private final Distribution apples = new Distribution(1);
+	private final Distribution length = new Distribution(1);
+	private long gamesWon;
+	private long gamesTimedOut;	// stopped after maxTicks
+	private long ticks;
+
+	/**
+	 * Adds the result of the finished (or stopped) game.
+	 */
+	public void add(SnakeEngine engine) {
+		score.add(engine.getScore());
+		apples.add(engine.getAppleEaten());
+		length.add(engine.getLength());
+		ticks += engine.getTick();
+		if (engine.isGameWon()) {
+			gamesWon++;
+		}
+		else if (!engine.isGameFinish()) {
+			gamesTimedOut++;
+		}
+	}
+
+	/**
+	 * Adds all games of the other result.
+	 */
+	public void merge(BatchResult other) {
+		score.merge(other.score);
+		apples.merge(other.apples);
+		length.merge(other.length);
+		gamesWon += other.gamesWon;
+		gamesTimedOut += other.gamesTimedOut;
+		ticks += other.ticks;
+	}
+
+	public long getGames() {
+		return score.getCount();
+	}
+
+	public long getGamesWon() {
+		return gamesWon;
+	}
+
+	public long getGamesTimedOut() {
+		return gamesTimedOut;
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	public Distribution getScore() {
+		return score;
+	}
+
+	public Distribution getApples() {
+		return apples;
+	}
+
+	public Distribution getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return "Games:  " + getGames() + " (won: " + gamesWon + ", stopped: " + gamesTimedOut + ", ticks: " + ticks + ")\n"
+				+ "Score:  " + score + "\n"
+				+ "Apples: " + apples + "\n"
+				+ "Length: " + length;
+	}
+}
@@ -0,0 +1,156 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays many independent headless games in parallel (fork-join pool) and collects score, apples and length.
+ *
+ * Every game gets its own seed, calculated from the batch seed and the number of the game. So the result
+ * of a batch only depends on the batch seed, not on the amount of threads or the order of the games.
+ * Every task collects its games in its own BatchResult, the results get merged when the tasks are joined.
+ */
+public class BatchRunner {
+
+	private static final int GAMES_PER_TASK_MIN = 16; // smaller ranges are not split anymore
+
+	private final int width;
+	private final int height;
+	private final int appleCount;
+	private final long maxTicks;
+	private final SnakeBot.Factory botFactory;
+	private HighScoreLog highScores; // gets the result of every game, null = no high scores
+
+	/**
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples on the grid
+	 * @param maxTicks a game gets stopped after this amount of steps
+	 * @param botFactory creates the player of every game
+	 */
+	public BatchRunner(int width, int height, int appleCount, long maxTicks, SnakeBot.Factory botFactory) {
+		this.width = width;
+		this.height = height;
+		this.appleCount = appleCount;
+		this.maxTicks = maxTicks;
+		this.botFactory = botFactory;
+	}
+
+	/**
+	 * @param highScores log which gets the result of every game, null = none
+	 */
+	public void setHighScores(HighScoreLog highScores) {
+		this.highScores = highScores;
+	}
+
+	/**
+	 * Plays the games on the pool.
+	 * @param games amount of games
+	 * @param seed seed of the batch
+	 * @param pool runs the games
+	 */
+	public BatchResult run(long games, long seed, ForkJoinPool pool) {
+		long splitSize = Math.max(GAMES_PER_TASK_MIN, games / (pool.getParallelism() * 8L));
+		return pool.invoke(new GamesTask(0, games, seed, splitSize));
+	}
+
+	/**
+	 * @return seed of the game with the number (SplitMix64, so neighbouring games are not related)
+	 */
+	public static long gameSeed(long batchSeed, long game) {
+		long z = batchSeed + (game + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Plays the games [from, to), splits the range as long as it is big enough.
+	 */
+	private class GamesTask extends RecursiveTask<BatchResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long from;
+		private final long to;
+		private final long seed;
+		private final long splitSize;
+
+		GamesTask(long from, long to, long seed, long splitSize) {
+			this.from = from;
+			this.to = to;
+			this.seed = seed;
+			this.splitSize = splitSize;
+		}
+
+		@Override
+		protected BatchResult compute() {
+			if (to - from > splitSize) {
+				long middle = (from + to) >>> 1;
+				GamesTask left = new GamesTask(from, middle, seed, splitSize);
+				left.fork();
+				BatchResult result = new GamesTask(middle, to, seed, splitSize).compute();
+				result.merge(left.join());
+				return result;
+			}
+
+			// one engine and one bot for all games of this range
+			BatchResult result = new BatchResult();
+			SnakeEngine engine = new SnakeEngine(width, height, appleCount);
+			SnakeBot bot = null;
+			for (long game = from; game < to; game++) {
+				long gameSeed = gameSeed(seed, game);
+				engine.reset(gameSeed);
+				if (bot == null) {
+					bot = botFactory.create(~gameSeed);
+				}
+				else {
+					bot.reset(~gameSeed);
+				}
+
+				while (!engine.isGameFinish() && engine.getTick() < maxTicks) {
+					engine.step(bot.nextDirection(engine));
+				}
+				result.add(engine);
+				if (highScores != null) {
+					highScores.record(engine);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Usage: java snakeGame.BatchRunner [games] [threads] [width] [height] [apples] [seed] [greedy | autopilot] [high score log]
+	 */
+	public static void main(String[] args) throws IOException {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 25;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : 25;
+		int apples = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 285;
+		SnakeBot.Factory bot = args.length > 6 && args[6].equals("autopilot") ? AutopilotBot.FACTORY : GreedyBot.FACTORY;
+
+		BatchRunner runner = new BatchRunner(width, height, apples, 100L * width * height, bot);
+		HighScoreLog highScores = args.length > 7 ? new HighScoreLog(Paths.get(args[7])) : null;
+		runner.setHighScores(highScores);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+		BatchResult result = runner.run(games, seed, pool);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+
+		System.out.println(result);
+		System.out.println(String.format("%d threads: %.2f s | %.0f games/s | %.0f ticks/s",
+				threads, seconds, result.getGames() / seconds, result.getTicks() / seconds));
+
+		if (highScores != null) {
+			highScores.close(); // writes the queued games
+			System.out.println(args[7] + ": " + highScores.getCount() + " games");
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package snakeGame;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the engine into a back buffer, but only the cells the last step changed (SnakeEngine.getDirtyCell()),
+ * and copies only these cells to the screen. A step changes about 3 cells, so drawing costs the same
+ * on every grid size and for every snake length.
+ *
+ * If the grid is bigger than the view, the view is a camera which follows the head: only the cells inside the view
+ * get drawn. It jumps (draws the whole view) when the head gets near its border.
+ *
+ * render() runs on the simulation thread (after the step), paint() on the AWT thread: both lock the back buffer.
+ * The sprites come from the SpriteAtlas, a new renderer (view switch, bigger window) decodes no images.
+ */
+public class CellRenderer {
+
+	private final SnakeEngine engine;
+	private final int cellSize;
+	private final Color background;
+	private final Color gridColor;
+	private final int viewWidth;	// cells
+	private final int viewHeight;
+	private int viewX;				// cell in the top left corner of the view
+	private int viewY;
+
+	private final BufferedImage buffer;
+	private final Graphics2D bufferGraphics;
+	private final SpriteAtlas sprites;				// shared images of all renderers
+
+	private long renderedTick = -1;
+	private int renderedColor = -1;
+	private volatile boolean invalid = true; // draw all cells with the next render()
+
+	/**
+	 * Takes the sprites of the atlas (same images as the actors) and creates the back buffer.
+	 * @param engine game to draw
+	 * @param cellSize pixel per cell
+	 * @param colorCount amount of snake colors
+	 * @param background color of empty cells
+	 * @param gridColor color of the lines between the cells
+	 */
+	public CellRenderer(SnakeEngine engine, int cellSize, int colorCount, Color background, Color gridColor) {
+		this(engine, cellSize, colorCount, background, gridColor, engine.getWidth(), engine.getHeight());
+	}
+
+	/**
+	 * Takes the sprites of the atlas (same images as the actors) and creates the back buffer for the view.
+	 * @param engine game to draw
+	 * @param cellSize pixel per cell
+	 * @param colorCount amount of snake colors
+	 * @param background color of empty cells
+	 * @param gridColor color of the lines between the cells
+	 * @param viewWidth visible cells (horizontal), the view follows the head if it is smaller than the grid
+	 * @param viewHeight visible cells (vertical)
+	 */
+	public CellRenderer(SnakeEngine engine, int cellSize, int colorCount, Color background, Color gridColor,
+			int viewWidth, int viewHeight) {
+		this.engine = engine;
+		this.cellSize = cellSize;
+		this.background = background;
+		this.gridColor = gridColor;
+		this.viewWidth = Math.min(viewWidth, engine.getWidth());
+		this.viewHeight = Math.min(viewHeight, engine.getHeight());
+
+		buffer = new BufferedImage(this.viewWidth * cellSize + 1, this.viewHeight * cellSize + 1, BufferedImage.TYPE_INT_RGB);
+		bufferGraphics = buffer.createGraphics();
+
+		if (colorCount > SpriteAtlas.COLOR_COUNT) {
+			throw new IllegalArgumentException("colorCount: " + colorCount + " (max. " + SpriteAtlas.COLOR_COUNT + ")");
+		}
+		sprites = SpriteAtlas.get();
+	}
+
+	/**
+	 * Draws all cells with the next render() (new game, other view, window was hidden...).
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Draws the changed cells into the back buffer and copies them to the screen.
+	 * Call it after every step of the engine, on the thread of the engine.
+	 * @param screen graphics of the window (null = only draw the back buffer)
+	 * @param color current color of the snake
+	 */
+	public void render(Graphics screen, int color) {
+		synchronized (buffer) {
+			long tick = engine.getTick();
+			boolean newColor = color != renderedColor;
+			if (!invalid && !newColor && tick == renderedTick) {
+				return; // no step since the last render (game finished)
+			}
+			renderedColor = color;
+			boolean moved = followHead();
+
+			if (invalid || moved || newColor || engine.isDirtyAll() || tick != renderedTick + 1) {
+				// more than one step (or a reset) since the last render --> draw everything
+				invalid = false;
+				drawAll();
+				if (screen != null) {
+					screen.drawImage(buffer, 0, 0, null);
+				}
+			}
+			else {
+				for (int i = 0; i < engine.getDirtyCount(); i++) {
+					int cell = engine.getDirtyCell(i);
+					if (drawCell(cell) && screen != null) {
+						int x = (engine.cellX(cell) - viewX) * cellSize;
+						int y = (engine.cellY(cell) - viewY) * cellSize;
+						screen.drawImage(buffer, x, y, x + cellSize, y + cellSize, x, y, x + cellSize, y + cellSize, null);
+					}
+				}
+			}
+			renderedTick = tick;
+		}
+	}
+
+	/**
+	 * Copies the whole back buffer to the screen (window got repainted by the system).
+	 */
+	public void paint(Graphics screen) {
+		synchronized (buffer) {
+			screen.drawImage(buffer, 0, 0, null);
+		}
+	}
+
+	/**
+	 * Moves the view, if the head is less than a quarter of the view away from its border (not beyond the grid).
+	 * @return true, if the view moved
+	 */
+	private boolean followHead() {
+		int x = moveView(viewX, viewWidth, engine.getHeadX(), engine.getWidth());
+		int y = moveView(viewY, viewHeight, engine.getHeadY(), engine.getHeight());
+		if (x == viewX && y == viewY) {
+			return false;
+		}
+		viewX = x;
+		viewY = y;
+		return true;
+	}
+
+	/**
+	 * @return new start of the view in one dimension (head in the middle), or the old one if the head is far enough inside
+	 */
+	private static int moveView(int start, int size, int head, int gridSize) {
+		int margin = size / 4;
+		if (head >= start + margin && head < start + size - margin) {
+			return start;
+		}
+		return Math.max(0, Math.min(head - size / 2, gridSize - size));
+	}
+
+	public int getViewX() {
+		return viewX;
+	}
+
+	public int getViewY() {
+		return viewY;
+	}
+
+	private void drawAll() {
+		for (int y = viewY; y < viewY + viewHeight; y++) {
+			for (int x = viewX; x < viewX + viewWidth; x++) {
+				drawCell(engine.toCell(x, y));
+			}
+		}
+		// right and bottom border (no cell owns them)
+		int right = viewWidth * cellSize;
+		int bottom = viewHeight * cellSize;
+		bufferGraphics.setClip(null);
+		bufferGraphics.setColor(gridColor);
+		bufferGraphics.drawLine(right, 0, right, bottom);
+		bufferGraphics.drawLine(0, bottom, right, bottom);
+	}
+
+	/**
+	 * Draws background, the grid lines at the top and on the left side (a cell covers only these)
+	 * and the occupant of the cell, centered like the actors but clipped to the cell (the apple is bigger).
+	 * @return false, if the cell is outside of the view
+	 */
+	private boolean drawCell(int cell) {
+		int x = engine.cellX(cell);
+		int y = engine.cellY(cell);
+		if (x < viewX || x >= viewX + viewWidth || y < viewY || y >= viewY + viewHeight) {
+			return false;
+		}
+		int px = (x - viewX) * cellSize;
+		int py = (y - viewY) * cellSize;
+
+		bufferGraphics.setClip(px, py, cellSize, cellSize);
+		bufferGraphics.setColor(background);
+		bufferGraphics.fillRect(px, py, cellSize, cellSize);
+		bufferGraphics.setColor(gridColor);
+		bufferGraphics.drawLine(px, py, px + cellSize - 1, py);
+		bufferGraphics.drawLine(px, py, px, py + cellSize - 1);
+
+		switch (engine.getOccupant(x, y)) {
+		case SnakeEngine.BODY:
+			drawSprite(sprites.getBodyImage(renderedColor), px, py);
+			break;
+		case SnakeEngine.HEAD:
+			drawSprite(sprites.getHeadImage(renderedColor, engine.getDirection()), px, py);
+			break;
+		case SnakeEngine.APPLE:
+			drawSprite(sprites.getAppleImage(), px, py);
+			break;
+		default:
+			break;
+		}
+		return true;
+	}
+
+	private void drawSprite(BufferedImage image, int px, int py) {
+		bufferGraphics.drawImage(image, px + (cellSize - image.getWidth()) / 2, py + (cellSize - image.getHeight()) / 2, null);
+	}
+}
@@ -0,0 +1,281 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Plays many simulated clients against a GameServer (load test of the server and the protocol).
+ *
+ * All clients share one thread and one Selector. Every client keeps its game in an own engine with the frames
+ * of the server (like the window does) and lets a GreedyBot choose the next direction from this state.
+ * A finished game gets started again. In an arena match every client keeps a copy of the arena
+ * (like the GameClient) and an ArenaGreedyBot plays its snake.
+ */
+public class ClientSimulator {
+
+	private final Selector selector;
+	private final Client[] clients;
+
+	// statistics
+	private long frames;
+	private long snapshots;
+	private long receivedBytes;
+	private long games;
+	private long apples;
+
+	/**
+	 * A connection and the game as the server sent it.
+	 */
+	private class Client {
+		final SocketChannel channel;
+		ByteBuffer in = ByteBuffer.allocate(4096); // write mode
+		SnakeEngine engine; // null = no snapshot yet (or arena match)
+		int[] cells;
+		int[] appleCells;
+		final SnakeBot bot;
+		Arena arena; // copy of the arena match, null = own game
+		int[] moves;
+		int ownSnake = -1;
+		final ArenaBot arenaBot;
+		int shownScore; // score and deaths of the own snake at the last frame
+		int shownDeaths;
+		final ByteBuffer command = ByteBuffer.allocate(1);
+		boolean started; // the first game got started
+		boolean waiting; // for the snapshot of the new game
+
+		Client(SocketChannel channel, long seed) {
+			this.channel = channel;
+			this.bot = GreedyBot.FACTORY.create(seed);
+			this.arenaBot = ArenaGreedyBot.FACTORY.create(seed);
+		}
+	}
+
+	/**
+	 * Connects all clients, each waits for its first snapshot.
+	 * @param count amount of clients
+	 */
+	public ClientSimulator(String host, int port, int count) throws IOException {
+		selector = Selector.open();
+		clients = new Client[count];
+		for (int i = 0; i < count; i++) {
+			SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+			channel.socket().setTcpNoDelay(true);
+			channel.configureBlocking(false);
+			clients[i] = new Client(channel, BatchRunner.gameSeed(port, i));
+			channel.register(selector, SelectionKey.OP_READ, clients[i]);
+		}
+	}
+
+	/**
+	 * Plays until the time is over.
+	 * @param millis duration
+	 */
+	public void run(long millis) throws IOException {
+		long end = System.currentTimeMillis() + millis;
+		long left;
+		while ((left = end - System.currentTimeMillis()) > 0) {
+			selector.select(left);
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (key.isValid() && key.isReadable()) {
+					read((Client) key.attachment(), key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies all complete frames, then lets the bot play.
+	 */
+	private void read(Client client, SelectionKey key) throws IOException {
+		int read = client.channel.read(client.in);
+		if (read < 0) {
+			key.cancel();
+			return;
+		}
+		receivedBytes += read;
+		ByteBuffer in = client.in;
+		in.flip();
+		boolean applied = false;
+		while (true) {
+			int start = in.position();
+			int length = NetProtocol.getFrameLength(in);
+			if (length < 0 || in.remaining() < length) {
+				in.position(start);
+				break;
+			}
+			int limit = in.limit();
+			in.limit(in.position() + length);
+			apply(client, in);
+			in.position(in.limit()).limit(limit);
+			applied = true;
+		}
+		in.compact();
+		if (!in.hasRemaining()) {
+			in.flip();
+			client.in = ByteBuffer.allocate(in.capacity() * 2).put(in); // a snapshot of a big grid
+		}
+
+		if (applied) {
+			play(client);
+		}
+	}
+
+	/**
+	 * Applies one frame (position to limit of the buffer).
+	 */
+	private void apply(Client client, ByteBuffer frame) {
+		frames++;
+		if (client.arena == null && client.engine == null && NetProtocol.isArenaSnapshot(frame)) {
+			int snakeCount = NetProtocol.getArenaSnakeCount(frame);
+			client.moves = new int[snakeCount];
+			client.arena = new Arena(NetProtocol.getSnapshotWidth(frame), NetProtocol.getSnapshotHeight(frame), snakeCount,
+					NetProtocol.getSnapshotAppleCount(frame), NetProtocol.moveBots(client.moves), null, 0);
+			client.cells = new int[client.arena.getWidth() * client.arena.getHeight()];
+		}
+		if (client.arena != null) {
+			applyArena(client, frame);
+			return;
+		}
+		if (client.engine == null) {
+			int width = NetProtocol.getSnapshotWidth(frame);
+			int height = NetProtocol.getSnapshotHeight(frame);
+			int appleCount = NetProtocol.getSnapshotAppleCount(frame);
+			client.engine = new SnakeEngine(width, height, appleCount, 0);
+			client.cells = new int[width * height + 1];
+			client.appleCells = new int[appleCount];
+		}
+		if (NetProtocol.isSnapshot(frame)) {
+			snapshots++;
+			client.waiting = false;
+		}
+		int events = NetProtocol.apply(frame, client.engine, client.cells, client.appleCells);
+		if ((events & SnakeEngine.EVENT_APPLE) != 0) {
+			apples++;
+		}
+		if ((events & (SnakeEngine.EVENT_GAME_OVER | SnakeEngine.EVENT_GAME_WON)) != 0) {
+			games++;
+		}
+	}
+
+	/**
+	 * Applies one frame of the arena match, counts the apples and deaths of the own snake.
+	 */
+	private void applyArena(Client client, ByteBuffer frame) {
+		Arena arena = client.arena;
+		if (NetProtocol.isArenaSnapshot(frame)) {
+			snapshots++;
+			client.ownSnake = NetProtocol.getArenaOwnSnake(frame);
+			NetProtocol.applyArena(frame, arena, client.moves, client.cells);
+		}
+		else {
+			NetProtocol.applyArena(frame, arena, client.moves, client.cells);
+			if (client.ownSnake >= 0) {
+				apples += Math.max(0, arena.getScore(client.ownSnake) - client.shownScore);
+				games += arena.getDeaths(client.ownSnake) - client.shownDeaths;
+			}
+		}
+		if (client.ownSnake >= 0) {
+			client.shownScore = arena.getScore(client.ownSnake);
+			client.shownDeaths = arena.getDeaths(client.ownSnake);
+		}
+	}
+
+	/**
+	 * Sends the direction of the bot, or starts a new game.
+	 */
+	private void play(Client client) throws IOException {
+		if (client.arena != null) {
+			int snake = client.ownSnake;
+			if (snake >= 0 && client.arena.isAlive(snake)) {
+				int direction = client.arenaBot.nextDirection(client.arena, snake);
+				if (direction != SnakeEngine.NO_DIRECTION && direction != client.arena.getDirection(snake)) {
+					send(client, direction);
+				}
+			}
+			return;
+		}
+		SnakeEngine engine = client.engine;
+		if (client.waiting) {
+			return;
+		}
+		if (!client.started || engine.isGameFinish()) {
+			send(client, NetProtocol.TOGGLE); // start of the first game, or a new game
+			client.waiting = client.started;
+			client.started = true;
+			return;
+		}
+		int direction = client.bot.nextDirection(engine);
+		if (direction != SnakeEngine.NO_DIRECTION && direction != engine.getDirection()) {
+			send(client, direction);
+		}
+	}
+
+	private void send(Client client, int command) throws IOException {
+		client.command.clear();
+		client.command.put((byte) command).flip();
+		client.channel.write(client.command); // one byte always fits
+	}
+
+	public void close() throws IOException {
+		for (Client client : clients) {
+			client.channel.close();
+		}
+		selector.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("clients %d | frames %d | snapshots %d | received %d bytes (%.2f per frame) | apples %d | games %d",
+				clients.length, frames, snapshots, receivedBytes, frames == 0 ? 0.0 : (double) receivedBytes / frames, apples, games);
+	}
+
+	/**
+	 * Usage: java snakeGame.ClientSimulator [clients] [seconds] [host[:port] | local] [width] [height] [apples] [snakes]
+	 * "local" starts a GameServer in this process (width, height, apples and snakes are only used for it),
+	 * snakes = amount of snakes of an arena match, 0 (default) = every client plays its own game.
+	 * In an arena match "games" counts the deaths of the own snakes.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		String server = args.length > 2 ? args[2] : "local";
+		int width = args.length > 3 ? Integer.parseInt(args[3]) : GameWindow.GRID_WIDTH;
+		int height = args.length > 4 ? Integer.parseInt(args[4]) : GameWindow.GRID_HEIGHT;
+		int appleCount = args.length > 5 ? Integer.parseInt(args[5]) : GameWindow.APPLE_COUNT;
+		int snakes = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+
+		GameServer local = null;
+		Thread serverThread = null;
+		String host = "localhost";
+		int port = GameServer.DEFAULT_PORT;
+		if (server.equals("local")) {
+			local = new GameServer(0, width, height, appleCount, snakes);
+			port = local.getPort();
+			serverThread = new Thread(local, "Snake GameServer");
+			serverThread.start();
+		}
+		else {
+			int colon = server.lastIndexOf(':');
+			host = colon >= 0 ? server.substring(0, colon) : server;
+			port = colon >= 0 ? Integer.parseInt(server.substring(colon + 1)) : port;
+		}
+
+		ClientSimulator simulator = new ClientSimulator(host, port, count);
+		simulator.run(seconds * 1000L);
+		System.out.println(simulator);
+		if (local != null) {
+			System.out.println(local);
+			local.stop();
+			serverThread.join();
+		}
+		simulator.close();
+	}
+}
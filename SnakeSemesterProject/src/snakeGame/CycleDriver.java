@@ -0,0 +1,152 @@
+package snakeGame;
+
+/**
+ * Steers the snake along a cycle through all cells (Hamiltonian cycle), so it never dies and eats every apple on its way.
+ *
+ * Row 0 goes EAST, the rows below go back and forth (WEST in odd, EAST in even rows) between column 1
+ * and the right border, column 0 leads back NORTH to row 0. This needs an even height, a grid with an odd
+ * height and an even width uses the same cycle with rows and columns swapped. The start position of the engine
+ * lies on the cycle if the height is a multiple of 4.
+ *
+ * There is no cycle through all cells if width and height are odd. Then the last two rows go up and down
+ * (column by column) and the cycle leaves out the bottom left corner. The corner is a detour instead of
+ * the cell above its right neighbour: both cells have the same position on the cycle.
+ *
+ * The direction and the position on the cycle of every cell are calculated once (see AutopilotBot).
+ */
+public class CycleDriver {
+
+	private final int width;
+	private final int height;
+	private final byte[] directions; // direction of the cycle for every cell
+	private final int[] index; // position of the cell on the cycle, cell (0, 0) = 0
+	private final int length; // amount of cells on the cycle
+
+	/**
+	 * Calculates the cycle.
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @throws IllegalArgumentException if the grid is too small (see exists())
+	 */
+	public CycleDriver(int width, int height) {
+		if (!exists(width, height)) {
+			throw new IllegalArgumentException("No cycle on " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+
+		int cells = width * height;
+		directions = new byte[cells];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int direction;
+				if (height % 2 == 0) {
+					direction = rowDirection(x, y, width, height);
+				}
+				else if (width % 2 == 0) {
+					direction = columnDirection(x, y);
+				}
+				else {
+					direction = oddDirection(x, y, width, height);
+				}
+				directions[y * width + x] = (byte) direction;
+			}
+		}
+		length = width % 2 == 0 || height % 2 == 0 ? cells : cells - 1;
+		index = new int[cells];
+		int x = 0;
+		int y = 0;
+		for (int i = 0; i < length; i++) {
+			index[y * width + x] = i;
+			int direction = directions[y * width + x];
+			x += direction == SnakeEngine.EAST ? 1 : direction == SnakeEngine.WEST ? -1 : 0;
+			y += direction == SnakeEngine.SOUTH ? 1 : direction == SnakeEngine.NORTH ? -1 : 0;
+		}
+		if (length < cells) {
+			index[(height - 1) * width] = index[(height - 2) * width + 1]; // detour through the corner
+		}
+	}
+
+	/**
+	 * @return true, if there is a cycle (width and height at least 2, at least 3 if both are odd)
+	 */
+	public static boolean exists(int width, int height) {
+		if (width % 2 == 0 || height % 2 == 0) {
+			return width >= 2 && height >= 2;
+		}
+		return width >= 3 && height >= 3;
+	}
+
+	/**
+	 * @return direction of the cycle in the rows of the grid (even height)
+	 */
+	private static int rowDirection(int x, int y, int width, int height) {
+		if (x == 0) {
+			return y > 0 ? SnakeEngine.NORTH : SnakeEngine.EAST;
+		}
+		if (y % 2 == 1) {
+			// odd rows go WEST, the last row leads into column 0
+			return x > 1 || y == height - 1 ? SnakeEngine.WEST : SnakeEngine.SOUTH;
+		}
+		return x < width - 1 ? SnakeEngine.EAST : SnakeEngine.SOUTH;
+	}
+
+	/**
+	 * @return direction of the row cycle of the swapped grid (even width), NORTH and WEST, EAST and SOUTH swapped
+	 */
+	private int columnDirection(int x, int y) {
+		switch (rowDirection(y, x, height, width)) {
+		case SnakeEngine.NORTH:
+			return SnakeEngine.WEST;
+		case SnakeEngine.EAST:
+			return SnakeEngine.SOUTH;
+		case SnakeEngine.SOUTH:
+			return SnakeEngine.EAST;
+		default:
+			return SnakeEngine.NORTH;
+		}
+	}
+
+	/**
+	 * @return direction of the cycle on a grid with odd width and height, the last two rows go up and down
+	 */
+	private static int oddDirection(int x, int y, int width, int height) {
+		if (x == 0 || y < height - 2) {
+			return rowDirection(x, y, width, height); // (0, height - 1) is not on the cycle
+		}
+		boolean down = (width - 1 - x) % 2 == 0; // columns from the right border: down, up, down...
+		if (y == height - 2) {
+			return down ? SnakeEngine.SOUTH : SnakeEngine.WEST;
+		}
+		return down ? SnakeEngine.WEST : SnakeEngine.NORTH;
+	}
+
+	/**
+	 * @return direction of the cycle at the cell
+	 */
+	public int direction(int x, int y) {
+		return directions[y * width + x];
+	}
+
+	/**
+	 * @return position of the cell (y * width + x) on the cycle, 0 .. getLength() - 1
+	 */
+	public int index(int cell) {
+		return index[cell];
+	}
+
+	/**
+	 * @return amount of positions on the cycle (all cells, or all but one if width and height are odd)
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Does one step of the engine along the cycle.
+	 * @return EVENT_* flags of the step
+	 */
+	public int step(SnakeEngine engine) {
+		return engine.step(direction(engine.getHeadX(), engine.getHeadY()));
+	}
+}
@@ -0,0 +1,120 @@
+package snakeGame;
+
+/**
+ * Stores the key-inputs between the key listener (AWT thread) and the snake (GameGrid simulation thread).
+ *
+ * Single producer / single consumer ring buffer without locks and without allocation: only the key listener
+ * calls offer() and clear(), only the snake calls poll(). Inputs which would not change the direction
+ * (same or opposite of the last queued direction) are collapsed at offer() and never reach the snake.
+ */
+public class DirectionQueue {
+
+	private final byte[] ring;		// engine directions, size is a power of two
+	private final long[] offerTimes;	// System.nanoTime() of offer(), same index as the ring
+	private final int mask;
+	private final int maxSize;
+
+	// written by the producer only
+	private volatile long tail;			// next write position
+	private volatile long clearMark;	// everything before this position got cleared
+	private int lastDirection = SnakeEngine.EAST; // direction after all queued inputs
+	private volatile long droppedCount;
+	private volatile long collapsedCount;
+
+	// written by the consumer only
+	private volatile long head;			// next read position
+	private long polledTime;			// offer time of the last polled direction
+
+	/**
+	 * @param maxSize max. amount of stored directions
+	 */
+	public DirectionQueue(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize: " + maxSize);
+		}
+		int capacity = Integer.highestOneBit(maxSize);
+		if (capacity < maxSize) {
+			capacity <<= 1;
+		}
+		this.ring = new byte[capacity];
+		this.offerTimes = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Adds a direction (producer thread only).
+	 * @param direction SnakeEngine.NORTH, EAST, SOUTH or WEST
+	 * @return false, if the direction got collapsed or dropped (queue full)
+	 */
+	public boolean offer(int direction) {
+		if (direction == lastDirection || direction == SnakeEngine.opposite(lastDirection)) {
+			collapsedCount++; // nothing would change, the snake can not turn back
+			return false;
+		}
+
+		long t = tail;
+		if (t - Math.max(head, clearMark) >= maxSize) {
+			droppedCount++;
+			return false;
+		}
+		ring[(int) t & mask] = (byte) direction;
+		offerTimes[(int) t & mask] = System.nanoTime();
+		tail = t + 1; // volatile write publishes the direction
+		lastDirection = direction;
+		return true;
+	}
+
+	/**
+	 * Removes the oldest direction (consumer thread only).
+	 * @return the direction or SnakeEngine.NO_DIRECTION if the queue is empty
+	 */
+	public int poll() {
+		long h = Math.max(head, clearMark);
+		if (h >= tail) {
+			head = h;
+			return SnakeEngine.NO_DIRECTION;
+		}
+		int direction = ring[(int) h & mask];
+		polledTime = offerTimes[(int) h & mask];
+		head = h + 1;
+		return direction;
+	}
+
+	/**
+	 * Removes all queued directions (producer thread only), the consumer skips them at the next poll().
+	 * @param direction current direction of the snake
+	 */
+	public void clear(int direction) {
+		clearMark = tail;
+		lastDirection = direction;
+	}
+
+	/**
+	 * @return true, if no direction is queued
+	 */
+	public boolean isEmpty() {
+		return Math.max(head, clearMark) >= tail;
+	}
+
+	/**
+	 * @return System.nanoTime() at which the direction of the last successful poll() got offered (consumer thread only)
+	 */
+	public long getPolledTime() {
+		return polledTime;
+	}
+
+	/**
+	 * @return amount of inputs dropped because the queue was full
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return amount of inputs collapsed because they would not change the direction
+	 */
+	public long getCollapsedCount() {
+		return collapsedCount;
+	}
+}
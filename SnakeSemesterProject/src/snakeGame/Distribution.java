@@ -0,0 +1,109 @@
+package snakeGame;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts how often every value (score, apples, length...) occurred. Values are grouped in buckets of bucketWidth.
+ * Not thread-safe: every thread fills its own Distribution, they get merged afterwards.
+ */
+public class Distribution {
+
+	private final int bucketWidth;
+	private long[] buckets = new long[64];
+	private long count;
+	private long sum;
+	private long sumSquares; // long (not double), so merging in any order gives the same result
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * @param bucketWidth range of values counted together (1 = every value)
+	 */
+	public Distribution(int bucketWidth) {
+		this.bucketWidth = bucketWidth;
+	}
+
+	/**
+	 * @param value a value >= 0
+	 */
+	public void add(long value) {
+		int bucket = (int) (value / bucketWidth);
+		if (bucket >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.max(bucket + 1, buckets.length * 2));
+		}
+		buckets[bucket]++;
+		count++;
+		sum += value;
+		sumSquares += value * value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds all values of the other distribution (same bucketWidth).
+	 */
+	public void merge(Distribution other) {
+		if (other.buckets.length > buckets.length) {
+			buckets = Arrays.copyOf(buckets, other.buckets.length);
+		}
+		for (int i = 0; i < other.buckets.length; i++) {
+			buckets[i] += other.buckets[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		sumSquares += other.sumSquares;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return count == 0 ? 0 : max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	public double getDeviation() {
+		if (count == 0) {
+			return 0;
+		}
+		double mean = getMean();
+		return Math.sqrt(Math.max(0, (double) sumSquares / count - mean * mean));
+	}
+
+	/**
+	 * @param percent 0 - 100
+	 * @return lower bound of the bucket which contains the percentile
+	 */
+	public long getPercentile(double percent) {
+		long rank = (long) Math.ceil(count * percent / 100.0);
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank && seen > 0) {
+				return (long) i * bucketWidth;
+			}
+		}
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "mean %.2f | sd %.2f | min %d | p50 %d | p90 %d | p99 %d | max %d",
+				getMean(), getDeviation(), getMin(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+	}
+}
@@ -0,0 +1,563 @@
+package snakeGame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Locale;
+
+import snakeGame.SnakeEngine.GameRandom;
+
+/**
+ * Many headless games with the same grid, all state off-heap (direct buffers) as struct of arrays:
+ * one buffer per field with the value of every game, plus the cells of every game one after the other
+ * (occupants, free cell index and body ring buffer). No objects per game, so 100k games need no GC at all,
+ * about bytesPerGame() each (24x24: 5 kB, 500 MB for 100k games; mind -XX:MaxDirectMemorySize).
+ *
+ * step() runs the rules of the SnakeEngine in sweeps over the fields (speed timer, body, move, apples), every sweep
+ * reads its fields in order, a block of BLOCK games at a time (the cells of the block stay in the cache).
+ * Same seed and same directions --> same game as the SnakeEngine (same apples, same score), so the results of both
+ * can be compared (GameBatchCheck does that after every step).
+ * Only grids up to 65536 cells (the engine's free cell index, the cells are stored as char).
+ */
+public class GameBatch {
+
+	// state of a game
+	private static final int RUNNING = 0;
+	private static final int OVER = 1;
+	private static final int WON = 2;
+
+	private static final int MAX_CELLS = 1 << 16;
+	private static final int BLOCK = 256; // games per run of the sweeps: their cells stay in the cache from sweep to sweep
+	private static final char NOT_FREE = (char) -1; // free cell index of a cell which is not empty
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final int count;
+	private final int width;
+	private final int height;
+	private final int cells;
+	private final int appleCount;
+	private final int bodyCapacity; // slots of the body ring buffer of a game (power of two, at least cells)
+
+	// one value per game
+	private final IntBuffer status;
+	private final IntBuffer headX;
+	private final IntBuffer headY;
+	private final IntBuffer direction;
+	private final IntBuffer length; // body squares without the head
+	private final IntBuffer bodyTail;
+	private final IntBuffer expand;
+	private final IntBuffer score;
+	private final IntBuffer appleEaten;
+	private final IntBuffer period; // simulation period in ms
+	private final IntBuffer speed; // percent
+	private final IntBuffer countInterval;
+	private final IntBuffer freeCount;
+	private final LongBuffer tick;
+	private final LongBuffer clock;
+	private final LongBuffer nextInterval;
+	private final LongBuffer seed;
+	private final LongBuffer random; // 48 bit state of the generator (like SnakeEngine.GameRandom)
+
+	// appleCount, cells or bodyCapacity values per game
+	private final IntBuffer appleCell;
+	private final ByteBuffer occupants;
+	private final CharBuffer freeCells;
+	private final CharBuffer freeIndex;
+	private final CharBuffer body;
+
+	private final byte[] emptyCells; // start values of the cells of a game
+	private final char[] cellOrder;
+
+	/**
+	 * Creates the games, call reset() before the first step.
+	 * @param count amount of games
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples of every game
+	 */
+	public GameBatch(int count, int width, int height, int appleCount) {
+		if (width / 2 < SnakeEngine.SNAKE_START_LENGTH || height < 1) { // same checks as the engine
+			throw new IllegalArgumentException("Grid too small: " + width + "x" + height);
+		}
+		if (appleCount < 1) {
+			throw new IllegalArgumentException("At least one apple needed: " + appleCount);
+		}
+		if ((long) width * height > MAX_CELLS) {
+			throw new IllegalArgumentException("Grid too big for a batch: " + width + "x" + height + " (max. " + MAX_CELLS + " cells)");
+		}
+		this.count = count;
+		this.width = width;
+		this.height = height;
+		this.cells = width * height;
+		this.appleCount = appleCount;
+		this.bodyCapacity = Integer.highestOneBit(cells - 1) << 1;
+
+		status = allocate(count, 4).asIntBuffer();
+		headX = allocate(count, 4).asIntBuffer();
+		headY = allocate(count, 4).asIntBuffer();
+		direction = allocate(count, 4).asIntBuffer();
+		length = allocate(count, 4).asIntBuffer();
+		bodyTail = allocate(count, 4).asIntBuffer();
+		expand = allocate(count, 4).asIntBuffer();
+		score = allocate(count, 4).asIntBuffer();
+		appleEaten = allocate(count, 4).asIntBuffer();
+		period = allocate(count, 4).asIntBuffer();
+		speed = allocate(count, 4).asIntBuffer();
+		countInterval = allocate(count, 4).asIntBuffer();
+		freeCount = allocate(count, 4).asIntBuffer();
+		tick = allocate(count, 8).asLongBuffer();
+		clock = allocate(count, 8).asLongBuffer();
+		nextInterval = allocate(count, 8).asLongBuffer();
+		seed = allocate(count, 8).asLongBuffer();
+		random = allocate(count, 8).asLongBuffer();
+
+		appleCell = allocate((long) count * appleCount, 4).asIntBuffer();
+		occupants = allocate((long) count * cells, 1);
+		freeCells = allocate((long) count * cells, 2).asCharBuffer();
+		freeIndex = allocate((long) count * cells, 2).asCharBuffer();
+		body = allocate((long) count * bodyCapacity, 2).asCharBuffer();
+
+		emptyCells = new byte[cells];
+		cellOrder = new char[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			cellOrder[cell] = (char) cell;
+		}
+	}
+
+	/**
+	 * @return direct buffer (native order) for the values
+	 */
+	private static ByteBuffer allocate(long values, int bytes) {
+		if (values * bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Batch too big: " + values * bytes + " bytes for one field");
+		}
+		return ByteBuffer.allocateDirect((int) (values * bytes)).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * @return off-heap bytes of one game
+	 */
+	public static long bytesPerGame(int width, int height, int appleCount) {
+		int cells = width * height;
+		return 13 * 4 + 5 * 8 + appleCount * 4 + cells * (1 + 2 + 2) + (Integer.highestOneBit(cells - 1) << 1) * 2;
+	}
+
+	/**
+	 * Starts all games again.
+	 * @param seed seed of the games, game i gets BatchRunner.gameSeed(seed, i) like in a VectorEnv
+	 */
+	public void reset(long seed) {
+		for (int game = 0; game < count; game++) {
+			reset(game, BatchRunner.gameSeed(seed, game));
+		}
+	}
+
+	/**
+	 * Starts the game again with a new seed drawn from its random generator, like SnakeEngine.reset().
+	 */
+	public void restart(int game) {
+		long state = nextState(random.get(game));
+		int high = (int) (state >>> 16);
+		state = nextState(state);
+		reset(game, ((long) high << 32) + (int) (state >>> 16)); // Random.nextLong()
+	}
+
+	/**
+	 * Starts the game again like SnakeEngine.reset(long): snake in the middle heading EAST, new apples, start speed.
+	 */
+	public void reset(int game, long gameSeed) {
+		seed.put(game, gameSeed);
+		random.put(game, (gameSeed ^ GameRandom.MULTIPLIER) & GameRandom.MASK);
+		int base = game * cells;
+		occupants.position(base);
+		occupants.put(emptyCells); // bulk copies
+		freeCells.position(base);
+		freeCells.put(cellOrder);
+		freeIndex.position(base);
+		freeIndex.put(cellOrder);
+		freeCount.put(game, cells);
+
+		status.put(game, RUNNING);
+		tick.put(game, 0);
+		appleEaten.put(game, 0);
+		expand.put(game, 0);
+		score.put(game, 0);
+		speed.put(game, 0);
+		period.put(game, SnakeEngine.SPEED_START);
+		clock.put(game, 0);
+		nextInterval.put(game, 1000);
+		countInterval.put(game, 0);
+
+		int x = width / 2;
+		int y = height / 2;
+		headX.put(game, x);
+		headY.put(game, y);
+		direction.put(game, SnakeEngine.EAST);
+		bodyTail.put(game, 0);
+		length.put(game, SnakeEngine.SNAKE_START_LENGTH);
+		int bodyBase = game * bodyCapacity;
+		for (int i = 0; i < SnakeEngine.SNAKE_START_LENGTH; i++) {
+			int cell = y * width + x - SnakeEngine.SNAKE_START_LENGTH + i; // tail first
+			body.put(bodyBase + i, (char) cell);
+			setOccupant(game, cell, SnakeEngine.BODY);
+		}
+		setOccupant(game, y * width + x, SnakeEngine.HEAD);
+
+		for (int apple = 0; apple < appleCount; apple++) {
+			appleCell.put(game * appleCount + apple, -1);
+			placeApple(game, apple);
+		}
+	}
+
+	/**
+	 * Does one step of every running game, the rules of SnakeEngine.step() in sweeps over the games.
+	 * @param directions SnakeEngine.NORTH .. WEST or NO_DIRECTION per game
+	 * @param events gets the EVENT_* flags of the step per game, 0 for finished games
+	 * @return amount of games which ended with this step
+	 */
+	public int step(int[] directions, int[] events) {
+		if (directions.length < count || events.length < count) {
+			throw new IllegalArgumentException("Arrays too small for " + count + " games");
+		}
+		int ended = 0;
+		for (int from = 0; from < count; from += BLOCK) {
+			ended += step(from, Math.min(count, from + BLOCK), directions, events);
+		}
+		return ended;
+	}
+
+	/**
+	 * One step of the games from - to-1, the sweeps one after the other.
+	 * @return amount of games which ended with this step
+	 */
+	private int step(int from, int to, int[] directions, int[] events) {
+		// speed timer and clock (the clock only counts after the step, the period does not change later)
+		for (int game = from; game < to; game++) {
+			if (status.get(game) != RUNNING) {
+				events[game] = 0;
+				continue;
+			}
+			tick.put(game, tick.get(game) + 1);
+			int flags = 0;
+			long time = clock.get(game);
+			if (time > nextInterval.get(game)) {
+				nextInterval.put(game, time + 1000); // one second
+				countInterval.put(game, countInterval.get(game) + 1);
+				flags |= SnakeEngine.EVENT_SECOND;
+			}
+			int simulationPeriod = period.get(game);
+			if (countInterval.get(game) >= SnakeEngine.TIME_INTERVAL) {
+				countInterval.put(game, 0);
+				if (simulationPeriod > SnakeEngine.SPEED_MAX) {
+					simulationPeriod -= SnakeEngine.SPEED_INCREASE_PER_TIME;
+					period.put(game, simulationPeriod);
+					speed.put(game, Math.abs(100 / (SnakeEngine.SPEED_START - SnakeEngine.SPEED_MAX) * (simulationPeriod - SnakeEngine.SPEED_START)));
+					flags |= SnakeEngine.EVENT_SPEED;
+				}
+			}
+			clock.put(game, time + simulationPeriod);
+			events[game] = flags;
+		}
+
+		// body: new square at the head, the tail gets retired unless the snake grows
+		for (int game = from; game < to; game++) {
+			if (status.get(game) != RUNNING) {
+				continue;
+			}
+			int bodyBase = game * bodyCapacity;
+			int tail = bodyTail.get(game);
+			int squares = length.get(game);
+			int neck = headY.get(game) * width + headX.get(game);
+			body.put(bodyBase + ((tail + squares) & (bodyCapacity - 1)), (char) neck);
+			setOccupant(game, neck, SnakeEngine.BODY);
+			int grow = expand.get(game);
+			if (grow > 0) {
+				length.put(game, squares + 1);
+				expand.put(game, grow - 1); // only one at a time
+				events[game] |= SnakeEngine.EVENT_GROW;
+			}
+			else {
+				setOccupant(game, body.get(bodyBase + tail), SnakeEngine.EMPTY);
+				bodyTail.put(game, (tail + 1) & (bodyCapacity - 1));
+			}
+		}
+
+		// direction, move and collisions, the apples are left for the next sweep
+		int ended = 0;
+		for (int game = from; game < to; game++) {
+			if (status.get(game) != RUNNING) {
+				continue;
+			}
+			int current = direction.get(game);
+			int next = directions[game];
+			if (next >= SnakeEngine.NORTH && next <= SnakeEngine.WEST && next != SnakeEngine.opposite(current)) {
+				current = next;
+				direction.put(game, current);
+			}
+			int x = headX.get(game) + DX[current];
+			int y = headY.get(game) + DY[current];
+			if (x >= 0 && x < width && y >= 0 && y < height) {
+				headX.put(game, x);
+				headY.put(game, y);
+				int head = y * width + x;
+				byte occupant = occupants.get(game * cells + head);
+				if (occupant == SnakeEngine.BODY) {
+					status.put(game, OVER); // hit itself
+					events[game] |= SnakeEngine.EVENT_GAME_OVER;
+					ended++;
+				}
+				else {
+					setOccupant(game, head, SnakeEngine.HEAD);
+					if (occupant == SnakeEngine.APPLE) {
+						events[game] |= SnakeEngine.EVENT_APPLE;
+					}
+				}
+			}
+			else {
+				status.put(game, OVER); // hit the border
+				events[game] |= SnakeEngine.EVENT_GAME_OVER;
+				ended++;
+			}
+		}
+
+		// eaten apples: score, growth and a new place
+		for (int game = from; game < to; game++) {
+			if ((events[game] & SnakeEngine.EVENT_APPLE) == 0) {
+				continue;
+			}
+			int head = headY.get(game) * width + headX.get(game);
+			int apple = 0;
+			while (appleCell.get(game * appleCount + apple) != head) {
+				apple++;
+			}
+			appleEaten.put(game, appleEaten.get(game) + 1);
+			expand.put(game, expand.get(game) + SnakeEngine.SNAKE_EXPAND_PER_APPLE);
+			int points = score.get(game);
+			points += SnakeEngine.SCORE_PER_APPLE * (SnakeEngine.SCORE_FACTOR_TIME * ((speed.get(game) / 10.0) + 1)); // same rounding as the engine
+			score.put(game, points);
+			if (!placeApple(game, apple)) {
+				status.put(game, WON); // no more free cells
+				events[game] |= SnakeEngine.EVENT_GAME_WON;
+				ended++;
+			}
+		}
+		return ended;
+	}
+
+	/**
+	 * Starts all finished games again with restart().
+	 * @return amount of started games
+	 */
+	public int restartFinished() {
+		int started = 0;
+		for (int game = 0; game < count; game++) {
+			if (status.get(game) != RUNNING) {
+				restart(game);
+				started++;
+			}
+		}
+		return started;
+	}
+
+	/**
+	 * Places the apple on a random empty cell like the engine (same random number, same free cell index).
+	 * @return false, if there is no empty cell left
+	 */
+	private boolean placeApple(int game, int apple) {
+		int free = freeCount.get(game);
+		if (free == 0) {
+			return false;
+		}
+		int cell = freeCells.get(game * cells + nextInt(game, free));
+		appleCell.put(game * appleCount + apple, cell);
+		setOccupant(game, cell, SnakeEngine.APPLE);
+		return true;
+	}
+
+	/**
+	 * Changes the occupant of the cell and keeps the free cell index up to date (same order as the engine).
+	 */
+	private void setOccupant(int game, int cell, byte occupant) {
+		int base = game * cells;
+		byte old = occupants.get(base + cell);
+		occupants.put(base + cell, occupant);
+		if (old == SnakeEngine.EMPTY && occupant != SnakeEngine.EMPTY) {
+			// remove the cell: the last free cell takes its place
+			int index = freeIndex.get(base + cell);
+			int free = freeCount.get(game) - 1;
+			char last = freeCells.get(base + free);
+			freeCells.put(base + index, last);
+			freeIndex.put(base + last, (char) index);
+			freeIndex.put(base + cell, NOT_FREE);
+			freeCount.put(game, free);
+		}
+		else if (old != SnakeEngine.EMPTY && occupant == SnakeEngine.EMPTY) {
+			// add the cell at the end
+			int free = freeCount.get(game);
+			freeCells.put(base + free, (char) cell);
+			freeIndex.put(base + cell, (char) free);
+			freeCount.put(game, free + 1);
+		}
+	}
+
+	/**
+	 * @return Random.nextInt(bound) of the generator of the game
+	 */
+	private int nextInt(int game, int bound) {
+		long state = random.get(game);
+		int result;
+		if ((bound & -bound) == bound) { // power of two
+			state = nextState(state);
+			result = (int) ((bound * (long) (int) (state >>> 17)) >> 31);
+		}
+		else {
+			int bits;
+			do {
+				state = nextState(state);
+				bits = (int) (state >>> 17);
+				result = bits % bound;
+			} while (bits - result + (bound - 1) < 0);
+		}
+		random.put(game, state);
+		return result;
+	}
+
+	private static long nextState(long state) {
+		return (state * GameRandom.MULTIPLIER + GameRandom.ADDEND) & GameRandom.MASK;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getAppleCount() {
+		return appleCount;
+	}
+
+	/**
+	 * @return EMPTY, BODY, HEAD or APPLE, WALL outside of the grid (see SnakeEngine.getOccupant())
+	 */
+	public byte getOccupant(int game, int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return SnakeEngine.WALL;
+		}
+		return occupants.get(game * cells + y * width + x);
+	}
+
+	/**
+	 * @return cell (y * width + x) of the apple, -1 if it is not placed (grid full)
+	 */
+	public int getAppleCell(int game, int apple) {
+		return appleCell.get(game * appleCount + apple);
+	}
+
+	/**
+	 * @param index 0 = square behind the head, getLength() - 1 = tail
+	 * @return cell (y * width + x) of the body square
+	 */
+	public int getBodyCell(int game, int index) {
+		return body.get(game * bodyCapacity + ((bodyTail.get(game) + length.get(game) - 1 - index) & (bodyCapacity - 1)));
+	}
+
+	public int getHeadX(int game) {
+		return headX.get(game);
+	}
+
+	public int getHeadY(int game) {
+		return headY.get(game);
+	}
+
+	public int getDirection(int game) {
+		return direction.get(game);
+	}
+
+	/**
+	 * @return amount of body squares (without the head)
+	 */
+	public int getLength(int game) {
+		return length.get(game);
+	}
+
+	public int getScore(int game) {
+		return score.get(game);
+	}
+
+	public int getAppleEaten(int game) {
+		return appleEaten.get(game);
+	}
+
+	public int getSimulationPeriod(int game) {
+		return period.get(game);
+	}
+
+	public int getSpeedPercent(int game) {
+		return speed.get(game);
+	}
+
+	public long getTick(int game) {
+		return tick.get(game);
+	}
+
+	public long getSeed(int game) {
+		return seed.get(game);
+	}
+
+	public boolean isGameFinish(int game) {
+		return status.get(game) != RUNNING;
+	}
+
+	public boolean isGameWon(int game) {
+		return status.get(game) == WON;
+	}
+
+	/**
+	 * Runs many games with random directions and prints steps per millisecond and memory.
+	 * Usage: java snakeGame.GameBatch [games] [seconds] [width] [height] [apples]
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 24;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : 24;
+		int apples = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+		GameBatch batch = new GameBatch(games, width, height, apples);
+		batch.reset(285);
+		int[] directions = new int[games];
+		int[] events = new int[games];
+		long state = 285; // xorshift for the directions, one turn in four steps
+
+		long steps = 0;
+		long ended = 0;
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		while (System.nanoTime() < end) {
+			for (int game = 0; game < games; game++) {
+				state ^= state << 13;
+				state ^= state >>> 7;
+				state ^= state << 17;
+				directions[game] = (state & 3) == 0 ? (int) (state >>> 2 & 3) : SnakeEngine.NO_DIRECTION;
+			}
+			ended += batch.step(directions, events);
+			batch.restartFinished();
+			steps++;
+		}
+		double millis = (System.nanoTime() - start) / 1e6;
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println(String.format(Locale.ROOT, "%d games %dx%d: %.0f game steps/ms | %d ended | off-heap %d MB | heap used %d MB",
+				games, width, height, steps * games / millis, ended, bytesPerGame(width, height, apples) * games >> 20,
+				(runtime.totalMemory() - runtime.freeMemory()) >> 20));
+	}
+}
@@ -0,0 +1,220 @@
+package snakeGame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Connection of the window to a GameServer: sends the key-inputs and keeps the engine of the window
+ * in the state of the server (see NetProtocol). If the server hosts an arena match, the client keeps
+ * a copy of the arena instead (getArena(), applyArena()).
+ *
+ * A thread reads the frames, the simulation thread of the window applies them to its engine with apply().
+ */
+public class GameClient implements Runnable {
+
+	public static final int EVENT_SNAPSHOT = 64; // apply() took over a whole new state (next to the EVENT_* of SnakeEngine)
+
+	private final SocketChannel channel;
+	private ByteBuffer in; // received data (read mode), grows for the snapshots of big grids
+	private final ByteBuffer command = ByteBuffer.allocate(1);
+	private final ConcurrentLinkedQueue<ByteBuffer> frames = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final int width;
+	private final int height;
+	private final int appleCount;
+	private final int[] cells; // reused by the snapshots
+	private final int[] apples;
+	private final Arena arena; // copy of the arena match, null = own game
+	private final int[] moves; // directions of the last arena tick
+	private int ownSnake = -1; // snake of the keys in the arena, -1 = only watches
+	private volatile boolean closed;
+
+	/**
+	 * Connects and waits for the first snapshot (it defines the grid), starts the reading thread.
+	 * @param host name or address of the server
+	 * @param port port of the server
+	 */
+	public GameClient(String host, int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+		in = ByteBuffer.allocate(4096);
+		in.flip();
+
+		ByteBuffer first = null;
+		while (first == null) {
+			first = nextFrame();
+		}
+		if (!NetProtocol.isSnapshot(first)) {
+			throw new IOException("No snapshot from the server");
+		}
+		width = NetProtocol.getSnapshotWidth(first);
+		height = NetProtocol.getSnapshotHeight(first);
+		appleCount = NetProtocol.getSnapshotAppleCount(first);
+		frames.add(first);
+		cells = new int[width * height + 1];
+		apples = new int[appleCount];
+		if (NetProtocol.isArenaSnapshot(first)) {
+			moves = new int[NetProtocol.getArenaSnakeCount(first)];
+			arena = new Arena(width, height, moves.length, appleCount, NetProtocol.moveBots(moves), null, 0);
+			applyArena(); // the first snapshot
+		}
+		else {
+			moves = null;
+			arena = null;
+		}
+
+		Thread thread = new Thread(this, "Snake GameClient");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Reads the frames until the connection gets closed.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				ByteBuffer frame = nextFrame();
+				if (frame != null) {
+					frames.add(frame);
+				}
+			}
+		}
+		catch (IOException e) {
+			if (!closed) {
+				System.err.println("Connection to the server lost: " + e);
+			}
+			closed = true;
+		}
+	}
+
+	/**
+	 * Reads until a frame is complete (the reading thread only).
+	 * @return copy of the frame, null = another read is needed
+	 */
+	private ByteBuffer nextFrame() throws IOException {
+		int start = in.position();
+		int length = NetProtocol.getFrameLength(in);
+		if (length >= 0 && in.remaining() >= length) {
+			ByteBuffer frame = ByteBuffer.allocate(length);
+			int limit = in.limit();
+			in.limit(in.position() + length);
+			frame.put(in);
+			in.limit(limit);
+			frame.flip();
+			return frame;
+		}
+
+		in.position(start);
+		in.compact();
+		if (!in.hasRemaining()) {
+			if (in.capacity() >= NetProtocol.MAX_FRAME) {
+				throw new IOException("Frame too big: " + length);
+			}
+			in.flip();
+			in = ByteBuffer.allocate(in.capacity() * 2).put(in); // the data stays
+		}
+		if (channel.read(in) < 0) {
+			throw new EOFException("closed by the server");
+		}
+		in.flip();
+		return null;
+	}
+
+	/**
+	 * Applies all frames received since the last call to the engine (simulation thread).
+	 * @param engine engine with the grid of the server
+	 * @return EVENT_* flags of all applied steps, EVENT_SNAPSHOT if a snapshot was among them
+	 */
+	public int apply(SnakeEngine engine) {
+		int events = 0;
+		ByteBuffer frame;
+		while ((frame = frames.poll()) != null) {
+			if (NetProtocol.isSnapshot(frame)) {
+				events = EVENT_SNAPSHOT; // the events of the steps before belong to another state
+			}
+			events |= NetProtocol.apply(frame, engine, cells, apples);
+		}
+		return events;
+	}
+
+	/**
+	 * Applies all frames received since the last call to the arena (simulation thread of the window).
+	 * @return true, if the arena changed
+	 */
+	public boolean applyArena() {
+		boolean changed = false;
+		ByteBuffer frame;
+		while ((frame = frames.poll()) != null) {
+			if (NetProtocol.isArenaSnapshot(frame)) {
+				ownSnake = NetProtocol.getArenaOwnSnake(frame);
+			}
+			NetProtocol.applyArena(frame, arena, moves, cells);
+			changed = true;
+		}
+		return changed;
+	}
+
+	/**
+	 * Sends a command to the server (any thread).
+	 * @param command SnakeEngine.NORTH .. WEST, NetProtocol.TOGGLE or NetProtocol.RESET
+	 */
+	public synchronized void send(int command) {
+		if (closed) {
+			return;
+		}
+		this.command.clear();
+		this.command.put((byte) command).flip();
+		try {
+			while (this.command.hasRemaining()) {
+				channel.write(this.command);
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Connection to the server lost: " + e);
+			closed = true;
+		}
+	}
+
+	/**
+	 * Ends the connection.
+	 */
+	public void close() throws IOException {
+		closed = true;
+		channel.close();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getAppleCount() {
+		return appleCount;
+	}
+
+	/**
+	 * @return copy of the arena match of the server, null = the server hosts own games
+	 */
+	public Arena getArena() {
+		return arena;
+	}
+
+	/**
+	 * @return snake of the keys in the arena, -1 = all snakes are taken, the client only watches
+	 */
+	public int getOwnSnake() {
+		return ownSnake;
+	}
+}
@@ -0,0 +1,175 @@
+package snakeGame;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Records the moments of a game (apple, growth, speed step, game over / won, reset) together with slow
+ * inputs and slow ticks, so stalls of the game can be matched with GC pauses of the same run.
+ *
+ * Every event gets the JVM uptime, the same time base as the GC log (-XX:+PrintGCTimeStamps, -Xlog:gc).
+ * The events are kept in a ring buffer of fixed size (the oldest get overwritten), no allocation per event.
+ * Only active if the program was started with -Dsnake.events=file, the events get written to the file
+ * when the program ends (and printed with key E). Thresholds in ms:
+ * -Dsnake.events.inputLatency (default: the simulation period), -Dsnake.events.tickSlack (default 2).
+ */
+public class GameEventLog {
+
+	public static final boolean ENABLED = System.getProperty("snake.events") != null;
+
+	// event types
+	public static final int APPLE = 0;			// apple eaten
+	public static final int GROW = 1;			// snake got one square longer
+	public static final int SPEED = 2;			// simulation period got shorter
+	public static final int GAME_OVER = 3;
+	public static final int GAME_WON = 4;
+	public static final int RESET = 5;
+	public static final int INPUT_LATENCY = 6;	// key-input waited longer than the threshold in the queue
+	public static final int SLOW_TICK = 7;		// time since the last tick exceeded the simulation period
+
+	private static final String[] NAMES = {
+		"apple", "grow", "speed", "gameOver", "gameWon", "reset", "inputLatency", "slowTick"
+	};
+
+	private static final int CAPACITY = 4096; // power of two
+	private static final long START_NANOS = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1000000L;
+
+	private final long inputLatencyThreshold; // ns, -1 = the simulation period
+	private final long tickSlack; // ns
+
+	// one entry per event, written at count & (CAPACITY - 1)
+	private final byte[] types = new byte[CAPACITY];
+	private final long[] times = new long[CAPACITY]; // ns since the start of the JVM
+	private final long[] ticks = new long[CAPACITY];
+	private final int[] lengths = new int[CAPACITY];
+	private final int[] scores = new int[CAPACITY];
+	private final int[] speedPercents = new int[CAPACITY];
+	private final long[] durations = new long[CAPACITY]; // ns, only INPUT_LATENCY and SLOW_TICK
+	private long count;
+
+	/**
+	 * Reads the thresholds from the system properties.
+	 */
+	public GameEventLog() {
+		this(Long.getLong("snake.events.inputLatency", -1), Long.getLong("snake.events.tickSlack", 2));
+	}
+
+	/**
+	 * @param inputLatency inputs waiting longer are recorded (ms), -1 = longer than the simulation period
+	 * @param tickSlack ticks starting later than the simulation period plus the slack are recorded (ms)
+	 */
+	public GameEventLog(long inputLatency, long tickSlack) {
+		this.inputLatencyThreshold = inputLatency < 0 ? -1 : inputLatency * 1000000L;
+		this.tickSlack = tickSlack * 1000000L;
+	}
+
+	/**
+	 * Records the events of a step.
+	 * @param engine state after the step
+	 * @param events result of SnakeEngine.step()
+	 */
+	public void step(SnakeEngine engine, int events) {
+		if ((events & SnakeEngine.EVENT_APPLE) != 0) {
+			add(APPLE, engine, 0);
+		}
+		if ((events & SnakeEngine.EVENT_GROW) != 0) {
+			add(GROW, engine, 0);
+		}
+		if ((events & SnakeEngine.EVENT_SPEED) != 0) {
+			add(SPEED, engine, 0);
+		}
+		if ((events & SnakeEngine.EVENT_GAME_WON) != 0) {
+			add(GAME_WON, engine, 0);
+		}
+		else if ((events & SnakeEngine.EVENT_GAME_OVER) != 0) {
+			add(GAME_OVER, engine, 0);
+		}
+	}
+
+	/**
+	 * @param engine state after the reset
+	 */
+	public void reset(SnakeEngine engine) {
+		add(RESET, engine, 0);
+	}
+
+	/**
+	 * Records the input if it waited longer than the threshold.
+	 * @param latency ns between the key event and the step which used it
+	 */
+	public void input(SnakeEngine engine, long latency) {
+		long threshold = inputLatencyThreshold >= 0 ? inputLatencyThreshold : engine.getSimulationPeriod() * 1000000L;
+		if (latency > threshold) {
+			add(INPUT_LATENCY, engine, latency);
+		}
+	}
+
+	/**
+	 * Records the tick if it started later than the period (plus the slack) after the last one.
+	 * @param interval ns since the start of the last tick
+	 * @param period simulation period in ms
+	 */
+	public void tick(SnakeEngine engine, long interval, int period) {
+		if (interval > period * 1000000L + tickSlack) {
+			add(SLOW_TICK, engine, interval);
+		}
+	}
+
+	/**
+	 * Adds an event (any thread).
+	 */
+	private synchronized void add(int type, SnakeEngine engine, long duration) {
+		int i = (int) count & (CAPACITY - 1);
+		types[i] = (byte) type;
+		times[i] = System.nanoTime() - START_NANOS;
+		ticks[i] = engine.getTick();
+		lengths[i] = engine.getLength() + 1; // with the head
+		scores[i] = engine.getScore();
+		speedPercents[i] = engine.getSpeedPercent();
+		durations[i] = duration;
+		count++;
+	}
+
+	/**
+	 * @return amount of recorded events (including the overwritten ones)
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes the kept events, oldest first, one line per event.
+	 */
+	public synchronized void print(PrintWriter out) {
+		for (long n = Math.max(0, count - CAPACITY); n < count; n++) {
+			int i = (int) n & (CAPACITY - 1);
+			out.print(String.format(Locale.ROOT, "[%.3fs][snake] %s tick=%d length=%d score=%d speedPercent=%d",
+					times[i] / 1e9, NAMES[types[i]], ticks[i], lengths[i], scores[i], speedPercents[i]));
+			if (types[i] == INPUT_LATENCY || types[i] == SLOW_TICK) {
+				out.print(String.format(Locale.ROOT, " duration=%.3fms", durations[i] / 1e6));
+			}
+			out.println();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the events into the file of -Dsnake.events when the program ends.
+	 */
+	public void writeOnExit() {
+		final String file = System.getProperty("snake.events");
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+					print(out);
+				}
+				catch (IOException e) {
+					System.err.println("Events not written: " + e);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,474 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Hosts the games of remote players (see NetProtocol). The server runs the rules: the clients only send their
+ * key-inputs and show the state they get back. Two modes:
+ * - own games: every connection plays its own game (SnakeEngine) with its own speed, TOGGLE starts and pauses it.
+ * - arena match: all connections share one Arena. Every connection plays one snake (the first one no other
+ *   connection plays), the other snakes are ArenaGreedyBots. If all snakes are taken, the connection only watches.
+ *   The match runs while anybody is connected (ArenaWindow.PERIOD per tick) and every tick goes to all connections.
+ *
+ * One thread does everything with a Selector: accepts, reads the inputs into the DirectionQueue of the player
+ * (all inputs between two ticks, one gets used per tick like in the window), steps the games when their period
+ * is over and sends the delta of the step. A client which does not read fast enough gets no deltas
+ * until its buffer is sent, then a snapshot instead of the missed deltas.
+ */
+public class GameServer implements Runnable {
+
+	public static final int MAX_GRID = 1024; // max. width and height (size of a snapshot)
+	public static final int DEFAULT_PORT = 2850;
+
+	private static final int MAX_QUEUED_DIRECTIONS = 5; // same as the window
+	private static final int INPUT_BUFFER = 64;
+	private static final int DELTA_MAX = 16; // bytes of the biggest delta frame
+	private static final int MAX_BEHIND = 5; // periods a game can fall behind before its timeline starts again
+
+	private final int width;
+	private final int height;
+	private final int appleCount;
+	private final Random random = new Random();
+	private final Arena arena; // null = every connection plays its own game
+	private final ArenaKeyboard[] keyboards; // player of every arena snake, null = bot
+	private long arenaNextTick; // System.nanoTime() of the next arena step
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ArrayList<Player> players = new ArrayList<Player>();
+	private volatile boolean stopped;
+
+	// statistics, written by the server thread only
+	private volatile int playerCount;
+	private volatile long tickCount;
+	private volatile long snapshotCount;
+	private volatile long sentBytes;
+
+	/**
+	 * A connection and its game (or its snake in the arena).
+	 */
+	private class Player {
+		final SocketChannel channel;
+		final SelectionKey key;
+		final SnakeEngine engine; // null = arena match
+		final int snake; // snake in the arena, -1 = watches (or own game)
+		final DirectionQueue directions = new DirectionQueue(MAX_QUEUED_DIRECTIONS);
+		final ByteBuffer in = ByteBuffer.allocate(INPUT_BUFFER);
+		final ByteBuffer out; // frames not sent yet (write mode)
+		boolean running; // false = paused or finished
+		long nextTick; // System.nanoTime() of the next step
+		boolean behind; // deltas got skipped, send a snapshot when the buffer is empty
+
+		Player(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+			if (arena != null) {
+				this.engine = null;
+				this.snake = takeSnake();
+				this.out = ByteBuffer.allocate(Math.max(4096, 2 * NetProtocol.maxArenaSnapshotSize(arena)));
+			}
+			else {
+				this.engine = new SnakeEngine(width, height, appleCount, random.nextLong());
+				this.snake = -1;
+				this.out = ByteBuffer.allocate(Math.max(4096, 2 * NetProtocol.maxSnapshotSize(engine)));
+				directions.clear(engine.getDirection());
+			}
+			sendSnapshot();
+		}
+
+		void sendSnapshot() {
+			int size = arena != null ? NetProtocol.maxArenaSnapshotSize(arena) : NetProtocol.maxSnapshotSize(engine);
+			if (out.position() + size > out.capacity()) {
+				behind = true;
+				return;
+			}
+			if (arena != null) {
+				NetProtocol.putArenaSnapshot(out, arena, snake);
+			}
+			else {
+				NetProtocol.putSnapshot(out, engine);
+			}
+			behind = false;
+			snapshotCount++;
+		}
+	}
+
+	/**
+	 * Opens the server socket for own games, call run() to serve.
+	 * @param port 0 = any free port (see getPort())
+	 * @param width amount of horizontal cells of every game
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples
+	 */
+	public GameServer(int port, int width, int height, int appleCount) throws IOException {
+		this(port, width, height, appleCount, 0);
+	}
+
+	/**
+	 * Opens the server socket, call run() to serve.
+	 * @param port 0 = any free port (see getPort())
+	 * @param width amount of horizontal cells of every game (of the arena)
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples
+	 * @param snakeCount amount of snakes of the arena match, 0 = every connection plays its own game
+	 */
+	public GameServer(int port, int width, int height, int appleCount, int snakeCount) throws IOException {
+		if (width > MAX_GRID || height > MAX_GRID) {
+			throw new IllegalArgumentException("Grid too big: " + width + "x" + height + " (max. " + MAX_GRID + ")");
+		}
+		if (snakeCount > 0) {
+			arena = new Arena(width, height, snakeCount, appleCount, ArenaGreedyBot.FACTORY, null, random.nextLong()); // checks the grid
+			if (NetProtocol.maxArenaSnapshotSize(arena) > NetProtocol.MAX_FRAME) {
+				throw new IllegalArgumentException("Arena too big for a snapshot: " + snakeCount + " snakes, " + appleCount + " apples");
+			}
+			keyboards = new ArenaKeyboard[snakeCount];
+		}
+		else {
+			new SnakeEngine(width, height, appleCount, 0); // checks the grid
+			arena = null;
+			keyboards = null;
+		}
+		this.width = width;
+		this.height = height;
+		this.appleCount = appleCount;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * @return port the server listens on
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Ends run() and closes all connections.
+	 */
+	public void stop() {
+		stopped = true;
+		selector.wakeup();
+	}
+
+	/**
+	 * Serves until stop() gets called.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (!stopped) {
+				long wait = nextTick() - System.nanoTime();
+				if (wait <= 0) {
+					selector.selectNow();
+				}
+				else {
+					selector.select(Math.max(1, wait / 1000000)); // 0 would wait forever
+				}
+				handleKeys();
+				tick();
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Server stopped: " + e);
+		}
+		finally {
+			for (int i = players.size() - 1; i >= 0; i--) {
+				close(players.get(i));
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			}
+			catch (IOException e) {
+				// closing anyway
+			}
+		}
+	}
+
+	/**
+	 * @return earliest step of a running game, but at the latest in a second
+	 */
+	private long nextTick() {
+		long next = System.nanoTime() + 1000 * 1000000L; // check stopped at least once a second
+		if (arena != null) {
+			return players.isEmpty() ? next : Math.min(next, arenaNextTick);
+		}
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (player.running && player.nextTick < next) {
+				next = player.nextTick;
+			}
+		}
+		return next;
+	}
+
+	private void handleKeys() throws IOException {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+			Player player = (Player) key.attachment();
+			try {
+				if (key.isReadable()) {
+					read(player);
+				}
+				if (key.isValid() && key.isWritable()) {
+					write(player);
+				}
+			}
+			catch (IOException e) {
+				close(player); // connection lost
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true); // a delta is one or two bytes, send it at once
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			if (arena != null && players.isEmpty()) {
+				arenaNextTick = System.nanoTime(); // the match goes on
+			}
+			Player player = new Player(channel, key);
+			key.attach(player);
+			players.add(player);
+			playerCount = players.size();
+			try {
+				write(player); // the snapshot
+			}
+			catch (IOException e) {
+				close(player);
+			}
+		}
+	}
+
+	/**
+	 * Reads the commands of the client, directions are queued for the next steps.
+	 */
+	private void read(Player player) throws IOException {
+		if (player.channel.read(player.in) < 0) {
+			close(player);
+			return;
+		}
+		player.in.flip();
+		while (player.in.hasRemaining()) {
+			int command = player.in.get();
+			if (arena != null) {
+				if (command >= SnakeEngine.NORTH && command <= SnakeEngine.WEST) {
+					if (player.snake >= 0) {
+						keyboards[player.snake].offer(command);
+					}
+				}
+				else if (command != NetProtocol.TOGGLE && command != NetProtocol.RESET) { // the match can not be paused
+					close(player); // not our protocol
+					return;
+				}
+			}
+			else if (command >= SnakeEngine.NORTH && command <= SnakeEngine.WEST) {
+				player.directions.offer(command);
+			}
+			else if (command == NetProtocol.TOGGLE) {
+				if (player.engine.isGameFinish()) {
+					newGame(player);
+					player.running = true;
+				}
+				else {
+					player.running = !player.running;
+				}
+				player.nextTick = System.nanoTime();
+			}
+			else if (command == NetProtocol.RESET) {
+				newGame(player);
+			}
+			else {
+				close(player); // not our protocol
+				return;
+			}
+		}
+		player.in.clear();
+		write(player);
+	}
+
+	private void newGame(Player player) {
+		player.engine.reset();
+		player.running = false;
+		player.directions.clear(player.engine.getDirection());
+		player.sendSnapshot();
+	}
+
+	/**
+	 * Gives the first snake which no other connection plays to the keys of a new connection.
+	 * @return the snake, -1 = all snakes are taken
+	 */
+	private int takeSnake() {
+		for (int snake = 0; snake < keyboards.length; snake++) {
+			if (keyboards[snake] == null) {
+				keyboards[snake] = new ArenaKeyboard(MAX_QUEUED_DIRECTIONS);
+				arena.setBot(snake, keyboards[snake]);
+				return snake;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Steps every game whose period is over and sends the deltas.
+	 */
+	private void tick() {
+		long now = System.nanoTime();
+		if (arena != null) {
+			tickArena(now);
+			return;
+		}
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (!player.running || player.nextTick > now) {
+				continue;
+			}
+			int events = player.engine.step(player.directions.poll());
+			tickCount++;
+			if (player.engine.isGameFinish()) {
+				player.running = false;
+			}
+			long period = player.engine.getSimulationPeriod() * 1000000L;
+			player.nextTick += period; // fixed timestep, a late step does not delay the next ones
+			if (now - player.nextTick > MAX_BEHIND * period) {
+				player.nextTick = now + period; // too far behind (like TickScheduler): start the timeline again
+			}
+
+			if (player.behind || player.out.remaining() < DELTA_MAX) {
+				player.behind = true; // the client gets a snapshot instead
+			}
+			else {
+				NetProtocol.putDelta(player.out, player.engine, events);
+			}
+			try {
+				write(player);
+			}
+			catch (IOException e) {
+				close(player);
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Steps the arena when its period is over and sends the tick to all connections.
+	 */
+	private void tickArena(long now) {
+		if (players.isEmpty() || arenaNextTick > now) {
+			return;
+		}
+		arena.step();
+		tickCount++;
+		long period = ArenaWindow.PERIOD * 1000000L;
+		arenaNextTick += period;
+		if (now - arenaNextTick > MAX_BEHIND * period) {
+			arenaNextTick = now + period;
+		}
+
+		int size = NetProtocol.arenaTickSize(arena);
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (player.behind || player.out.remaining() < size) {
+				player.behind = true; // the client gets a snapshot instead
+			}
+			else {
+				NetProtocol.putArenaTick(player.out, arena);
+			}
+			try {
+				write(player);
+			}
+			catch (IOException e) {
+				close(player);
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Sends as much as the socket takes, waits for OP_WRITE if something is left.
+	 */
+	private void write(Player player) throws IOException {
+		if (player.behind && player.out.position() == 0) {
+			player.sendSnapshot();
+		}
+		if (player.out.position() == 0) {
+			return;
+		}
+		player.out.flip();
+		sentBytes += player.channel.write(player.out);
+		player.out.compact();
+		int ops = player.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+		if (player.key.interestOps() != ops) {
+			player.key.interestOps(ops);
+		}
+	}
+
+	private void close(Player player) {
+		if (!players.remove(player)) {
+			return; // closed already
+		}
+		playerCount = players.size();
+		if (player.snake >= 0) {
+			keyboards[player.snake] = null;
+			arena.setBot(player.snake, null); // a bot plays the snake again
+		}
+		player.key.cancel();
+		try {
+			player.channel.close();
+		}
+		catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+	/**
+	 * @return amount of connected players
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("players %d | steps %d | snapshots %d | sent %d bytes", playerCount, tickCount, snapshotCount, sentBytes);
+	}
+
+	/**
+	 * Usage: java snakeGame.GameServer [port] [width] [height] [apples] [snakes]
+	 * snakes = amount of snakes of one arena match for all connections, 0 (default) = every connection plays its own game
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : GameWindow.GRID_WIDTH;
+		int height = args.length > 2 ? Integer.parseInt(args[2]) : GameWindow.GRID_HEIGHT;
+		int apples = args.length > 3 ? Integer.parseInt(args[3]) : GameWindow.APPLE_COUNT;
+		int snakes = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+		GameServer server = new GameServer(port, width, height, apples, snakes);
+		System.out.println("Snake server on port " + server.getPort() + ", " + width + "x" + height + " with " + apples + " apples"
+				+ (snakes > 0 ? ", arena match of " + snakes + " snakes" : ""));
+		server.run();
+	}
+}
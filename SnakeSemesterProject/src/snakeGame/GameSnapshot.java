@@ -0,0 +1,158 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Saves the whole state of a game (engine) into a compact binary form and loads it again, in the window or headless.
+ *
+ * Format: MAGIC, VERSION (byte), the state of the engine like in the snapshots of the NetProtocol (grid, counters,
+ * body as the tail cell and 2 bits per square towards the head, apples), seed of the game and the state of its
+ * random generator (8 bytes each), then the order of the free cell index (small grids: amount and 2 bytes per empty
+ * cell), which decides together with the random generator where the next apple goes. So a loaded game goes on
+ * exactly like the saved one: same directions, same apples. A 100k squares snake needs 25 kB for its body.
+ */
+public class GameSnapshot {
+
+	static final int MAGIC = 0x534E4B53; // "SNKS"
+	static final int VERSION = 1; // readers load all versions up to their own
+
+	private static final int FIXED_MAX = 4 + 1 + 2 * 8 + 5; // magic, version, seed, random state and amount of free cells
+
+	private GameSnapshot() {
+	}
+
+	/**
+	 * @return the state of the engine, the array of the buffer has exactly its size
+	 */
+	public static ByteBuffer save(SnakeEngine engine) {
+		int freeCount = engine.getFreeCell(0) >= 0 ? engine.getFreeCellCount() : 0; // big grids have no index
+		ByteBuffer out = ByteBuffer.allocate(FIXED_MAX + NetProtocol.stateSize(engine) + 2 * freeCount);
+		out.putInt(MAGIC);
+		out.put((byte) VERSION);
+		NetProtocol.putState(out, engine);
+		out.putLong(engine.getSeed());
+		out.putLong(engine.getRandomState());
+		NetProtocol.putVarint(out, freeCount);
+		for (int i = 0; i < freeCount; i++) {
+			out.putChar((char) engine.getFreeCell(i)); // the index only exists for grids up to 65536 cells
+		}
+		return ByteBuffer.wrap(Arrays.copyOf(out.array(), out.position())); // varints are shorter than their max.
+	}
+
+	/**
+	 * Saves the state of the engine into the file (replaces the file).
+	 */
+	public static void write(SnakeEngine engine, Path file) throws IOException {
+		Files.write(file, save(engine).array());
+	}
+
+	/**
+	 * @return new engine with the grid and the state of the snapshot
+	 */
+	public static SnakeEngine load(ByteBuffer in) throws IOException {
+		checkHeader(in.duplicate());
+		ByteBuffer grid = in.duplicate();
+		grid.position(grid.position() + 5);
+		int width = NetProtocol.getVarint(grid);
+		int height = NetProtocol.getVarint(grid);
+		int appleCount = NetProtocol.getVarint(grid);
+		SnakeEngine engine = new SnakeEngine(width, height, appleCount, 0);
+		load(in, engine);
+		return engine;
+	}
+
+	/**
+	 * Loads the state into the engine. If the snapshot is broken (IOException), the engine is in an undefined state
+	 * (reset it).
+	 * @param engine same grid and amount of apples as the saved one (otherwise IllegalArgumentException, the engine
+	 * 		did not change)
+	 */
+	public static void load(ByteBuffer in, SnakeEngine engine) throws IOException {
+		load(in, engine, null);
+	}
+
+	/**
+	 * Loads the state into the engine like load(in, engine), without a new array if cells is long enough.
+	 * @param cells reused for the body and the free cells, null or too short = a new array of the needed size
+	 * @return the array used (cells or the new one), for the next load
+	 */
+	static int[] load(ByteBuffer in, SnakeEngine engine, int[] cells) throws IOException {
+		try {
+			checkHeader(in);
+			checkGrid(in.duplicate(), engine); // the only IllegalArgumentException, nothing changed yet
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("Snapshot incomplete");
+		}
+		try {
+			cells = NetProtocol.loadState(in, engine, cells, new int[engine.getAppleCount()]);
+			engine.setRandom(in.getLong(), in.getLong());
+			int freeCount = NetProtocol.getVarint(in);
+			if (freeCount > engine.getWidth() * engine.getHeight()) {
+				throw new IOException("Snapshot broken: " + freeCount + " free cells");
+			}
+			if (cells.length < freeCount) {
+				cells = new int[freeCount];
+			}
+			for (int i = 0; i < freeCount; i++) {
+				cells[i] = in.getChar();
+			}
+			if (freeCount > 0) {
+				engine.setFreeCellOrder(cells, freeCount);
+			}
+			return cells;
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("Snapshot incomplete");
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new IOException("Snapshot broken: " + e.getMessage()); // a cell outside of the grid
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Snapshot broken: " + e.getMessage()); // wrong free cells, the engine is half loaded
+		}
+	}
+
+	/**
+	 * @return new engine with the grid and the state of the file
+	 */
+	public static SnakeEngine read(Path file) throws IOException {
+		return load(ByteBuffer.wrap(Files.readAllBytes(file)));
+	}
+
+	/**
+	 * Loads the state of the file into the engine (undefined state on an IOException).
+	 * @param engine same grid and amount of apples as the saved one (otherwise IllegalArgumentException)
+	 */
+	public static void read(Path file, SnakeEngine engine) throws IOException {
+		load(ByteBuffer.wrap(Files.readAllBytes(file)), engine);
+	}
+
+	/**
+	 * Compares the grid at the start of the state with the engine.
+	 */
+	private static void checkGrid(ByteBuffer in, SnakeEngine engine) {
+		if (NetProtocol.getVarint(in) != engine.getWidth() || NetProtocol.getVarint(in) != engine.getHeight()
+				|| NetProtocol.getVarint(in) != engine.getAppleCount()) {
+			throw new IllegalArgumentException("Snapshot of another grid");
+		}
+	}
+
+	/**
+	 * Reads magic and version.
+	 */
+	private static void checkHeader(ByteBuffer in) throws IOException {
+		if (in.remaining() < 5 || in.getInt() != MAGIC) {
+			throw new IOException("No snake snapshot");
+		}
+		int version = in.get();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unknown snapshot version " + version + " (max. " + VERSION + ")");
+		}
+	}
+}
@@ -1,39 +1,191 @@
 package snakeGame;
 
 import ch.aplu.jgamegrid.*;
-import ch.aplu.jgamegrid.Location.CompassDirection;
 
 import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 public class GameWindow extends GameGrid implements GGKeyListener {
 
 	private static final long serialVersionUID = 1L; // needs to be defined for a serializable class
 
-	private static final int GRID_WIDTH = 25; // 25 Cells
-	private static final int GRID_HEIGHT = 25; // 25 Cells
+	static final int GRID_WIDTH = 25; // 25 Cells
+	static final int GRID_HEIGHT = 25; // 25 Cells
 	private static final int GRID_SIZE = 18; // 18 Pixel
-	private static final int APPLE_COUNT = 10; // 10 Apples
+	private static final int VIEW_MAX_WIDTH = 50; // bigger grids are shown in a view which follows the head
+	private static final int VIEW_MAX_HEIGHT = 40;
+	private static final Color GRID_COLOR = Color.gray;
+	static final int APPLE_COUNT = 10; // 10 Apples
 
 	private static final int MAX_QUEUED_DIRECTIONS = 5; // amount of stored key-inputs
-	private LinkedList<CompassDirection> directionList = new LinkedList<Location.CompassDirection>(); // stores directions of key-inputs
+	private static final int PREWARM_BODIES = 128; // SnakeBody squares created before the first game
+	private static final int HIGH_SCORES_SHOWN = 10; // key H
+	private static final String SNAPSHOT_FILE = "snake.snapshot"; // keys S and L
+	private static final int REWIND_CAPACITY = 1 << 16; // bytes of the rewind frames (about 20 minutes)
+	private static final int REWIND_KEYFRAME_INTERVAL = 1024; // ticks
+	private static final int REWIND_KEYFRAMES = 8;
+	private DirectionQueue directionList = new DirectionQueue(MAX_QUEUED_DIRECTIONS); // stores directions of key-inputs
 	private ArrayList<Apple> appleList = new ArrayList<Apple>();
+	private ActorPool<Apple> applePool; // reused apples (reset)
+	private SnakeEngine engine; // game rules, GameWindow and Snake only show its state
 	private Snake mySnake;
+	private TickScheduler scheduler; // runs the simulation instead of the GameGrid thread
+	private CellRenderer cellRenderer; // created with the first switch to the cell view
+	private volatile boolean cellView; // true = only the changed cells get drawn (instead of all actors)
+	private final boolean bigGrid; // no actors, always the cell view: the GameGrid shows only a part of the grid, or a server plays
+	private double speed = 1; // multiple of the simulation period (replays can run faster or slower)
+
+	private ReplayWriter recorder; // null = no recording
+	private Replay replay; // null = the keyboard plays
+	private GameClient client; // null = local game, otherwise the keys go to the server and the engine shows its game
+	private int replayGame; // index of the shown game of the replay
+	private final AutopilotBot autopilot = new AutopilotBot(); // plays instead of the keyboard (key B)
+	private final PhaseTimer timer = PhaseTimer.ENABLED ? new PhaseTimer() : null; // null = no timing (key T)
+	private volatile long lastTickStart; // System.nanoTime() of the last tick, 0 = paused since then
+	private final GameEventLog eventLog = GameEventLog.ENABLED ? new GameEventLog() : null; // null = no events (key E)
+	private Path snapshotFile = Paths.get(SNAPSHOT_FILE); // saved game of the keys S and L
+	private final RewindBuffer rewind = new RewindBuffer(REWIND_CAPACITY, REWIND_KEYFRAME_INTERVAL, REWIND_KEYFRAMES); // keys Z and X
 
 	/**
 	 * Initializes the GameGrid and adds our snake and the apples.
 	 */
 	public GameWindow() {
-		
+		this((ReplayWriter) null);
+	}
+
+	/**
+	 * Initializes the GameGrid and records every game into the replay.
+	 * @param recorder replay file of the session, null = no recording
+	 */
+	public GameWindow(ReplayWriter recorder) {
+		this(GRID_WIDTH, GRID_HEIGHT, APPLE_COUNT, recorder);
+	}
+
+	/**
+	 * Initializes the GameGrid for any grid size up to SnakeEngine.MAX_GRID and records every game into the replay.
+	 * Grids bigger than VIEW_MAX_WIDTH x VIEW_MAX_HEIGHT are shown in a view which follows the head.
+	 * @param gridWidth amount of horizontal cells
+	 * @param gridHeight amount of vertical cells
+	 * @param appleCount amount of apples
+	 * @param recorder replay file of the session, null = no recording
+	 */
+	public GameWindow(int gridWidth, int gridHeight, int appleCount, ReplayWriter recorder) {
+		this(gridWidth, gridHeight, appleCount, Math.min(gridWidth, VIEW_MAX_WIDTH), Math.min(gridHeight, VIEW_MAX_HEIGHT), false);
+
+		if (recorder != null) {
+			this.recorder = recorder;
+			mySnake.recorder = recorder;
+			startRecording();
+		}
+		start();
+	}
+
+	/**
+	 * Initializes the GameGrid with the grid of the replay and plays its games instead of the keyboard.
+	 * ENTER starts the game, after the end of a game ENTER shows the next one.
+	 * @param replay recorded games
+	 * @param speed multiple of the simulation period (2 = twice as fast)
+	 */
+	public GameWindow(Replay replay, double speed) {
+		this(replay.getWidth(), replay.getHeight(), replay.getAppleCount(),
+				Math.min(replay.getWidth(), VIEW_MAX_WIDTH), Math.min(replay.getHeight(), VIEW_MAX_HEIGHT), false);
+
+		this.replay = replay;
+		this.speed = speed;
+		startReplayGame();
+		removeAllApples();
+		addApples();
+		start();
+	}
+
+	/**
+	 * Initializes the GameGrid with the grid of the server, the server plays the game and the window shows it.
+	 * The keys go to the server, ENTER starts and pauses the game there.
+	 * @param client connection to the server
+	 */
+	public GameWindow(GameClient client) {
+		this(client.getWidth(), client.getHeight(), client.getAppleCount(),
+				Math.min(client.getWidth(), VIEW_MAX_WIDTH), Math.min(client.getHeight(), VIEW_MAX_HEIGHT), true);
+
+		this.client = client;
+		mySnake.client = client;
+		start();
+	}
+
+	/**
+	 * Shows the GameGrid and does the first step.
+	 */
+	private void start() {
+		// Show GameGrid
+		show();
+
+		// do one Step --> Generate SnakeBody
+		doStep(); // (not required, if we start with doRun() )
+		if (cellView) {
+			renderCells();
+		}
+	}
+
+	/**
+	 * Initializes the GameGrid with our snake and the apples, but does not show it (used by the benchmarks).
+	 * @param gridWidth amount of horizontal cells
+	 * @param gridHeight amount of vertical cells
+	 * @param appleCount amount of apples
+	 */
+	GameWindow(int gridWidth, int gridHeight, int appleCount) {
+		this(gridWidth, gridHeight, appleCount, gridWidth, gridHeight, false);
+	}
+
+	/**
+	 * Initializes the GameGrid with the size of the view. If the view is smaller than the grid,
+	 * the snake and the apples are no actors: the CellRenderer draws the visible cells of the engine.
+	 * @param gridWidth amount of horizontal cells
+	 * @param gridHeight amount of vertical cells
+	 * @param appleCount amount of apples
+	 * @param viewWidth amount of visible horizontal cells
+	 * @param viewHeight amount of visible vertical cells
+	 * @param cellsOnly true = no actors, the CellRenderer draws the engine (also if the grid fits into the view)
+	 */
+	private GameWindow(int gridWidth, int gridHeight, int appleCount, int viewWidth, int viewHeight, boolean cellsOnly) {
+
 		// Initializing the GameGrid
-		super(GRID_WIDTH, GRID_HEIGHT, GRID_SIZE, Color.gray, false); // false = do not show toolbar
+		super(viewWidth, viewHeight, GRID_SIZE, GRID_COLOR, false); // false = do not show toolbar
+		bigGrid = cellsOnly || viewWidth < gridWidth || viewHeight < gridHeight;
+
+		SpriteAtlas.get(); // decode all sprites now, not when the cell view gets switched on
+
+		// Create the game rules, the snake starts in the middle of the grid
+		engine = new SnakeEngine(gridWidth, gridHeight, appleCount);
 
 		// Create and add our Snake to the GameGrid
-		mySnake = new Snake();
+		mySnake = new Snake(engine, !bigGrid);
 		mySnake.directions = directionList;
-		addActor(mySnake, new Location(GRID_WIDTH / 2, GRID_HEIGHT / 2));
+		mySnake.apples = appleList;
+		mySnake.rewind = rewind;
+		rewind.reset(engine);
+		if (bigGrid) {
+			addActor(mySnake, new Location(0, 0)); // hidden, only steps the engine
+		}
+		else {
+			addActor(mySnake, new Location(engine.getHeadX(), engine.getHeadY()));
+			mySnake.getBodyPool().prewarm(Math.min(PREWARM_BODIES, gridWidth * gridHeight));
+		}
+
+		applePool = new ActorPool<Apple>(this) {
+			protected Apple create() {
+				return new Apple();
+			}
+		};
+		if (!bigGrid) {
+			applePool.prewarm(appleCount);
+		}
 
 		// Register ourself for KeyEvents (to the GameGrid)
 		addKeyListener(this);
@@ -41,65 +193,110 @@ public class GameWindow extends GameGrid implements GGKeyListener {
 		// Add Apple's
 		addApples();
 
-		// Show GameGrid
-		show();
+		// Create the (paused) simulation thread: one actAll() per simulation period of the engine
+		engine.setPhaseTimer(timer);
+		if (GameEventLog.ENABLED) {
+			mySnake.eventLog = eventLog;
+			eventLog.writeOnExit();
+		}
+		scheduler = new TickScheduler(new TickScheduler.Task() {
+			public void tick() {
+				if (PhaseTimer.ENABLED || GameEventLog.ENABLED) {
+					recordInterval(getPeriod());
+				}
+				actAll();
+				if (cellView) {
+					long start = PhaseTimer.ENABLED ? System.nanoTime() : 0;
+					renderCells();
+					if (PhaseTimer.ENABLED) {
+						timer.lap(PhaseTimer.RENDER, start);
+					}
+				}
+				if (replay != null && !mySnake.gameFinish && ((ReplayBot) mySnake.bot).isFinished(engine)) {
+					doPause(); // recording stopped during the game
+				}
+			}
 
-		// do one Step --> Generate SnakeBody
-		doStep(); // (not required, if we start with doRun() )
+			public int getPeriod() {
+				return Math.max(1, (int) Math.round(engine.getSimulationPeriod() / speed));
+			}
+		});
+		if (bigGrid) {
+			setCellView(true);
+		}
 	}
 	
 	/**
-	 * Adds as many apples to the GameGrid as defined in APPLE_COUNT.
+	 * Records how far the time since the last tick is off the period, and the tick if it is late (not after a pause).
+	 * @param period simulation period in ms
+	 */
+	private void recordInterval(int period) {
+		long now = System.nanoTime();
+		if (lastTickStart != 0) {
+			long interval = now - lastTickStart;
+			if (PhaseTimer.ENABLED) {
+				timer.record(PhaseTimer.JITTER, Math.abs(interval - period * 1000000L));
+			}
+			if (GameEventLog.ENABLED) {
+				eventLog.tick(engine, interval, period);
+			}
+		}
+		lastTickStart = now;
+	}
+
+	/**
+	 * Adds as many apples to the GameGrid as defined in APPLE_COUNT, at the locations chosen by the engine.
 	 */
 	private void addApples() {
-		for (int i = 0; i < APPLE_COUNT; i++) {
-			Apple aApple = new Apple();
-			appleList.add(aApple); // required for reset
-			addActor(aApple, getRandomEmptyLocation());
+		if (bigGrid) {
+			return; // drawn by the CellRenderer
+		}
+		Location location = new Location();
+		for (int i = 0; i < engine.getAppleCount(); i++) {
+			location.x = engine.getAppleX(i);
+			location.y = engine.getAppleY(i);
+			appleList.add(applePool.acquire(location, 0)); // required for reset (same index as in the engine)
 		}
 	}
 	
 	/**
-	 * Removes all apples from the gameGrid.
+	 * Removes all apples from the gameGrid (they go back to the pool).
 	 */
 	private void removeAllApples() {
-		for (Apple aApple : appleList) {
-			removeActor(aApple);
+		for (int i = 0; i < appleList.size(); i++) {
+			applePool.release(appleList.get(i));
 		}
+		appleList.clear();
+		applePool.hideFree(); // GameGrid.doReset() shows all actors
 	}
 
 	/**
-	 * This method reacts on key events, checks which key got pressed and saves the direction value into the linked list.
+	 * This method reacts on key events, checks which key got pressed and saves the direction value into the queue.
 	 * @param evt KeyEvent
 	 * @return keyEvent has been handled
 	 */
 	public boolean keyPressed(KeyEvent evt) {
 
 		switch (evt.getKeyCode()) {
-		case KeyEvent.VK_UP:
-			if (directionList.size() < MAX_QUEUED_DIRECTIONS) {
-				directionList.add(Location.NORTH);
-			}
+		case KeyEvent.VK_UP: // the queue drops the input if MAX_QUEUED_DIRECTIONS are stored already
+			offer(SnakeEngine.NORTH);
 			break;
 		case KeyEvent.VK_RIGHT:
-			if (directionList.size() < MAX_QUEUED_DIRECTIONS) {
-				directionList.add(Location.EAST);
-			}
+			offer(SnakeEngine.EAST);
 			break;
 		case KeyEvent.VK_DOWN:
-			if (directionList.size() < MAX_QUEUED_DIRECTIONS) {
-				directionList.add(Location.SOUTH);
-			}
+			offer(SnakeEngine.SOUTH);
 			break;
 		case KeyEvent.VK_LEFT:
-			if (directionList.size() < MAX_QUEUED_DIRECTIONS) {
-				directionList.add(Location.WEST);
-			}
+			offer(SnakeEngine.WEST);
 			break;
 			
 		case KeyEvent.VK_ENTER: // start / restart Game / toggle Pause
 		case KeyEvent.VK_P:
 		case KeyEvent.VK_SPACE:
+			if (client != null) {
+				client.send(NetProtocol.TOGGLE); // the server starts, pauses or restarts the game as well
+			}
 			if (mySnake.gameFinish) {
 				doReset();
 				mySnake.reset();
@@ -115,6 +312,9 @@ public class GameWindow extends GameGrid implements GGKeyListener {
 			break;
 			
 		case KeyEvent.VK_R: // reset Game
+			if (client != null) {
+				client.send(NetProtocol.RESET);
+			}
 			doReset();
 			mySnake.reset();
 			setTitle("Press ENTER to start...");
@@ -125,10 +325,208 @@ public class GameWindow extends GameGrid implements GGKeyListener {
 		case KeyEvent.VK_A: // toggle autoChangeColor (change color with every eaten apple)
 			mySnake.autoChangeColor = !mySnake.autoChangeColor;
 			break;
+		case KeyEvent.VK_V: // toggle the view: all actors (GameGrid) / only the changed cells (CellRenderer)
+			if (!bigGrid) { // no actors on big grids
+				setCellView(!cellView);
+			}
+			break;
+		case KeyEvent.VK_B: // toggle the autopilot
+			setAutopilot(mySnake.bot == null);
+			break;
+		case KeyEvent.VK_J: // print the tick timing (jitter) and the actor pools to the console
+			System.out.println(scheduler);
+			System.out.println("SnakeBody pool: " + mySnake.getBodyPool());
+			System.out.println("Apple pool: " + applePool);
+			break;
+		case KeyEvent.VK_E: // print the recorded game events to the console
+			if (eventLog == null) {
+				System.out.println("Game events are off, start with -Dsnake.events=file");
+			}
+			else {
+				eventLog.print(new PrintWriter(System.out));
+			}
+			break;
+		case KeyEvent.VK_S: // save the game (pauses it)
+			saveSnapshot(snapshotFile);
+			break;
+		case KeyEvent.VK_L: // load the saved game (paused)
+			loadSnapshot(snapshotFile);
+			break;
+		case KeyEvent.VK_Z: // one second back (pauses the game)
+			rewind(-1);
+			break;
+		case KeyEvent.VK_X: // one second forward again, up to the newest step
+			rewind(1);
+			break;
+		case KeyEvent.VK_H: // print the best scores to the console
+			if (mySnake.highScores == null) {
+				System.out.println("No high scores (replay, or the file could not be opened)");
+			}
+			else {
+				for (HighScoreLog.Entry entry : mySnake.highScores.getTopScores(HIGH_SCORES_SHOWN)) {
+					System.out.println(entry);
+				}
+			}
+			break;
+		case KeyEvent.VK_T: // print the phase timing of the ticks to the console and start again
+			if (timer == null) {
+				System.out.println("Phase timing is off, start with -Dsnake.timing=true");
+			}
+			else {
+				System.out.print(timer);
+				timer.reset();
+			}
+			break;
 		}
 		return true; // true = key event is handled
 	}
 
+	/**
+	 * Queues the direction of a key, or sends it to the server (which queues it the same way).
+	 */
+	private void offer(int direction) {
+		if (client != null) {
+			client.send(direction);
+		}
+		else {
+			directionList.offer(direction);
+		}
+	}
+
+	/**
+	 * Lets the autopilot play instead of the keyboard (not during a replay).
+	 * Call it on the thread of the key listener, it clears the key-inputs when the keyboard takes over again.
+	 * @param on true = autopilot, false = keyboard
+	 */
+	public void setAutopilot(boolean on) {
+		if (replay != null || client != null) {
+			return;
+		}
+		if (on) {
+			mySnake.bot = autopilot; // finds out itself that it did not play the last step
+		}
+		else {
+			mySnake.bot = null;
+			directionList.clear(engine.getDirection());
+		}
+	}
+
+	/**
+	 * Records the final score of every game (not during a replay, key H shows the best ones).
+	 * @param highScores log of the scores, null = no high scores
+	 */
+	public void setHighScores(HighScoreLog highScores) {
+		if (replay != null) {
+			return;
+		}
+		mySnake.highScores = highScores;
+	}
+
+	/**
+	 * @return true, if the game can be saved, loaded and rewound (not during a replay, a recording or a game of a server)
+	 */
+	private boolean canChangeState() {
+		if (replay != null || recorder != null || client != null) {
+			String message = "Not possible during a replay, a recording or a game of a server";
+			System.err.println(message);
+			setTitle(message); // like the results of save and load
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Pauses the game and saves it into the file.
+	 * @return false = not possible now (see canChangeState()), or the file could not be written
+	 */
+	public boolean saveSnapshot(Path file) {
+		if (!canChangeState()) {
+			return false;
+		}
+		doPause();
+		try {
+			GameSnapshot.write(engine, file);
+		}
+		catch (IOException e) {
+			String message = "Game not saved: " + e;
+			System.err.println(message);
+			setTitle(message);
+			return false;
+		}
+		setTitle("Saved to " + file + " (ENTER goes on)");
+		return true;
+	}
+
+	/**
+	 * Pauses the game and loads the saved one, S saves into the same file afterwards.
+	 * @param file snapshot of a game with the same grid and the same amount of apples
+	 * @return false = not possible now (see canChangeState()), or the file could not be loaded
+	 */
+	public boolean loadSnapshot(Path file) {
+		if (!canChangeState()) {
+			return false;
+		}
+		doPause();
+		try {
+			GameSnapshot.read(file, engine);
+		}
+		catch (IllegalArgumentException e) {
+			String message = "Game not loaded: " + e.getMessage(); // another grid, the engine did not change
+			System.err.println(message);
+			setTitle(message);
+			return false;
+		}
+		catch (IOException e) {
+			String message = "Game not loaded: " + e; // the name of the exception tells more than its message (e.g. only the file)
+			System.err.println(message);
+			doReset(); // the engine could be half loaded
+			mySnake.reset();
+			setTitle(message + " (new game)"); // after the reset, which shows "New Game..."
+			return false;
+		}
+		snapshotFile = file;
+		rewind.reset(engine);
+		showChangedState();
+		setTitle("Loaded " + file + " (ENTER goes on)");
+		return true;
+	}
+
+	/**
+	 * Pauses the game and moves it back in time (or forward again up to the newest step), ENTER goes on from there.
+	 * @param seconds simulated seconds at the current speed, negative = back
+	 */
+	public void rewind(int seconds) {
+		if (!canChangeState()) {
+			return;
+		}
+		doPause();
+		rewind.seek(engine, engine.getTick() + seconds * 1000L / engine.getSimulationPeriod());
+		showChangedState();
+		setTitle("Tick " + engine.getTick() + " of " + rewind.getNewestTick() + " | Score: " + engine.getScore()
+				+ " (Z back, X forward, ENTER goes on)");
+	}
+
+	/**
+	 * Shows the engine after it took over another state (a snapshot, or a rewind).
+	 */
+	private void showChangedState() {
+		removeAllApples();
+		addApples();
+		mySnake.reset();
+		mySnake.initSnake();
+		mySnake.gameFinish = engine.isGameFinish(); // ENTER starts a new game
+		if (GameEventLog.ENABLED) {
+			eventLog.reset(engine);
+		}
+		if (cellView) {
+			cellRenderer.invalidate();
+			renderCells(); // the game is paused, the simulation thread does not draw
+		}
+		else {
+			refresh();
+		}
+	}
+
 	/**
 	 * Resets the game to the start conditions and initializes the snake and the apples.
 	 */
@@ -137,13 +535,167 @@ public class GameWindow extends GameGrid implements GGKeyListener {
 
 		setTitle("New Game...");
 
+		if (replay != null) {
+			if (engine.isGameFinish()) {
+				replayGame = (replayGame + 1) % replay.getGameCount(); // show the next game
+			}
+			startReplayGame();
+		}
+		else {
+			if (recorder != null) {
+				stopRecording(); // the game did not end yet
+			}
+			if (client == null) { // the snapshot of the server resets the engine
+				engine.reset();
+			}
+			if (recorder != null) {
+				startRecording();
+			}
+		}
 		removeAllApples();
 		addApples();
 
 		mySnake.reset();
 		mySnake.initSnake();
+		rewind.reset(engine);
+		if (GameEventLog.ENABLED) {
+			eventLog.reset(engine);
+		}
+
+		if (cellView) {
+			cellRenderer.invalidate();
+			renderCells(); // the game is paused, the simulation thread does not draw
+		}
+	}
+
+	/**
+	 * Switches between the views. The cell view draws only the cells the engine changed in the last step
+	 * into its back buffer and copies only these cells to the window, the GameGrid does not draw anymore.
+	 * @param on true = cell view, false = actors drawn by the GameGrid
+	 */
+	public void setCellView(boolean on) {
+		if (on && cellRenderer == null) {
+			cellRenderer = new CellRenderer(engine, GRID_SIZE, mySnake.getNbSprites(), getBgColor(), GRID_COLOR,
+					getNbHorzCells(), getNbVertCells());
+		}
+		cellView = on;
+		setRefreshEnable(!on);
+		if (on) {
+			cellRenderer.invalidate();
+			if (isPaused()) {
+				renderCells(); // otherwise the next tick draws
+			}
+		}
+		else {
+			refresh();
+		}
+	}
+
+	/**
+	 * Draws the changed cells directly into the window (active rendering, no repaint() of the whole window).
+	 */
+	private void renderCells() {
+		Graphics screen = getGraphics(); // null = not shown yet, only the back buffer gets drawn
+		cellRenderer.render(screen, mySnake.getColor());
+		if (screen != null) {
+			screen.dispose();
+			Toolkit.getDefaultToolkit().sync();
+		}
+	}
+
+	/**
+	 * Draws the back buffer of the cell view when the system repaints the window.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		if (cellView) {
+			cellRenderer.paint(g);
+		}
+		else {
+			super.paint(g);
+		}
+	}
+
+	@Override
+	public void update(Graphics g) {
+		if (cellView) {
+			paint(g); // do not clear the window first
+		}
+		else {
+			super.update(g);
+		}
 	}
 	
+	/**
+	 * Resets the engine with the seed of the current replay game and lets the bot play it.
+	 */
+	private void startReplayGame() {
+		Replay.Game game = replay.getGame(replayGame);
+		engine.reset(game.getSeed());
+		mySnake.bot = new ReplayBot(game);
+	}
+
+	/**
+	 * Starts the current game of the engine in the replay file.
+	 */
+	private void startRecording() {
+		try {
+			recorder.startGame(engine);
+		}
+		catch (IOException e) {
+			System.err.println("Recording stopped: " + e);
+			recorder = null;
+			mySnake.recorder = null;
+		}
+	}
+
+	/**
+	 * Ends the current game of the engine in the replay file.
+	 */
+	private void stopRecording() {
+		try {
+			recorder.endGame(engine);
+		}
+		catch (IOException e) {
+			System.err.println("Recording stopped: " + e);
+			recorder = null;
+			mySnake.recorder = null;
+		}
+	}
+
+	/**
+	 * Starts the simulation. Our TickScheduler runs it, the GameGrid thread only does single steps.
+	 */
+	@Override
+	public void doRun() {
+		if (scheduler != null) {
+			lastTickStart = 0; // the pause is no jitter
+			scheduler.resume();
+		}
+	}
+
+	/**
+	 * Pauses the simulation (also called by the GameGrid on reset and by the snake at the end of a game).
+	 * Waits for a running tick, so the game can be changed afterwards on this thread.
+	 */
+	@Override
+	public void doPause() {
+		if (scheduler != null) { // GameGrid calls it before our constructor
+			scheduler.pause();
+		}
+		super.doPause();
+	}
+
+	@Override
+	public boolean isPaused() {
+		return scheduler == null || scheduler.isPaused();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return !isPaused();
+	}
+
 	@Override
 	public boolean keyReleased(KeyEvent evt) {
 		// not used
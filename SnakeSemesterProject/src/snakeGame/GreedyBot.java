@@ -0,0 +1,72 @@
+package snakeGame;
+
+import java.util.Random;
+
+/**
+ * Simple bot: goes to the nearest apple (Manhattan distance) and never steps on the border or the body,
+ * if there is another way. Looks only one step ahead, so it can trap itself.
+ */
+public class GreedyBot implements SnakeBot {
+
+	public static final Factory FACTORY = new Factory() {
+		public SnakeBot create(long seed) {
+			return new GreedyBot(seed);
+		}
+	};
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final Random random;
+
+	public GreedyBot(long seed) {
+		random = new Random(seed);
+	}
+
+	@Override
+	public int nextDirection(SnakeEngine engine) {
+		int current = engine.getDirection();
+		int best = SnakeEngine.NO_DIRECTION;
+		int bestDistance = Integer.MAX_VALUE;
+		int ties = 0;
+
+		for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+			if (direction == SnakeEngine.opposite(current)) {
+				continue;
+			}
+			int x = engine.getHeadX() + DX[direction];
+			int y = engine.getHeadY() + DY[direction];
+			byte occupant = engine.getOccupant(x, y);
+			if (occupant == SnakeEngine.WALL || occupant == SnakeEngine.BODY) {
+				continue;
+			}
+
+			int distance = distanceToApple(engine, x, y);
+			if (distance < bestDistance) {
+				best = direction;
+				bestDistance = distance;
+				ties = 1;
+			}
+			else if (distance == bestDistance && random.nextInt(++ties) == 0) {
+				best = direction; // choose one of the equal directions by chance
+			}
+		}
+		return best;
+	}
+
+	private static int distanceToApple(SnakeEngine engine, int x, int y) {
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < engine.getAppleCount(); i++) {
+			int distance = Math.abs(engine.getAppleX(i) - x) + Math.abs(engine.getAppleY(i) - y);
+			if (distance < min) {
+				min = distance;
+			}
+		}
+		return min;
+	}
+
+	@Override
+	public void reset(long seed) {
+		random.setSeed(seed);
+	}
+}
@@ -0,0 +1,373 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the result of every finished game in a file, an append-only log of fixed size records
+ * accessed through memory mapped chunks of the file.
+ *
+ * record() only queues the result and never waits, a writer thread appends it. The checksum of a record
+ * gets written last, so a record which was not written completely (crash) does not count and gets
+ * overwritten by the next one. The best scores are kept in an index which is built with the first query
+ * (one pass over the file) and updated with every new record, a query only copies it.
+ */
+public class HighScoreLog {
+
+	private static final int MAGIC = 0x534E4B48; // "SNKH"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16; // magic, version, record size, reserved
+	private static final int RECORD = 32; // time, score, apples, length, ticks, width / height, checksum
+	private static final int RECORDS_PER_CHUNK = 1 << 16; // 2 MB per mapped chunk
+	private static final int CHUNK = RECORDS_PER_CHUNK * RECORD;
+	private static final int WON = 0x8000; // highest bit of the width
+
+	public static final int TOP_MAX = 1000; // max. size of the index
+
+	/**
+	 * Result of one game.
+	 */
+	public static class Entry {
+		public final long time; // System.currentTimeMillis() at the end of the game
+		public final int score;
+		public final int apples;
+		public final int length; // with the head
+		public final int ticks;
+		public final int width;
+		public final int height;
+		public final boolean won;
+
+		public Entry(long time, int score, int apples, int length, int ticks, int width, int height, boolean won) {
+			this.time = time;
+			this.score = score;
+			this.apples = apples;
+			this.length = length;
+			this.ticks = ticks;
+			this.width = width;
+			this.height = height;
+			this.won = won;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%tF %<tR | score %d | apples %d | length %d | ticks %d | %dx%d%s",
+					time, score, apples, length, ticks, width, height, won ? " | won" : "");
+		}
+	}
+
+	private final FileChannel channel;
+	private final ArrayList<MappedByteBuffer> chunks = new ArrayList<MappedByteBuffer>();
+	private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+	private final Thread writer;
+	private volatile boolean closed;
+	private volatile long count; // complete records in the file
+
+	// best scores (descending), null = not built yet, written under the lock, replaced (never changed) when it changes
+	private volatile Entry[] top;
+	private final Object topLock = new Object();
+
+	/**
+	 * Opens or creates the log and starts the writer thread.
+	 * @param file log of the scores
+	 */
+	public HighScoreLog(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER);
+				header.putInt(MAGIC).putInt(VERSION).putInt(RECORD).putInt(0).flip();
+				channel.write(header, 0);
+			}
+			else {
+				ByteBuffer header = ByteBuffer.allocate(HEADER);
+				channel.read(header, 0);
+				header.flip();
+				if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD) {
+					throw new IOException(file + " is no high score log");
+				}
+			}
+			for (long size = channel.size() - HEADER; (long) chunks.size() * CHUNK < size; ) {
+				map();
+			}
+			count = findEnd();
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "Snake HighScoreLog");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Maps the next chunk, the file grows with it.
+	 */
+	private void map() throws IOException {
+		chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, HEADER + (long) chunks.size() * CHUNK, CHUNK));
+	}
+
+	/**
+	 * @return amount of complete records: the records are written in order, so all records up to the first
+	 * 		empty one are written. Binary search, the last one gets checked (written completely?).
+	 */
+	private long findEnd() {
+		long low = 0;
+		long high = (long) chunks.size() * RECORDS_PER_CHUNK;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (checksumAt(middle) != 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		if (low > 0 && readChecksum(low - 1) != checksumAt(low - 1)) {
+			low--; // torn record of a crash, gets overwritten
+		}
+		return low;
+	}
+
+	/**
+	 * Queues the result of the finished game (any thread, never waits).
+	 */
+	public void record(SnakeEngine engine) {
+		record(new Entry(System.currentTimeMillis(), engine.getScore(), engine.getAppleEaten(), engine.getLength() + 1,
+				(int) Math.min(Integer.MAX_VALUE, engine.getTick()), engine.getWidth(), engine.getHeight(), engine.isGameWon()));
+	}
+
+	/**
+	 * Queues the entry (any thread, never waits).
+	 */
+	public void record(Entry entry) {
+		if (closed) {
+			return;
+		}
+		queue.add(entry);
+		LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Loop of the writer thread: appends the queued entries until the log gets closed.
+	 */
+	private void write() {
+		while (true) {
+			Entry entry = queue.poll();
+			if (entry == null) {
+				if (closed) {
+					return;
+				}
+				LockSupport.park(this);
+				continue;
+			}
+			try {
+				append(entry);
+			}
+			catch (IOException e) {
+				System.err.println("High score not written: " + e);
+			}
+		}
+	}
+
+	private void append(Entry entry) throws IOException {
+		long index = count;
+		if (index / RECORDS_PER_CHUNK >= chunks.size()) {
+			map();
+		}
+		ByteBuffer chunk = chunks.get((int) (index / RECORDS_PER_CHUNK));
+		int position = (int) (index % RECORDS_PER_CHUNK) * RECORD;
+		chunk.putLong(position, entry.time);
+		chunk.putInt(position + 8, entry.score);
+		chunk.putInt(position + 12, entry.apples);
+		chunk.putInt(position + 16, entry.length);
+		chunk.putInt(position + 20, entry.ticks);
+		chunk.putInt(position + 24, (entry.width | (entry.won ? WON : 0)) << 16 | entry.height);
+		chunk.putInt(position + 28, checksumAt(index)); // last: the record is complete
+		count = index + 1;
+
+		synchronized (topLock) {
+			if (top != null) {
+				top = insert(top, entry);
+			}
+		}
+	}
+
+	/**
+	 * @return the entries with the new one at its place, the same array if it is not good enough
+	 */
+	private static Entry[] insert(Entry[] best, Entry entry) {
+		if (best.length == TOP_MAX && entry.score <= best[TOP_MAX - 1].score) {
+			return best;
+		}
+		int place = best.length;
+		while (place > 0 && best[place - 1].score < entry.score) {
+			place--; // same score: the older entry stays in front
+		}
+		Entry[] next = Arrays.copyOf(best, Math.min(TOP_MAX, best.length + 1));
+		System.arraycopy(best, place, next, place + 1, next.length - place - 1);
+		next[place] = entry;
+		return next;
+	}
+
+	/**
+	 * @param amount max. amount of entries (up to TOP_MAX)
+	 * @return the best scores, the best first. The first call reads the whole log.
+	 */
+	public Entry[] getTopScores(int amount) {
+		Entry[] best = top;
+		if (best == null) {
+			synchronized (topLock) {
+				if (top == null) {
+					top = build();
+				}
+				best = top;
+			}
+		}
+		return Arrays.copyOf(best, Math.min(amount, best.length));
+	}
+
+	/**
+	 * Reads all records of the file into a new index (under the lock, so the writer waits).
+	 */
+	private Entry[] build() {
+		long records = count;
+		int[] scores = new int[TOP_MAX]; // min-heap of the best scores
+		long[] indices = new long[TOP_MAX];
+		int size = 0;
+		for (long i = 0; i < records; i++) {
+			ByteBuffer chunk = chunks.get((int) (i / RECORDS_PER_CHUNK));
+			int score = chunk.getInt((int) (i % RECORDS_PER_CHUNK) * RECORD + 8);
+			if (size < TOP_MAX) {
+				scores[size] = score;
+				indices[size] = i;
+				siftUp(scores, indices, size++);
+			}
+			else if (score > scores[0]) {
+				scores[0] = score;
+				indices[0] = i;
+				siftDown(scores, indices, size);
+			}
+		}
+
+		long[] sorted = Arrays.copyOf(indices, size);
+		Arrays.sort(sorted); // older first, so insert() keeps them in front of newer ones with the same score
+		Entry[] best = new Entry[0];
+		for (long index : sorted) {
+			best = insert(best, read(index));
+		}
+		return best;
+	}
+
+	private static void siftUp(int[] scores, long[] indices, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (scores[parent] <= scores[i]) {
+				return;
+			}
+			swap(scores, indices, i, parent);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] scores, long[] indices, int size) {
+		int i = 0;
+		while (true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			if (left < size && scores[left] < scores[smallest]) {
+				smallest = left;
+			}
+			if (left + 1 < size && scores[left + 1] < scores[smallest]) {
+				smallest = left + 1;
+			}
+			if (smallest == i) {
+				return;
+			}
+			swap(scores, indices, i, smallest);
+			i = smallest;
+		}
+	}
+
+	private static void swap(int[] scores, long[] indices, int i, int j) {
+		int score = scores[i];
+		scores[i] = scores[j];
+		scores[j] = score;
+		long index = indices[i];
+		indices[i] = indices[j];
+		indices[j] = index;
+	}
+
+	/**
+	 * @return the record with the index
+	 */
+	public Entry read(long index) {
+		ByteBuffer chunk = chunks.get((int) (index / RECORDS_PER_CHUNK));
+		int position = (int) (index % RECORDS_PER_CHUNK) * RECORD;
+		int size = chunk.getInt(position + 24);
+		return new Entry(chunk.getLong(position), chunk.getInt(position + 8), chunk.getInt(position + 12),
+				chunk.getInt(position + 16), chunk.getInt(position + 20), (size >>> 16) & ~WON, size & 0xFFFF, (size >>> 16 & WON) != 0);
+	}
+
+	/**
+	 * @return checksum stored in the record
+	 */
+	private int readChecksum(long index) {
+		return chunks.get((int) (index / RECORDS_PER_CHUNK)).getInt((int) (index % RECORDS_PER_CHUNK) * RECORD + 28);
+	}
+
+	/**
+	 * @return checksum of the first 28 bytes of the record, 0 if they are all 0 (empty record), otherwise never 0
+	 */
+	private int checksumAt(long index) {
+		ByteBuffer chunk = chunks.get((int) (index / RECORDS_PER_CHUNK));
+		int position = (int) (index % RECORDS_PER_CHUNK) * RECORD;
+		int hash = 0;
+		boolean empty = true;
+		for (int i = 0; i < 28; i += 4) {
+			int value = chunk.getInt(position + i);
+			empty &= value == 0;
+			hash = (hash ^ value) * 0x01000193; // FNV
+		}
+		return empty ? 0 : hash | 1;
+	}
+
+	/**
+	 * @return amount of records in the file (queued ones not yet)
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes the queued entries, flushes the file and closes it.
+	 */
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+		channel.close();
+	}
+}
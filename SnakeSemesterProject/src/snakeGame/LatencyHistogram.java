@@ -0,0 +1,108 @@
+package snakeGame;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of nanosecond durations with a fixed amount of memory and without locks.
+ *
+ * The buckets are log-linear: every power of two is split into SUB_COUNT buckets, so a percentile
+ * is at most 1/16 (6%) too high. Values below 32 are exact. record() only uses atomic adds, so it can
+ * be called from any thread while another thread reads the percentiles (which may miss the newest values).
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS; // buckets per power of two
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT; // up to Long.MAX_VALUE
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Adds a duration, negative values count as 0.
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+
+		long old = max.get();
+		while (nanos > old && !max.compareAndSet(old, nanos)) {
+			old = max.get();
+		}
+	}
+
+	/**
+	 * Forgets all durations. Values recorded at the same time can get lost or counted partly.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * @return amount of recorded durations
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return longest recorded duration in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile 0.5 = median, 0.99 = 99th percentile, ...
+	 * @return highest value of the bucket with the quantile (never above the maximum), 0 = nothing recorded
+	 */
+	public long getPercentile(double quantile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS && total > 0; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), getMax());
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return index of the bucket of the value (>= 0)
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * @return highest value that falls into the bucket
+	 */
+	private static long highestValue(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_COUNT - 1; // exponent - SUB_BITS
+		long lowest = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,548 @@
+package snakeGame;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol between the GameServer and its clients.
+ *
+ * Client to server: one byte per command, DIRECTION (NORTH .. WEST, the same values the keys queue), TOGGLE or RESET.
+ *
+ * Server to client: frames, a varint with the length and the payload. The first byte of the payload is the header:
+ * SNAPSHOT (whole state, sent on connect, reset and when a client fell behind) or a delta of one step:
+ * bits 0-1 direction of the head, then GROW, APPLE, GAME_OVER and GAME_WON. Tail and head position follow from the
+ * direction and the growth, so a step without an apple is one byte (two with the length).
+ * An APPLE delta adds the index of the apple, its new cell (not if the game got won) and the score.
+ * Snapshots can have up to 2 MB, enough for grids up to GameServer.MAX_GRID.
+ *
+ * Arena match (all connections share one Arena): ARENA_SNAPSHOT (whole arena and the snake of the client)
+ * or ARENA_TICK with the direction every snake moved in the tick, 2 bits per snake. The client steps its own copy
+ * of the arena with these directions: apples and new snakes come from the same random state, so heads, tails
+ * and apples follow without being sent.
+ */
+public class NetProtocol {
+
+	// client commands
+	public static final int TOGGLE = 4;		// start / pause, starts a new game if the game is finished
+	public static final int RESET = 5;		// new game, paused
+
+	// header of a frame
+	static final int SNAPSHOT = 0x80;
+	static final int ARENA_SNAPSHOT = 0x81;
+	static final int ARENA_TICK = 0x01;
+	private static final int DIRECTION_MASK = 0x03;
+	private static final int GROW = 0x04;
+	private static final int APPLE = 0x08;
+	private static final int GAME_OVER = 0x10;
+	private static final int GAME_WON = 0x20;
+	private static final int HEAD_ON_NECK = 0x40; // snapshot: the head did not move at the border, no direction to the head
+
+	private static final int SNAPSHOT_FIXED_MAX = 80; // everything but the body and the apples (varints)
+	private static final int ARENA_SNAKE_MAX = 27; // flags, length, expand, score, deaths, tail cell and the last bits of the body
+	private static final int ALIVE = 0x04; // arena snapshot: flags of a snake, bits 0-1 are the direction
+	static final int MAX_FRAME = (1 << 21) + 3; // length of a snapshot: max. 3 varint bytes
+
+	private NetProtocol() {
+	}
+
+	/**
+	 * @return max. size of a snapshot of the engine with its length prefix
+	 */
+	public static int maxSnapshotSize(SnakeEngine engine) {
+		int cells = engine.getWidth() * engine.getHeight();
+		return SNAPSHOT_FIXED_MAX + cells / 4 + 1 + engine.getAppleCount() * 5;
+	}
+
+	/**
+	 * @return max. size of the state of the engine now (putState()), the body needs 2 bits per square
+	 */
+	static int stateSize(SnakeEngine engine) {
+		return SNAPSHOT_FIXED_MAX + (engine.getLength() + 3) / 4 + engine.getAppleCount() * 5;
+	}
+
+	/**
+	 * @return max. size of a snapshot of the arena with its length prefix
+	 */
+	public static int maxArenaSnapshotSize(Arena arena) {
+		int cells = arena.getWidth() * arena.getHeight();
+		return SNAPSHOT_FIXED_MAX + cells / 4 + arena.getSnakeCount() * ARENA_SNAKE_MAX + arena.getAppleCount() * 5;
+	}
+
+	/**
+	 * @return size of a tick frame of the arena with its length prefix
+	 */
+	public static int arenaTickSize(Arena arena) {
+		return 4 + (arena.getSnakeCount() + 3) / 4;
+	}
+
+	/**
+	 * Writes the frame of one step.
+	 * @param engine state after the step
+	 * @param events result of SnakeEngine.step()
+	 */
+	public static void putDelta(ByteBuffer out, SnakeEngine engine, int events) {
+		int header = engine.getDirection();
+		header |= (events & SnakeEngine.EVENT_GROW) != 0 ? GROW : 0;
+		header |= (events & SnakeEngine.EVENT_GAME_OVER) != 0 ? GAME_OVER : 0;
+		header |= (events & SnakeEngine.EVENT_GAME_WON) != 0 ? GAME_WON : 0;
+		int apple = engine.getEatenApple();
+		if (apple < 0) {
+			out.put((byte) 1); // length
+			out.put((byte) header);
+			return;
+		}
+
+		int start = out.position();
+		out.put((byte) 0); // length, fits into one byte
+		out.put((byte) (header | APPLE));
+		putVarint(out, apple);
+		if ((events & SnakeEngine.EVENT_GAME_WON) == 0) {
+			putVarint(out, engine.getAppleCell(apple));
+		}
+		putVarint(out, engine.getScore());
+		out.put(start, (byte) (out.position() - start - 1));
+	}
+
+	/**
+	 * Writes the whole state of the engine. The body goes as the tail cell and 2 bits per square towards the head.
+	 */
+	public static void putSnapshot(ByteBuffer out, SnakeEngine engine) {
+		int start = out.position();
+		out.position(start + 3); // length: max. 3 bytes (up to 2 MB), written at the end
+		out.put((byte) SNAPSHOT);
+		putState(out, engine);
+
+		int size = out.position() - start - 3;
+		out.put(start, (byte) (size | 0x80));
+		out.put(start + 1, (byte) ((size >>> 7) | 0x80));
+		out.put(start + 2, (byte) (size >>> 14));
+	}
+
+	/**
+	 * Writes the whole state of the engine (content of a snapshot, also used by GameSnapshot).
+	 * The body goes as the tail cell and 2 bits per square towards the head.
+	 */
+	static void putState(ByteBuffer out, SnakeEngine engine) {
+		putVarint(out, engine.getWidth());
+		putVarint(out, engine.getHeight());
+		putVarint(out, engine.getAppleCount());
+		putVarlong(out, engine.getTick());
+		putVarlong(out, engine.getClock());
+		putVarlong(out, engine.getNextInterval());
+		putVarint(out, engine.getTimeLeft());
+		putVarint(out, engine.getSimulationPeriod());
+		putVarint(out, engine.getSpeedPercent());
+		putVarint(out, engine.getScore());
+		putVarint(out, engine.getAppleEaten());
+		putVarint(out, engine.getExpandSnakeLength());
+		int length = engine.getLength();
+		int headCell = engine.toCell(engine.getHeadX(), engine.getHeadY());
+		boolean headOnNeck = headCell == engine.getBodyCellAt(engine.getBodySlot(0));
+		out.put((byte) (engine.getDirection() | (engine.isGameFinish() ? GAME_OVER : 0) | (engine.isGameWon() ? GAME_WON : 0)
+				| (headOnNeck ? HEAD_ON_NECK : 0)));
+
+		putVarint(out, length);
+		int cell = engine.getBodyCellAt(engine.getBodySlot(length - 1)); // tail
+		putVarint(out, cell);
+		int bits = 0;
+		int bitCount = 0;
+		for (int i = length - 2; i >= -1; i--) { // the squares after the tail, the head last
+			int next = i >= 0 ? engine.getBodyCellAt(engine.getBodySlot(i)) : headCell;
+			bits |= (next != cell ? direction(cell, next) : 0) << bitCount;
+			bitCount += 2;
+			if (bitCount == 8) {
+				out.put((byte) bits);
+				bits = 0;
+				bitCount = 0;
+			}
+			cell = next;
+		}
+		if (bitCount > 0) {
+			out.put((byte) bits);
+		}
+
+		for (int i = 0; i < engine.getAppleCount(); i++) {
+			putVarint(out, engine.getAppleCell(i) + 1); // -1 = not placed
+		}
+	}
+
+	/**
+	 * Writes the whole arena (like putSnapshot()). Width, height and apples are at the same place as in a snapshot of an engine.
+	 * @param ownSnake snake of the client, -1 = only watches
+	 */
+	public static void putArenaSnapshot(ByteBuffer out, Arena arena, int ownSnake) {
+		int start = out.position();
+		out.position(start + 3); // length: max. 3 bytes (up to 2 MB), written at the end
+		out.put((byte) ARENA_SNAPSHOT);
+		putVarint(out, arena.getWidth());
+		putVarint(out, arena.getHeight());
+		putVarint(out, arena.getAppleCount());
+		putVarint(out, arena.getSnakeCount());
+		putVarint(out, ownSnake + 1);
+		putVarlong(out, arena.getSeed());
+		putVarlong(out, arena.getTick());
+		putVarlong(out, arena.getRandomState());
+		putVarlong(out, arena.getApplesEaten());
+
+		for (int snake = 0; snake < arena.getSnakeCount(); snake++) {
+			boolean alive = arena.isAlive(snake);
+			int length = arena.getLength(snake);
+			out.put((byte) (arena.getDirection(snake) | (alive ? ALIVE : 0)));
+			putVarint(out, length);
+			putVarint(out, arena.getExpand(snake));
+			putVarint(out, arena.getScore(snake));
+			putVarint(out, arena.getDeaths(snake));
+			if (!alive) {
+				continue;
+			}
+			int cell = arena.getBodyCell(snake, 0); // tail, then 2 bits per square towards the head
+			putVarint(out, cell);
+			int bits = 0;
+			int bitCount = 0;
+			for (int i = 1; i < length; i++) {
+				int next = arena.getBodyCell(snake, i);
+				bits |= direction(cell, next) << bitCount;
+				bitCount += 2;
+				if (bitCount == 8) {
+					out.put((byte) bits);
+					bits = 0;
+					bitCount = 0;
+				}
+				cell = next;
+			}
+			if (bitCount > 0) {
+				out.put((byte) bits);
+			}
+		}
+		for (int apple = 0; apple < arena.getAppleCount(); apple++) {
+			putVarint(out, arena.getAppleCell(apple) + 1); // -1 = not placed
+		}
+
+		int size = out.position() - start - 3;
+		out.put(start, (byte) (size | 0x80));
+		out.put(start + 1, (byte) ((size >>> 7) | 0x80));
+		out.put(start + 2, (byte) (size >>> 14));
+	}
+
+	/**
+	 * Writes the frame of one step of the arena: the direction of every snake, 2 bits each (undefined for dead snakes).
+	 */
+	public static void putArenaTick(ByteBuffer out, Arena arena) {
+		putVarint(out, 1 + (arena.getSnakeCount() + 3) / 4);
+		out.put((byte) ARENA_TICK);
+		int bits = 0;
+		int bitCount = 0;
+		for (int snake = 0; snake < arena.getSnakeCount(); snake++) {
+			bits |= arena.getMoveDirection(snake) << bitCount;
+			bitCount += 2;
+			if (bitCount == 8) {
+				out.put((byte) bits);
+				bits = 0;
+				bitCount = 0;
+			}
+		}
+		if (bitCount > 0) {
+			out.put((byte) bits);
+		}
+	}
+
+	/**
+	 * @return direction of the step from the cell to the next one (neighbours)
+	 */
+	private static int direction(int cell, int next) {
+		if (next == cell + 1) {
+			return SnakeEngine.EAST;
+		}
+		if (next == cell - 1) {
+			return SnakeEngine.WEST;
+		}
+		return next > cell ? SnakeEngine.SOUTH : SnakeEngine.NORTH;
+	}
+
+	/**
+	 * @return length of the frame at the position of the buffer (the position moves behind the length),
+	 * 		-1 = the length is not complete yet (the position stays)
+	 */
+	public static int getFrameLength(ByteBuffer in) {
+		int start = in.position();
+		try {
+			return getVarint(in);
+		}
+		catch (BufferUnderflowException e) {
+			in.position(start);
+			return -1;
+		}
+	}
+
+	/**
+	 * @return width of the grid, the frame has to be a snapshot (the position does not change)
+	 */
+	public static int getSnapshotWidth(ByteBuffer frame) {
+		ByteBuffer in = frame.duplicate();
+		in.position(in.position() + 1);
+		return getVarint(in);
+	}
+
+	/**
+	 * @return height of the grid, the frame has to be a snapshot (the position does not change)
+	 */
+	public static int getSnapshotHeight(ByteBuffer frame) {
+		ByteBuffer in = frame.duplicate();
+		in.position(in.position() + 1);
+		getVarint(in);
+		return getVarint(in);
+	}
+
+	/**
+	 * @return amount of apples, the frame has to be a snapshot (the position does not change)
+	 */
+	public static int getSnapshotAppleCount(ByteBuffer frame) {
+		ByteBuffer in = frame.duplicate();
+		in.position(in.position() + 1);
+		getVarint(in);
+		getVarint(in);
+		return getVarint(in);
+	}
+
+	/**
+	 * @return amount of snakes, the frame has to be an arena snapshot (the position does not change)
+	 */
+	public static int getArenaSnakeCount(ByteBuffer frame) {
+		ByteBuffer in = frame.duplicate();
+		in.position(in.position() + 1);
+		getVarint(in);
+		getVarint(in);
+		getVarint(in);
+		return getVarint(in);
+	}
+
+	/**
+	 * @return snake of the client, -1 = only watches, the frame has to be an arena snapshot (the position does not change)
+	 */
+	public static int getArenaOwnSnake(ByteBuffer frame) {
+		ByteBuffer in = frame.duplicate();
+		in.position(in.position() + 1);
+		getVarint(in);
+		getVarint(in);
+		getVarint(in);
+		getVarint(in);
+		return getVarint(in) - 1;
+	}
+
+	/**
+	 * @return true, if the frame (at the position) is a snapshot of an arena match
+	 */
+	public static boolean isArenaSnapshot(ByteBuffer frame) {
+		return (frame.get(frame.position()) & 0xFF) == ARENA_SNAPSHOT;
+	}
+
+	/**
+	 * @return true, if the frame (at the position) is a snapshot
+	 */
+	public static boolean isSnapshot(ByteBuffer frame) {
+		return (frame.get(frame.position()) & SNAPSHOT) != 0;
+	}
+
+	/**
+	 * Applies the frame (payload without the length) to the engine of the client.
+	 * @param engine same grid and amount of apples as the server
+	 * @return EVENT_* flags of the step, 0 for a snapshot
+	 */
+	public static int apply(ByteBuffer frame, SnakeEngine engine, int[] cells, int[] apples) {
+		int header = frame.get() & 0xFF;
+		if ((header & SNAPSHOT) != 0) {
+			loadState(frame, engine, cells, apples);
+			return 0;
+		}
+
+		int events = 0;
+		events |= (header & GROW) != 0 ? SnakeEngine.EVENT_GROW : 0;
+		events |= (header & GAME_OVER) != 0 ? SnakeEngine.EVENT_GAME_OVER : 0;
+		events |= (header & GAME_WON) != 0 ? SnakeEngine.EVENT_GAME_WON : 0;
+		int apple = -1;
+		int appleCell = -1;
+		int score = engine.getScore();
+		if ((header & APPLE) != 0) {
+			events |= SnakeEngine.EVENT_APPLE;
+			apple = getVarint(frame);
+			if ((header & GAME_WON) == 0) {
+				appleCell = getVarint(frame);
+			}
+			score = getVarint(frame);
+		}
+		return engine.apply(header & DIRECTION_MASK, events, apple, appleCell, score);
+	}
+
+	/**
+	 * Creates the bots of the arena of a client: every snake goes the direction of the last tick frame.
+	 * @param moves filled by applyArena() before the step
+	 */
+	public static ArenaBot.Factory moveBots(final int[] moves) {
+		final ArenaBot bot = new ArenaBot() {
+			public int nextDirection(Arena arena, int snake) {
+				return moves[snake];
+			}
+		};
+		return new ArenaBot.Factory() {
+			public ArenaBot create(long seed) {
+				return bot;
+			}
+		};
+	}
+
+	/**
+	 * Applies an arena frame (payload without the length) to the arena of the client.
+	 * @param arena same grid, snakes and apples as the server, created with moveBots(moves)
+	 * @param moves one per snake
+	 * @param cells reused for the bodies, one per cell
+	 */
+	public static void applyArena(ByteBuffer frame, Arena arena, int[] moves, int[] cells) {
+		int header = frame.get() & 0xFF;
+		if (header == ARENA_TICK) {
+			int bits = 0;
+			for (int snake = 0; snake < moves.length; snake++) {
+				if (snake % 4 == 0) {
+					bits = frame.get();
+				}
+				moves[snake] = bits & DIRECTION_MASK;
+				bits >>= 2;
+			}
+			arena.step();
+			return;
+		}
+		if (header != ARENA_SNAPSHOT) {
+			throw new IllegalArgumentException("No arena frame: " + header);
+		}
+
+		for (int i = 0; i < 5; i++) {
+			getVarint(frame); // grid, apples, snakes and the own snake: see the getters
+		}
+		long seed = getVarlong(frame);
+		long tick = getVarlong(frame);
+		long randomState = getVarlong(frame);
+		arena.load(seed, tick, randomState, getVarlong(frame));
+
+		int width = arena.getWidth();
+		for (int snake = 0; snake < arena.getSnakeCount(); snake++) {
+			int flags = frame.get();
+			int length = getVarint(frame);
+			int expand = getVarint(frame);
+			int score = getVarint(frame);
+			int deaths = getVarint(frame);
+			boolean alive = (flags & ALIVE) != 0;
+			if (alive) {
+				int cell = getVarint(frame);
+				cells[0] = cell;
+				int bits = 0;
+				for (int i = 1; i < length; i++) {
+					if ((i - 1) % 4 == 0) {
+						bits = frame.get();
+					}
+					int direction = bits & DIRECTION_MASK;
+					bits >>= 2;
+					cell += direction == SnakeEngine.EAST ? 1 : direction == SnakeEngine.WEST ? -1
+							: direction == SnakeEngine.SOUTH ? width : -width;
+					cells[i] = cell;
+				}
+			}
+			arena.loadSnake(snake, alive, cells, length, expand, flags & DIRECTION_MASK, score, deaths);
+		}
+		for (int apple = 0; apple < arena.getAppleCount(); apple++) {
+			arena.loadApple(apple, getVarint(frame) - 1);
+		}
+	}
+
+	/**
+	 * Reads the state written by putState() into the engine.
+	 * @param cells reused for the body, null or too short = a new array of the body length
+	 * @param apples reused for the apples, one per apple
+	 * @return the array with the body (cells or the new one)
+	 */
+	static int[] loadState(ByteBuffer in, SnakeEngine engine, int[] cells, int[] apples) {
+		if (getVarint(in) != engine.getWidth() || getVarint(in) != engine.getHeight() || getVarint(in) != engine.getAppleCount()) {
+			throw new IllegalArgumentException("Snapshot of another grid");
+		}
+		long tick = getVarlong(in);
+		long clock = getVarlong(in);
+		long nextInterval = getVarlong(in);
+		int countInterval = SnakeEngine.TIME_INTERVAL - getVarint(in);
+		int period = getVarint(in);
+		int speedPercent = getVarint(in);
+		int score = getVarint(in);
+		int appleEaten = getVarint(in);
+		int expand = getVarint(in);
+		int flags = in.get();
+
+		int length = getVarint(in);
+		if (length < 0 || length > engine.getWidth() * engine.getHeight()) {
+			throw new IndexOutOfBoundsException("Body length " + length);
+		}
+		if (cells == null || cells.length <= length) {
+			cells = new int[length + 1]; // with the head
+		}
+		int cell = getVarint(in);
+		cells[0] = cell;
+		int bits = 0;
+		for (int i = 1; i <= length; i++) {
+			if ((i - 1) % 4 == 0) {
+				bits = in.get();
+			}
+			int direction = bits & DIRECTION_MASK;
+			bits >>= 2;
+			cell += direction == SnakeEngine.EAST ? 1 : direction == SnakeEngine.WEST ? -1
+					: direction == SnakeEngine.SOUTH ? engine.getWidth() : -engine.getWidth();
+			cells[i] = cell;
+		}
+		if ((flags & HEAD_ON_NECK) != 0) {
+			cells[length] = cells[length - 1];
+		}
+
+		for (int i = 0; i < apples.length; i++) {
+			apples[i] = getVarint(in) - 1;
+		}
+		engine.load(tick, clock, nextInterval, countInterval, period, speedPercent, score, appleEaten, expand,
+				flags & DIRECTION_MASK, (flags & (GAME_OVER | GAME_WON)) != 0, (flags & GAME_WON) != 0, cells, length, apples);
+		return cells;
+	}
+
+	/**
+	 * Writes 7 bits per byte, the highest bit says that another byte follows.
+	 */
+	public static void putVarint(ByteBuffer out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	public static void putVarlong(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	public static int getVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	public static long getVarlong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package snakeGame;
+
+import java.util.Locale;
+
+/**
+ * Times the phases of a tick (engine step, Snake.act() and the window) into one LatencyHistogram per phase.
+ *
+ * Only active if the program was started with -Dsnake.timing=true. ENABLED is a constant for the JIT,
+ * so the checks in front of every measurement (and the System.nanoTime() calls) get removed when it is off.
+ */
+public class PhaseTimer {
+
+	public static final boolean ENABLED = Boolean.getBoolean("snake.timing");
+
+	// engine.step()
+	public static final int SPEED_TIMER = 0;	// checkSpeedTimer()
+	public static final int BODY = 1;			// updateSnakeBody() of the engine
+	public static final int DIRECTION = 2;		// checkNewDirection() of the engine
+	public static final int MOVE = 3;			// border check and new head position
+	public static final int COLLISION = 4;		// body and apple check, new apple
+	// Snake.act()
+	public static final int INPUT = 5;			// key queue or bot
+	public static final int ACTORS = 6;			// SnakeHead, SnakeBody and Apple actors
+	public static final int TITLE = 7;			// title update
+	public static final int ACT = 8;			// the whole act()
+	// window
+	public static final int RENDER = 9;			// cell view
+	public static final int JITTER = 10;		// |tick to tick interval - simulation period|
+
+	private static final String[] NAMES = {
+		"speedTimer", "body", "direction", "move", "collision",
+		"input", "actors", "title", "act", "render", "jitter"
+	};
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[NAMES.length];
+
+	public PhaseTimer() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Records the time since the start as the phase.
+	 * @param start System.nanoTime() at the start of the phase
+	 * @return now, the start of the next phase
+	 */
+	public long lap(int phase, long start) {
+		long now = System.nanoTime();
+		histograms[phase].record(now - start);
+		return now;
+	}
+
+	/**
+	 * @param nanos duration of the phase
+	 */
+	public void record(int phase, long nanos) {
+		histograms[phase].record(nanos);
+	}
+
+	/**
+	 * @return histogram of the phase
+	 */
+	public LatencyHistogram getHistogram(int phase) {
+		return histograms[phase];
+	}
+
+	/**
+	 * Forgets all measurements.
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram : histograms) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * @return one line per phase with count, p50, p99, p99.9 and max in microseconds
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(String.format(Locale.ROOT, "%-10s %10s %9s %9s %9s %9s (us)%n",
+				"phase", "count", "p50", "p99", "p99.9", "max"));
+		for (int i = 0; i < histograms.length; i++) {
+			LatencyHistogram histogram = histograms[i];
+			builder.append(String.format(Locale.ROOT, "%-10s %10d %9.3f %9.3f %9.3f %9.3f%n", NAMES[i], histogram.getCount(),
+					histogram.getPercentile(0.5) / 1e3, histogram.getPercentile(0.99) / 1e3,
+					histogram.getPercentile(0.999) / 1e3, histogram.getMax() / 1e3));
+		}
+		return builder.toString();
+	}
+}
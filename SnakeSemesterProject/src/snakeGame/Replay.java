@@ -0,0 +1,231 @@
+package snakeGame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Games of a replay file, written by the ReplayWriter.
+ *
+ * Format (varint = 7 bits per byte, lowest bits first, highest bit = another byte follows):
+ * <pre>
+ * int    MAGIC ("SNRP")
+ * byte   VERSION
+ * varint width, height, appleCount
+ * every game:
+ *   byte   TAG_GAME
+ *   long   seed
+ *   varint (ticks since the previous direction) &lt;&lt; 2 | direction   (for every used direction)
+ *   varint 0                                                       (end of the directions)
+ *   varint ticks, score                                            (at the end of the game)
+ * byte   TAG_END
+ * </pre>
+ */
+public class Replay {
+
+	static final int MAGIC = 0x534E5250; // "SNRP"
+	static final byte VERSION = 1;
+	static final byte TAG_END = 0;
+	static final byte TAG_GAME = 1;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final int width;
+	private final int height;
+	private final int appleCount;
+	private final List<Game> games;
+
+	/**
+	 * One recorded game.
+	 */
+	public static class Game {
+
+		private final long seed;
+		private final long[] ticks;		// tick of every direction (ascending)
+		private final byte[] directions;
+		private final long lastTick;
+		private final int score;
+
+		Game(long seed, long[] ticks, byte[] directions, long lastTick, int score) {
+			this.seed = seed;
+			this.ticks = ticks;
+			this.directions = directions;
+			this.lastTick = lastTick;
+			this.score = score;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public int getDirectionCount() {
+			return directions.length;
+		}
+
+		public long getTick(int index) {
+			return ticks[index];
+		}
+
+		public int getDirection(int index) {
+			return directions[index];
+		}
+
+		/**
+		 * @return tick of the engine at the end of the recording
+		 */
+		public long getLastTick() {
+			return lastTick;
+		}
+
+		/**
+		 * @return score at the end of the recording (0 = unknown, recording stopped during the game)
+		 */
+		public int getScore() {
+			return score;
+		}
+	}
+
+	private Replay(int width, int height, int appleCount, List<Game> games) {
+		this.width = width;
+		this.height = height;
+		this.appleCount = appleCount;
+		this.games = games;
+	}
+
+	/**
+	 * Reads all games of the replay file.
+	 * @param file written by a ReplayWriter
+	 * @throws IOException file could not be read or is no replay
+	 */
+	public static Replay read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Input in = new Input(channel);
+			if (in.getInt() != MAGIC) {
+				throw new IOException(file + " is no replay file");
+			}
+			byte version = in.get();
+			if (version != VERSION) {
+				throw new IOException("Unknown replay version " + version);
+			}
+			int width = (int) in.getVarint();
+			int height = (int) in.getVarint();
+			int appleCount = (int) in.getVarint();
+
+			List<Game> games = new ArrayList<Game>();
+			while (!in.isEnd() && in.get() == TAG_GAME) {
+				long seed = in.getLong();
+				long[] ticks = new long[64];
+				byte[] directions = new byte[64];
+				int count = 0;
+				long tick = 0;
+				for (long value = in.getVarint(); value != 0; value = in.getVarint()) {
+					if (count == ticks.length) {
+						ticks = Arrays.copyOf(ticks, count * 2);
+						directions = Arrays.copyOf(directions, count * 2);
+					}
+					tick += value >>> 2;
+					ticks[count] = tick;
+					directions[count] = (byte) (value & 3);
+					count++;
+				}
+				long lastTick = in.getVarint();
+				int score = (int) in.getVarint();
+				games.add(new Game(seed, Arrays.copyOf(ticks, count), Arrays.copyOf(directions, count), lastTick, score));
+			}
+			return new Replay(width, height, appleCount, games);
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getAppleCount() {
+		return appleCount;
+	}
+
+	public int getGameCount() {
+		return games.size();
+	}
+
+	public Game getGame(int index) {
+		return games.get(index);
+	}
+
+	/**
+	 * Reads the channel in blocks of BUFFER_SIZE bytes.
+	 */
+	private static class Input {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private boolean endOfFile;
+
+		Input(FileChannel channel) {
+			this.channel = channel;
+			buffer.flip(); // empty
+		}
+
+		/**
+		 * @return true, if all bytes are read (a file of a crashed program has no TAG_END)
+		 */
+		boolean isEnd() throws IOException {
+			return !fill(1);
+		}
+
+		byte get() throws IOException {
+			require(1);
+			return buffer.get();
+		}
+
+		int getInt() throws IOException {
+			require(4);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			require(8);
+			return buffer.getLong();
+		}
+
+		long getVarint() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = get();
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new IOException("Varint too long");
+		}
+
+		private void require(int bytes) throws IOException {
+			if (!fill(bytes)) {
+				throw new EOFException("Replay file ends too early");
+			}
+		}
+
+		private boolean fill(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) {
+				return true;
+			}
+			buffer.compact();
+			while (!endOfFile && buffer.position() < bytes) {
+				endOfFile = channel.read(buffer) < 0;
+			}
+			buffer.flip();
+			return buffer.remaining() >= bytes;
+		}
+	}
+}
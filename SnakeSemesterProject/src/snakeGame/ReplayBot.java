@@ -0,0 +1,46 @@
+package snakeGame;
+
+/**
+ * Plays a recorded game again: returns the recorded direction at the recorded tick, otherwise NO_DIRECTION.
+ * Together with the seed of the game the engine does exactly the same steps as during the recording.
+ */
+public class ReplayBot implements SnakeBot {
+
+	private final Replay.Game game;
+	private int next; // index of the next recorded direction
+
+	/**
+	 * @param game recorded game (start the engine with its seed)
+	 */
+	public ReplayBot(Replay.Game game) {
+		this.game = game;
+	}
+
+	@Override
+	public int nextDirection(SnakeEngine engine) {
+		long tick = engine.getTick() + 1; // tick after the coming step
+		while (next < game.getDirectionCount() && game.getTick(next) < tick) {
+			next++; // skipped (e.g. the engine got reset), can not be used anymore
+		}
+		if (next < game.getDirectionCount() && game.getTick(next) == tick) {
+			return game.getDirection(next++);
+		}
+		return SnakeEngine.NO_DIRECTION;
+	}
+
+	/**
+	 * Starts again with the first recorded direction.
+	 * @param seed not used, the recorded game defines everything
+	 */
+	@Override
+	public void reset(long seed) {
+		next = 0;
+	}
+
+	/**
+	 * @return true, if the engine played all ticks of the recorded game
+	 */
+	public boolean isFinished(SnakeEngine engine) {
+		return engine.isGameFinish() || engine.getTick() >= game.getLastTick();
+	}
+}
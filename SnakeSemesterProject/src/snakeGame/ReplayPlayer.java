@@ -0,0 +1,54 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays all games of a replay file headless (as fast as possible) and checks ticks and score of every game.
+ */
+public class ReplayPlayer {
+
+	/**
+	 * Plays the recorded game on the engine, from the reset with the seed of the game to its last tick.
+	 * @param engine needs the grid of the replay
+	 * @return true, if the engine reached the recorded ticks and score
+	 */
+	public static boolean play(Replay.Game game, SnakeEngine engine) {
+		engine.reset(game.getSeed());
+		ReplayBot bot = new ReplayBot(game);
+		while (!bot.isFinished(engine)) {
+			engine.step(bot.nextDirection(engine));
+		}
+		return engine.getTick() == game.getLastTick() && (game.getScore() == 0 || engine.getScore() == game.getScore());
+	}
+
+	/**
+	 * Usage: java snakeGame.ReplayPlayer [replay file]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java snakeGame.ReplayPlayer <replay file>");
+			return;
+		}
+		Replay replay = Replay.read(Paths.get(args[0]));
+		SnakeEngine engine = new SnakeEngine(replay.getWidth(), replay.getHeight(), replay.getAppleCount());
+
+		long ticks = 0;
+		int failed = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < replay.getGameCount(); i++) {
+			Replay.Game game = replay.getGame(i);
+			boolean ok = play(game, engine);
+			if (!ok) {
+				failed++;
+			}
+			ticks += engine.getTick();
+			System.out.println("Game " + (i + 1) + ": " + (ok ? "ok" : "MISMATCH") + " | Ticks: " + engine.getTick()
+					+ " | Score: " + engine.getScore() + " (recorded: " + game.getScore() + ") | Apples: " + engine.getAppleEaten()
+					+ " | Directions: " + game.getDirectionCount());
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d games, %d failed: %.3f s | %.0f ticks/s",
+				replay.getGameCount(), failed, seconds, ticks / seconds));
+	}
+}
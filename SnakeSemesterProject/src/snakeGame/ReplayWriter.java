@@ -0,0 +1,164 @@
+package snakeGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the games of a session into a replay file (format: see Replay).
+ *
+ * Only the seed of every game and the directions the snake really used are stored, with the distance to the
+ * previous direction in ticks as varint. A direction every few ticks needs about 1-2 bytes, so an hour of playing
+ * fits into some kilobytes. The bytes are collected in a buffer and written to the channel when it is full,
+ * at the end of every game and on close().
+ *
+ * The methods are synchronized: the snake records the directions on the simulation thread,
+ * the window starts the games on the AWT thread.
+ */
+public class ReplayWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private boolean headerWritten;
+	private int width;
+	private int height;
+	private int appleCount;
+
+	private boolean gameOpen;
+	private long lastTick; // tick of the previous direction of the current game
+	private long directionCount;
+
+	/**
+	 * Creates (or overwrites) the replay file.
+	 * @param file replay file
+	 */
+	public ReplayWriter(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Starts a new game with the seed of the engine (directly after the reset of the engine).
+	 * Ends the previous game, if it is still open.
+	 * The first game defines the grid of the file, all other games need the same grid.
+	 */
+	public synchronized void startGame(SnakeEngine engine) throws IOException {
+		if (!headerWritten) {
+			width = engine.getWidth();
+			height = engine.getHeight();
+			appleCount = engine.getAppleCount();
+			ensureSpace(4 + 1 + 3 * 5);
+			buffer.putInt(Replay.MAGIC);
+			buffer.put(Replay.VERSION);
+			putVarint(width);
+			putVarint(height);
+			putVarint(appleCount);
+			headerWritten = true;
+		}
+		else if (engine.getWidth() != width || engine.getHeight() != height || engine.getAppleCount() != appleCount) {
+			throw new IllegalArgumentException("Other grid than the first game of the replay");
+		}
+		endGame(engine);
+
+		ensureSpace(1 + 8);
+		buffer.put(Replay.TAG_GAME);
+		buffer.putLong(engine.getSeed());
+		gameOpen = true;
+		lastTick = 0;
+	}
+
+	/**
+	 * Records a direction the engine used for the step.
+	 * @param tick tick of the engine after the step (starts with 1)
+	 * @param direction SnakeEngine.NORTH, EAST, SOUTH or WEST
+	 */
+	public synchronized void direction(long tick, int direction) throws IOException {
+		if (!gameOpen) {
+			return;
+		}
+		if (tick <= lastTick || direction < SnakeEngine.NORTH || direction > SnakeEngine.WEST) {
+			throw new IllegalArgumentException("Direction " + direction + " at tick " + tick);
+		}
+		ensureSpace(10);
+		putVarint((tick - lastTick) << 2 | direction); // delta >= 1, so 0 marks the end of the directions
+		lastTick = tick;
+		directionCount++;
+	}
+
+	/**
+	 * Ends the current game (no-op if there is none) with the ticks and the score of the engine,
+	 * the player checks both. Writes the buffer to the file.
+	 */
+	public synchronized void endGame(SnakeEngine engine) throws IOException {
+		if (!gameOpen) {
+			return;
+		}
+		ensureSpace(1 + 2 * 10);
+		putVarint(0);
+		putVarint(engine.getTick());
+		putVarint(engine.getScore());
+		gameOpen = false;
+		flush();
+	}
+
+	/**
+	 * @return amount of recorded directions (all games)
+	 */
+	public synchronized long getDirectionCount() {
+		return directionCount;
+	}
+
+	/**
+	 * Writes the end mark and closes the file. An open game gets lost (its last tick and score are unknown).
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		if (gameOpen) {
+			ensureSpace(1 + 2 * 10);
+			putVarint(0);
+			putVarint(lastTick); // stop after the last direction, score 0 = not checked
+			putVarint(0);
+			gameOpen = false;
+		}
+		if (headerWritten) {
+			ensureSpace(1);
+			buffer.put(Replay.TAG_END);
+		}
+		flush();
+		channel.force(false);
+		channel.close();
+	}
+
+	private void ensureSpace(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes 7 bits per byte, lowest bits first, the highest bit marks a following byte.
+	 */
+	private void putVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+}
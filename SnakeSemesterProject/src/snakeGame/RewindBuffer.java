@@ -0,0 +1,366 @@
+package snakeGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Keeps the last steps of a game, so the game can go back (and forward again) to any of these ticks.
+ *
+ * Every step adds a frame with what the step lost: the direction before, the retired tail square (2 bits, it was
+ * a neighbour of the new tail), the old score and speed if they changed, and the places in the free cell index.
+ * Most frames have 2 or 3 bytes, plus the length before and behind every frame (the frames can be read in both
+ * directions). The frames lie in a ring of fixed size, the oldest ones get dropped. Every keyframeInterval ticks
+ * a GameSnapshot is kept as a keyframe, also in a ring of fixed size.
+ *
+ * seek() takes back one step per frame with SnakeEngine.undo(), or goes forward with the directions of the frames.
+ * A far tick starts at the nearest keyframe instead. Both give exactly the recorded state, also the random generator:
+ * a game which goes on from there places the same apples for the same directions.
+ */
+public class RewindBuffer {
+
+	// first byte of a frame
+	private static final int DIRECTION_MASK = 0x03; // direction before the step
+	private static final int TAIL_SHIFT = 2; // direction from the new tail to the retired one
+	private static final int GROW = 0x10; // no tail got retired
+	private static final int APPLE = 0x20; // apple index, old score, random state and free index follow
+	private static final int SECOND = 0x40; // old time left and next interval follow
+	private static final int SPEED = 0x80; // old simulation period and speed follow
+
+	private static final int FRAME_MAX = 64; // bytes of the biggest frame with its two length bytes
+	private static final int LOAD_CELLS_PER_STEP = 64; // a keyframe clears all cells: about 64 cells cost as much as one undo
+
+	private final byte[] data; // ring of the frames
+	private final int mask;
+	private final ByteBuffer frame = ByteBuffer.allocate(FRAME_MAX);
+	private final int keyframeInterval;
+	private final ByteBuffer[] keyframes; // ring, the snapshot of keyframeTicks[i] (exactly its size), null = empty
+	private final long[] keyframeTicks;
+	private final long[] keyframePositions; // position of the frame after the keyframe
+	private int keyframeCount;
+	private int newestKeyframe = -1;
+	private int[] loadCells; // reused by the keyframe loads, grows with the snake
+
+	// ticks and positions: [oldest frame, newest frame], the engine shows the state after the frame before position
+	private long oldestTick; // state before the oldest frame
+	private long oldestPosition;
+	private long newestTick; // state after the newest frame
+	private long newestPosition;
+	private long tick;
+	private long position;
+	private int newestDirection; // direction after the newest frame (the direction before the next one)
+	private boolean freeIndex; // the engine has a free cell index (small grid)
+
+	// state after the last recorded step
+	private int direction;
+	private int tailCell;
+	private int score;
+	private long randomState;
+	private int timeLeft;
+	private long nextInterval;
+	private int simulationPeriod;
+	private int speedPercent;
+
+	/**
+	 * @param capacity bytes for the frames (power of two), about 4 per tick: 64 kB are about 20 minutes at full speed
+	 * @param keyframeInterval ticks between two keyframes
+	 * @param keyframeCount max. amount of kept keyframes
+	 */
+	public RewindBuffer(int capacity, int keyframeInterval, int keyframeCount) {
+		if (Integer.bitCount(capacity) != 1 || capacity < FRAME_MAX) {
+			throw new IllegalArgumentException("Capacity has to be a power of two: " + capacity);
+		}
+		data = new byte[capacity];
+		mask = capacity - 1;
+		this.keyframeInterval = keyframeInterval;
+		keyframes = new ByteBuffer[keyframeCount];
+		keyframeTicks = new long[keyframeCount];
+		keyframePositions = new long[keyframeCount];
+	}
+
+	/**
+	 * Drops all frames, the current state of the engine becomes the oldest one (a new game or a loaded one).
+	 */
+	public void reset(SnakeEngine engine) {
+		oldestTick = newestTick = tick = engine.getTick();
+		oldestPosition = newestPosition = position = 0;
+		keyframeCount = 0;
+		newestKeyframe = -1;
+		freeIndex = engine.getFreeCell(0) >= 0;
+		addKeyframe(engine);
+		keep(engine);
+	}
+
+	/**
+	 * Adds the frame of the last step (call it after every step of the engine).
+	 * A step after a seek() back drops the frames after the tick (the game goes on from there).
+	 */
+	public void record(SnakeEngine engine) {
+		if (engine.getTick() != tick + 1) {
+			if (engine.getTick() != tick) {
+				reset(engine); // not stepped by the engine we know (reset, or steps without record())
+			}
+			return; // finished game, nothing changed
+		}
+		if (tick != newestTick) {
+			dropAfter(tick);
+		}
+
+		frame.clear();
+		frame.put((byte) 0); // length
+		int header = direction;
+		int newTail = engine.getBodyCellAt(engine.getBodySlot(engine.getLength() - 1));
+		if (engine.getRetiredSlot() < 0) {
+			header |= GROW;
+		}
+		else {
+			header |= direction(newTail, tailCell) << TAIL_SHIFT;
+		}
+		int apple = engine.getEatenApple();
+		header |= apple >= 0 ? APPLE : 0;
+		header |= engine.getNextInterval() != nextInterval ? SECOND : 0;
+		header |= engine.getSimulationPeriod() != simulationPeriod ? SPEED : 0;
+		frame.put((byte) header);
+		if (freeIndex) {
+			NetProtocol.putVarint(frame, engine.getHeadFreeIndex() + 1);
+		}
+		if (apple >= 0) {
+			NetProtocol.putVarint(frame, apple);
+			NetProtocol.putVarint(frame, score);
+			NetProtocol.putVarlong(frame, randomState);
+			if (freeIndex) {
+				NetProtocol.putVarint(frame, engine.getAppleFreeIndex() + 1);
+			}
+		}
+		if ((header & SECOND) != 0) {
+			NetProtocol.putVarint(frame, timeLeft);
+			NetProtocol.putVarlong(frame, engine.getNextInterval() - nextInterval);
+		}
+		if ((header & SPEED) != 0) {
+			NetProtocol.putVarint(frame, simulationPeriod);
+			NetProtocol.putVarint(frame, speedPercent);
+		}
+		int length = frame.position() - 1;
+		frame.put(0, (byte) length);
+		frame.put((byte) length);
+		append(frame.array(), frame.position());
+
+		tick++;
+		position = newestPosition;
+		newestTick = tick;
+		keep(engine);
+		if (tick % keyframeInterval == 0) {
+			addKeyframe(engine);
+		}
+	}
+
+	/**
+	 * @return direction from the cell to its neighbour
+	 */
+	private static int direction(int cell, int neighbour) {
+		if (neighbour == cell + 1) {
+			return SnakeEngine.EAST;
+		}
+		if (neighbour == cell - 1) {
+			return SnakeEngine.WEST;
+		}
+		return neighbour > cell ? SnakeEngine.SOUTH : SnakeEngine.NORTH;
+	}
+
+	/**
+	 * Copies the frame into the ring, drops the oldest frames (and keyframes) which do not fit anymore.
+	 */
+	private void append(byte[] bytes, int length) {
+		while (newestPosition + length - oldestPosition > data.length) {
+			oldestPosition += (data[(int) (oldestPosition & mask)] & 0xFF) + 2;
+			oldestTick++;
+		}
+		for (int i = 0; i < length; i++) {
+			data[(int) ((newestPosition + i) & mask)] = bytes[i];
+		}
+		newestPosition += length;
+		while (keyframeCount > 0 && oldestKeyframeTick() < oldestTick) {
+			keyframes[oldestKeyframe()] = null;
+			keyframeCount--;
+		}
+	}
+
+	/**
+	 * Keeps the values the next step can lose.
+	 */
+	private void keep(SnakeEngine engine) {
+		direction = engine.getDirection();
+		tailCell = engine.getBodyCellAt(engine.getBodySlot(engine.getLength() - 1));
+		score = engine.getScore();
+		randomState = engine.getRandomState();
+		timeLeft = engine.getTimeLeft();
+		nextInterval = engine.getNextInterval();
+		simulationPeriod = engine.getSimulationPeriod();
+		speedPercent = engine.getSpeedPercent();
+		newestDirection = tick == newestTick ? direction : newestDirection;
+	}
+
+	private void addKeyframe(SnakeEngine engine) {
+		newestKeyframe = (newestKeyframe + 1) % keyframes.length;
+		keyframes[newestKeyframe] = GameSnapshot.save(engine); // trimmed, the body takes 2 bits per square
+		keyframeTicks[newestKeyframe] = engine.getTick();
+		keyframePositions[newestKeyframe] = position;
+		keyframeCount = Math.min(keyframeCount + 1, keyframes.length);
+	}
+
+	private int oldestKeyframe() {
+		return (newestKeyframe - keyframeCount + 1 + keyframes.length) % keyframes.length;
+	}
+
+	private long oldestKeyframeTick() {
+		return keyframeTicks[oldestKeyframe()];
+	}
+
+	/**
+	 * Drops the frames and keyframes after the tick (the state at the position).
+	 */
+	private void dropAfter(long lastTick) {
+		newestTick = lastTick;
+		newestPosition = position;
+		while (keyframeCount > 0 && keyframeTicks[newestKeyframe] > lastTick) {
+			keyframes[newestKeyframe] = null;
+			newestKeyframe = (newestKeyframe - 1 + keyframes.length) % keyframes.length;
+			keyframeCount--;
+		}
+	}
+
+	/**
+	 * Brings the engine to the state after the tick.
+	 * @param engine the engine of the recorded game
+	 * @param target getOldestTick() .. getNewestTick(), other ticks get limited to these
+	 */
+	public void seek(SnakeEngine engine, long target) {
+		if (engine.getTick() != tick) {
+			reset(engine); // another game, nothing recorded yet
+		}
+		target = Math.max(oldestTick, Math.min(newestTick, target));
+		long steps = Math.abs(target - tick);
+
+		// the nearest keyframe before the tick, if it is closer
+		int keyframe = -1;
+		for (int i = 0; i < keyframeCount; i++) {
+			int index = (newestKeyframe - i + keyframes.length) % keyframes.length;
+			if (keyframeTicks[index] <= target) {
+				keyframe = index;
+				break;
+			}
+		}
+		if (keyframe >= 0) {
+			long loadSteps = target - keyframeTicks[keyframe] + engine.getWidth() * engine.getHeight() / LOAD_CELLS_PER_STEP;
+			if (loadSteps < steps) {
+				try {
+					loadCells = GameSnapshot.load(keyframes[keyframe].duplicate(), engine, loadCells);
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Keyframe broken", e); // written by us
+				}
+				tick = keyframeTicks[keyframe];
+				position = keyframePositions[keyframe];
+			}
+		}
+
+		while (tick > target) {
+			undo(engine);
+		}
+		while (tick < target) {
+			redo(engine);
+		}
+		keep(engine);
+	}
+
+	/**
+	 * Takes back the step of the frame before the position.
+	 */
+	private void undo(SnakeEngine engine) {
+		int length = data[(int) ((position - 1) & mask)] & 0xFF;
+		long start = position - 1 - length; // behind the first length byte
+		position = start;
+		int header = data[(int) (start++ & mask)] & 0xFF;
+		frame.clear();
+		for (int i = 1; i < length; i++) {
+			frame.put(data[(int) (start++ & mask)]);
+		}
+		frame.flip();
+		position--; // the first length byte
+
+		int headFree = freeIndex ? NetProtocol.getVarint(frame) - 1 : -1;
+		int apple = -1;
+		int oldScore = engine.getScore();
+		long oldRandom = engine.getRandomState();
+		int appleFree = -1;
+		if ((header & APPLE) != 0) {
+			apple = NetProtocol.getVarint(frame);
+			oldScore = NetProtocol.getVarint(frame);
+			oldRandom = NetProtocol.getVarlong(frame);
+			appleFree = freeIndex ? NetProtocol.getVarint(frame) - 1 : -1;
+		}
+		int oldTimeLeft = engine.getTimeLeft();
+		long oldNextInterval = engine.getNextInterval();
+		if ((header & SECOND) != 0) {
+			oldTimeLeft = NetProtocol.getVarint(frame);
+			oldNextInterval -= NetProtocol.getVarlong(frame);
+		}
+		int oldPeriod = engine.getSimulationPeriod();
+		int oldSpeed = engine.getSpeedPercent();
+		if ((header & SPEED) != 0) {
+			oldPeriod = NetProtocol.getVarint(frame);
+			oldSpeed = NetProtocol.getVarint(frame);
+		}
+
+		int tail = -1;
+		if ((header & GROW) == 0) {
+			int cell = engine.getBodyCellAt(engine.getBodySlot(engine.getLength() - 1));
+			int tailDirection = (header >>> TAIL_SHIFT) & DIRECTION_MASK;
+			tail = tailDirection == SnakeEngine.EAST ? cell + 1 : tailDirection == SnakeEngine.WEST ? cell - 1
+					: tailDirection == SnakeEngine.SOUTH ? cell + engine.getWidth() : cell - engine.getWidth();
+		}
+		engine.undo(header & DIRECTION_MASK, tail, apple, headFree, appleFree, oldScore, oldRandom,
+				oldTimeLeft, oldNextInterval, oldPeriod, oldSpeed);
+		tick--;
+	}
+
+	/**
+	 * Does the step of the frame at the position again, with the direction after it (the one before the next frame).
+	 */
+	private void redo(SnakeEngine engine) {
+		long next = position + (data[(int) (position & mask)] & 0xFF) + 2;
+		int direction = tick + 1 == newestTick ? newestDirection : data[(int) ((next + 1) & mask)] & DIRECTION_MASK;
+		engine.step(direction);
+		position = next;
+		tick++;
+	}
+
+	/**
+	 * @return oldest tick seek() can go back to
+	 */
+	public long getOldestTick() {
+		return oldestTick;
+	}
+
+	/**
+	 * @return newest recorded tick (seek() can go forward again up to it until the game goes on)
+	 */
+	public long getNewestTick() {
+		return newestTick;
+	}
+
+	/**
+	 * @return tick of the state of the engine
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	@Override
+	public String toString() {
+		long frames = newestTick - oldestTick;
+		return String.format(Locale.ROOT, "ticks %d .. %d (at %d) | %d frames in %d bytes (%.1f per frame) | %d keyframes",
+				oldestTick, newestTick, tick, frames, newestPosition - oldestPosition,
+				frames == 0 ? 0.0 : (double) (newestPosition - oldestPosition) / frames, keyframeCount);
+	}
+}
@@ -1,7 +1,8 @@
 package snakeGame;
 
+import java.awt.Graphics2D;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 import ch.aplu.jgamegrid.Actor;
 import ch.aplu.jgamegrid.Location;
@@ -9,43 +10,53 @@ import ch.aplu.jgamegrid.Location.CompassDirection;
 
 public class Snake extends Actor {
 
-	private static final int SNAKE_START_LENGTH = 3;
-	private static final int SNAKE_EXPAND_PER_APPLE = 2;
-	private static final int TIME_INTERVAL = 5; // seconds
-	private static final int SPEED_INCREASE_PER_TIME = 2; // 5ms
-	private static final int SPEED_START = 180; // 180 ms delay
-	private static final int SPEED_MAX = 80; // 80ms delay
-	private static final int COLOR_MAX = 4; // 4 different colors
-	private static final int SCORE_PER_APPLE = 10;
-	private static final float SCORE_FACTOR_TIME = 3.0f; //100% speed -> 1 apple = 30 points
+	private static final int COLOR_MAX = SpriteAtlas.COLOR_COUNT; // 4 different colors
 
 	public boolean gameFinish;
 	private boolean start = true;
-	public LinkedList<CompassDirection> directions;
-	private ArrayList<SnakeBody> tailList = new ArrayList<SnakeBody>();
-	private CompassDirection currentDirection;
+	public DirectionQueue directions;
+	public ArrayList<Apple> apples;
+	public volatile SnakeBot bot; // plays instead of the key-inputs (e.g. a replay or the autopilot), null = keyboard
+	public ReplayWriter recorder; // records the used directions, null = no recording
+	public GameClient client; // the engine shows the game of a server (no own steps), null = local game
+	public GameEventLog eventLog; // records apples, speed steps, ... null = no events (see GameEventLog.ENABLED)
+	public HighScoreLog highScores; // gets the final score of every game, null = no high scores
+	private boolean scored; // the score of a game is queued already
+	private long scoredSeed; // seed of this game: after a rewind (or a load) it can end again, but it counts only once
+	public RewindBuffer rewind; // keeps the last steps, so the game can go back, null = no rewind
+	private SnakeBody[] tailList; // same slots as the body ring buffer of the engine
+	private ActorPool<SnakeBody> bodyPool; // created with the first body square (needs the GameGrid)
+	private final Location location = new Location(); // reused for every setLocation() (copies x and y)
+	private long syncedTick = -1; // engine tick shown by the actors
+	private final SnakeEngine engine;
+	private final boolean showActors; // false = only the engine is stepped, the window draws the cells (big grids)
 
 	public boolean autoChangeColor = true;
-	private int currentColor = 0;
-	private int appleEaten = 0;
-	private int expandSnakeLength = 0;
-	private long nextInterval;
-	private int countInterval;
-
-	private int speedPercent = 0; 	// used for title
-	private int countScore = 0;		// used for title
-	
+	private final SnakePalette palette = new SnakePalette(COLOR_MAX); // color of the head and all SnakeBody squares
+
 	/**
 	 * Defines the image of the Snake class.
+	 * @param engine game rules, the snake only shows its state
 	 */
-	public Snake() {
-		super("sprites/squarehead.png", COLOR_MAX); // 4 Images: squarehead_0.png, _1, _2 and _3
+	public Snake(SnakeEngine engine) {
+		this(engine, true);
 	}
 
 	/**
-	 * Updates the SnakeHead and Body, handles keyEvents and detects collisions (border, body, apple).
-	 * Checks Timer and updates SnakeSpeed.
-	 * 
+	 * Defines the image of the Snake class.
+	 * @param engine game rules, the snake only shows its state
+	 * @param showActors false = no SnakeBody squares and a hidden head (the grid is bigger than the GameGrid)
+	 */
+	public Snake(SnakeEngine engine, boolean showActors) {
+		super(SpriteAtlas.HEAD, COLOR_MAX); // 4 Images: SquareHead_0.png, _1, _2 and _3
+		this.engine = engine;
+		this.showActors = showActors;
+		this.tailList = new SnakeBody[showActors ? engine.getBodyCapacity() : 0];
+	}
+
+	/**
+	 * Passes the next key-input to the engine and updates the SnakeHead, Body and Apples afterwards.
+	 *
 	 * GameGrid calls the act() method during the simulation is running.
 	 * @see <a href="http://www.aplu.ch/home/apluhomex.jsp?site=45">Simulation Period</a>
 	 */
@@ -55,216 +66,278 @@ public class Snake extends Actor {
 			initSnake();	// initializes the snake
 		}
 
-		// update timer
-		checkSpeedTimer();
+		PhaseTimer timer = PhaseTimer.ENABLED ? engine.getPhaseTimer() : null;
+		long actStart = PhaseTimer.ENABLED && timer != null ? System.nanoTime() : 0;
 
-		// update snake body
+		int events;
+		if (client != null) {
+			events = client.apply(engine); // the server did the steps
+			if ((events & GameClient.EVENT_SNAPSHOT) != 0) {
+				initSnake();
+				updateTitle();
+			}
+		}
+		else {
+			events = stepEngine(timer, actStart);
+		}
+
+		// update snake head and body
+		long time = PhaseTimer.ENABLED && timer != null ? System.nanoTime() : 0;
 		updateSnakeBody();
 
-		// do we need to turn (a new Direction)?
-		checkNewDirection();
+		if ((events & SnakeEngine.EVENT_SPEED) != 0) {
+			gameGrid.setSimulationPeriod(engine.getSimulationPeriod()); // increase speed ;-)
+		}
 
-		// check for valid move
-		if (isMoveValid()) {
-			move(); // move the snake
+		if ((events & SnakeEngine.EVENT_APPLE) != 0) {
+			// we found an apple :)
+			checkForApple();
 
-			if (checkForSnakeBody()) {
-				// Collision with SnakeBody :(
-				gameOver();
+			if (autoChangeColor) {
+				changeColor();
 			}
+		}
+		if (PhaseTimer.ENABLED && timer != null) {
+			time = timer.lap(PhaseTimer.ACTORS, time);
+		}
 
-			if (checkForApple()) {
-				// we found an apple :)
-				appleEaten++;
-				expandSnakeLength += SNAKE_EXPAND_PER_APPLE;
-				
-				countScore += SCORE_PER_APPLE * (SCORE_FACTOR_TIME * ((speedPercent/10.0)+1));
-				
-				if (autoChangeColor) {
-					changeColor();
-				}
-				
-				updateTitle();
+		if ((events & (SnakeEngine.EVENT_SECOND | SnakeEngine.EVENT_APPLE)) != 0) {
+			updateTitle();
+			if (PhaseTimer.ENABLED && timer != null) {
+				timer.lap(PhaseTimer.TITLE, time);
 			}
 		}
-		else { // outside of the gamegrid
+
+		if ((events & SnakeEngine.EVENT_GAME_WON) != 0) {
+			// no more free spaces --> Game Won :D
+			gameWon();
+		}
+		else if ((events & SnakeEngine.EVENT_GAME_OVER) != 0) {
+			// Collision with border or SnakeBody :(
 			gameOver();
 		}
+
+		if (PhaseTimer.ENABLED && timer != null) {
+			timer.lap(PhaseTimer.ACT, actStart);
+		}
 	}
-	
+
 	/**
-	 * Initialize the snake body and sets the start direction.
+	 * Does one tick of the game rules with the next key-input (or the direction of the bot).
+	 * @param timer null = no timing
+	 * @param start start of the tick (timing)
+	 * @return EVENT_* flags of the step
 	 */
-	public void initSnake() {
-		
-		gameFinish = false;
-		gameGrid.setSimulationPeriod(SPEED_START); // set start speed
-
-		// init timer for speed increase
-		nextInterval = System.currentTimeMillis() + 1000; // current System time + one second
-		countInterval = 0;
-
-		// init direction --> EAST (to the right)
-		currentDirection = Location.EAST;
-		setDirection(currentDirection);
-
-		// add SnakeBody, Start Direction is EAST --> we add the body on the left side (x-axis) of the head (-i - 1)
-		// filling the linked array list with the amount of body squares defined by SNAKE_START_LENGTH
-		for (int i = 0; i < SNAKE_START_LENGTH; i++) {
-			SnakeBody tail = new SnakeBody(COLOR_MAX); // create a new body square
-			gameGrid.addActor(tail, new Location(getX() - i - 1, getY())); // getX() = xPos of SnakeHead
-			tailList.add(tail);	// add a SnakeBody square to the list
+	private int stepEngine(PhaseTimer timer, long start) {
+		// do we need to turn (a new Direction)?
+		int direction = checkNewDirection();
+		if (PhaseTimer.ENABLED && timer != null) {
+			timer.lap(PhaseTimer.INPUT, start);
+		}
+		long tick = engine.getTick();
+		int events = engine.step(direction);
+		if (recorder != null && direction != SnakeEngine.NO_DIRECTION && engine.getTick() != tick) {
+			record(direction);
+		}
+		if (rewind != null) {
+			rewind.record(engine);
 		}
+		if (GameEventLog.ENABLED && eventLog != null) {
+			if (bot == null && direction != SnakeEngine.NO_DIRECTION) {
+				eventLog.input(engine, System.nanoTime() - directions.getPolledTime());
+			}
+			eventLog.step(engine, events);
+		}
+		return events;
 	}
+
 	/**
-	 * Updates the timer and calculates the speed percentage in the title.
+	 * Initialize the snake body and the speed from the engine.
 	 */
-	private void checkSpeedTimer() {
-		if (System.currentTimeMillis() > nextInterval) {
-			nextInterval = System.currentTimeMillis() + 1000; // current System time + one second
-			countInterval++;
+	public void initSnake() {
 
-			updateTitle();
+		gameFinish = false;
+		gameGrid.setSimulationPeriod(engine.getSimulationPeriod()); // set start speed
+
+		syncedTick = engine.getTick();
+		if (!showActors) {
+			hide();
+			return;
 		}
 
-		if (countInterval >= TIME_INTERVAL) {
-			countInterval = 0; // reset counter
-		
-			if (gameGrid.getSimulationPeriod() > SPEED_MAX) { // < 80 is too fast... do not go faster then 80ms
-				gameGrid.setSimulationPeriod(gameGrid.getSimulationPeriod() - SPEED_INCREASE_PER_TIME); // increase speed ;-)
-				speedPercent = Math.abs(100 / (SPEED_START - SPEED_MAX) * (gameGrid.getSimulationPeriod() - SPEED_START)); // math.abs() ->>+
-			}
+		removeSnake();
+		if (tailList.length != engine.getBodyCapacity()) {
+			tailList = new SnakeBody[engine.getBodyCapacity()]; // the ring buffer of the engine has grown
 		}
+
+		// add a SnakeBody square for every square of the engine
+		for (int i = 0; i < engine.getLength(); i++) {
+			addSnakeBody(engine.getBodySlot(i));
+		}
+		updateSnakeHead();
 	}
-	
+
 	/**
-	 * Moves the SnakeBody to the new position.  
+	 * Moves the SnakeBody to the new position of the engine.
+	 * Only the retired tail square moves to the new square behind the head, all others stay where they are.
 	 */
 	private void updateSnakeBody() {
-		int lastIndex = tailList.size() - 1; // size -1 because it starts at 0
-		Location lastLocation = tailList.get(lastIndex).getLocation(); // push the square one further index (3->2, 2->1, 1->0)
+		if (!showActors) {
+			syncedTick = engine.getTick();
+			return;
+		}
+		if (engine.getTick() == syncedTick) {
+			return; // game finished, nothing moved
+		}
+		if (engine.getTick() != syncedTick + 1 || tailList.length != engine.getBodyCapacity()) {
+			// missed a step (or a reset), or the slots changed --> build the body again
+			initSnake();
+			return;
+		}
+		syncedTick = engine.getTick();
 
-		for (int i = lastIndex; i > 0; i--) {
-			tailList.get(i).setLocation(tailList.get(i - 1).getLocation());
+		int newSlot = engine.getBodySlot(0);
+		int retiredSlot = engine.getRetiredSlot();
+		if (retiredSlot >= 0) {
+			// move the tail square behind the head
+			SnakeBody tail = tailList[retiredSlot];
+			tailList[retiredSlot] = null;
+			tailList[newSlot] = tail;
+			tail.setLocation(toLocation(engine.getBodyCellAt(newSlot)));
 		}
-		tailList.get(0).setLocation(getLocation()); // move first bodySquare at the head's location
-		
-		// expands the snake lengths if apple(s) got eaten
-		if (expandSnakeLength > 0) {
-			// expand our snake
-			SnakeBody tail = new SnakeBody(COLOR_MAX);
-			gameGrid.addActor(tail, lastLocation);
-			tail.show(currentColor);
-			tailList.add(tail);
-			expandSnakeLength--; // only one at a time
+		else {
+			// expands the snake lengths if apple(s) got eaten
+			addSnakeBody(newSlot);
 		}
+		updateSnakeHead();
 	}
-	
+
 	/**
-	 * Changes the direction if the new direction is valid.
-	 * Not valid: Same as the previous or opposite direction.
-	 * Possible directions are: NORTH, EAST, SOUTH and WEST
+	 * Adds a SnakeBody square of the pool for the slot of the engine's ring buffer.
 	 */
-	private void checkNewDirection() {
-		// check for new directions in our DirectionsList of the GameWindow class
-		if (!directions.isEmpty()) { // key got pressed
-			
-			CompassDirection newDirection = currentDirection;
-			// get first new direction from the list
-			CompassDirection checkDirection = directions.removeFirst();
-			// System.out.println("Check new Direction: " + checkDirection + " (Current: " + currentDirection + ")");
-
-			switch (checkDirection) {
-			case NORTH:
-				if (currentDirection != Location.SOUTH) {
-					newDirection = Location.NORTH;
-				}
-				break;
-				
-			case EAST:
-				if (currentDirection != Location.WEST) {
-					newDirection = Location.EAST;
-				}
-				break;
-				
-			case SOUTH:
-				if (currentDirection != Location.NORTH) {
-					newDirection = Location.SOUTH;
-				}
-				break;
-				
-			case WEST:
-				if (currentDirection != Location.EAST) {
-					newDirection = Location.WEST;
+	private void addSnakeBody(int slot) {
+		tailList[slot] = getBodyPool().acquire(toLocation(engine.getBodyCellAt(slot)), 0); // drawn with the palette color
+	}
+
+	/**
+	 * @return pool of the SnakeBody squares (hit and miss counters)
+	 */
+	public ActorPool<SnakeBody> getBodyPool() {
+		if (bodyPool == null) {
+			bodyPool = new ActorPool<SnakeBody>(gameGrid) {
+				protected SnakeBody create() {
+					return new SnakeBody(palette);
 				}
-				break;
-				
-			default: // ignore all other directions, for example southwest
-				break;
-			}
+			};
+		}
+		return bodyPool;
+	}
 
-			// set new direction
-			if (currentDirection != newDirection) {
-				currentDirection = newDirection;
-				setDirection(currentDirection);
-			}
+	/**
+	 * Moves the SnakeHead to the location and direction of the engine.
+	 */
+	private void updateSnakeHead() {
+		location.x = engine.getHeadX();
+		location.y = engine.getHeadY();
+		setLocation(location);
+		setDirection(toCompassDirection(engine.getDirection()));
+	}
+
+	/**
+	 * @return the reused location, set to the cell
+	 */
+	private Location toLocation(int cell) {
+		location.x = engine.cellX(cell);
+		location.y = engine.cellY(cell);
+		return location;
+	}
+
+	/**
+	 * Takes the next direction of the DirectionsList (GameWindow class) or of the bot.
+	 * The engine ignores the opposite direction.
+	 * @return next direction for the engine or SnakeEngine.NO_DIRECTION (no key got pressed)
+	 */
+	private int checkNewDirection() {
+		if (bot != null) {
+			return bot.nextDirection(engine);
 		}
+		return directions.poll();
 	}
-	
+
 	/**
-	 * Checks if the snakeHead run against its body.
-	 * @return true, if the SnakeBody hit itself
+	 * Writes the used direction into the replay, stops the recording if the file can not be written.
 	 */
-	private boolean checkForSnakeBody() {
-		boolean result = false;
-		Actor snakeBody = gameGrid.getOneActorAt(getLocation(), SnakeBody.class);
-		if (snakeBody != null) {
-			result = true;
+	private void record(int direction) {
+		try {
+			recorder.direction(engine.getTick(), direction);
+		}
+		catch (IOException e) {
+			System.err.println("Recording stopped: " + e);
+			recorder = null;
 		}
-		return result;
 	}
-	
+
 	/**
-	 * Checks if the snakeHead hits an apple.
-	 * @return true, if the snakeHead hits an apple
+	 * Ends the game in the replay, stops the recording if the file can not be written.
+	 * Queues the final score for the high scores, once per game.
 	 */
-	private boolean checkForApple() {
-		Actor apple = gameGrid.getOneActorAt(getLocation(), Apple.class);
-		if (apple != null) {
-			// place the apple to a new location
-			Location newLocation = gameGrid.getRandomEmptyLocation();
-			if (newLocation != null) {
-				apple.setLocation(newLocation);
+	private void recordEnd() {
+		if (highScores != null && !(scored && scoredSeed == engine.getSeed())) {
+			highScores.record(engine); // only queued, written by the thread of the log
+			scored = true;
+			scoredSeed = engine.getSeed();
+		}
+		if (recorder != null) {
+			try {
+				recorder.endGame(engine);
 			}
-			else {
-				// no more free spaces --> Game Won :D
-				gameWon();
+			catch (IOException e) {
+				System.err.println("Recording stopped: " + e);
+				recorder = null;
 			}
-			return true;
 		}
-		return false;
+	}
+
+	/**
+	 * Moves the eaten apple to the new location the engine has chosen.
+	 */
+	private void checkForApple() {
+		int index = engine.getEatenApple();
+		if (index >= 0 && index < apples.size()) {
+			location.x = engine.getAppleX(index);
+			location.y = engine.getAppleY(index);
+			apples.get(index).setLocation(location);
+		}
 	}
 	/**
-	 * Changes the color of the snake.
+	 * Changes the color of the snake. Head and SnakeBody squares take the color from the shared palette,
+	 * so it does not matter how long the snake is.
 	 */
 	public void changeColor() {
-		// "calc" new Color
-		currentColor = (currentColor + 1) % COLOR_MAX;
-		
-		this.show(currentColor); // change current SnakeHead Image to the next Color;
-		if (!tailList.isEmpty()) {
-			// update SnakeBody Square Colors
-			for (int i = 0; i < tailList.size(); i++) {
-				tailList.get(i).show(currentColor);
-			}
-		}
+		palette.next(); // the SnakeHead and all SnakeBody squares are drawn with the next Color
+	}
+
+	/**
+	 * Draws the image of the current color of the palette (like the SnakeBody squares).
+	 */
+	@Override
+	protected void draw(Graphics2D g2D, int spriteId) {
+		super.draw(g2D, palette.getColor());
+	}
+
+	/**
+	 * @return current color (sprite index) of the snake
+	 */
+	public int getColor() {
+		return palette.getColor();
 	}
+
 	/**
 	 * Updates the information in the title.
 	 */
 	private void updateTitle() {
-		gameGrid.setTitle("Score: " + countScore + " | Apples: " + appleEaten + 
-							" | Time: " + (TIME_INTERVAL - countInterval) + " | Speed: " + speedPercent + "%");
+		gameGrid.setTitle("Score: " + engine.getScore() + " | Apples: " + engine.getAppleEaten() +
+							" | Time: " + engine.getTimeLeft() + " | Speed: " + engine.getSpeedPercent() + "%");
 	}
 
 	/**
@@ -272,8 +345,9 @@ public class Snake extends Actor {
 	 * Possible reasons: Snake hit the boarder or itself.
 	 */
 	private void gameOver() {
-		gameGrid.setTitle("GAME  OVER (Score: " + countScore + " | Apples: " + appleEaten + " | Speed: " + speedPercent + "%)");
+		gameGrid.setTitle("GAME  OVER (Score: " + engine.getScore() + " | Apples: " + engine.getAppleEaten() + " | Speed: " + engine.getSpeedPercent() + "%)");
 		gameGrid.doPause();
+		recordEnd();
 		gameFinish = true;
 	}
 
@@ -281,50 +355,61 @@ public class Snake extends Actor {
 	 * Ends the program -  the game has been won.
 	 */
 	private void gameWon() {
-		gameGrid.setTitle("GRADULATIONS (Score: " + countScore + " | Apples: " + appleEaten + " | Speed: " + speedPercent + "%)");
+		gameGrid.setTitle("GRADULATIONS (Score: " + engine.getScore() + " | Apples: " + engine.getAppleEaten() + " | Speed: " + engine.getSpeedPercent() + "%)");
 		gameGrid.doPause();
+		recordEnd();
 		gameFinish = true;
 	}
 
 	/**
 	 * The gameGrid resets to the initial situation, when the user hits the reset button.
+	 * The engine itself gets reset by the GameWindow.
 	 */
 	public void reset() {
-		
+
 		super.reset();
 		removeSnake();
-		appleEaten = 0;
-		countScore = 0;
-		speedPercent = 0;
-		
-		// set start speed
-		gameGrid.setSimulationPeriod(SPEED_START);
 
-		// init timer for speed increase
-		nextInterval = System.currentTimeMillis() + (TIME_INTERVAL * 1000);
-		countInterval = 0;
+		// set start speed
+		gameGrid.setSimulationPeriod(engine.getSimulationPeriod());
 
 		// init direction --> EAST (to the right)
-		directions.clear();
-		currentDirection = Location.EAST;
-		setDirection(currentDirection);
+		directions.clear(engine.getDirection());
+		setDirection(toCompassDirection(engine.getDirection()));
 
 		updateTitle();
 		gameFinish = false;
 		start = true;
 	}
-	
+
 	/**
-	 *  Remove all snake body squares from the game grid.
+	 *  Remove all snake body squares from the game grid (they go back to the pool).
 	 */
 	public void removeSnake() {
-		if (!tailList.isEmpty()) {
-			// removes SnakeBodySquares form the GameGrid
-			for (int i = 0; i < tailList.size(); i++) {
-				gameGrid.removeActor(tailList.get(i));
+		// hides the SnakeBodySquares, the pool keeps them on the GameGrid
+		for (int i = 0; i < tailList.length; i++) {
+			if (tailList[i] != null) {
+				getBodyPool().release(tailList[i]);
+				tailList[i] = null;
 			}
-			tailList.clear(); // delete all objects in the array list
+		}
+		getBodyPool().hideFree(); // GameGrid.doReset() shows all actors
+	}
+
+	/**
+	 * @return the GameGrid direction for an engine direction
+	 */
+	static CompassDirection toCompassDirection(int direction) {
+		switch (direction) {
+		case SnakeEngine.NORTH:
+			return Location.NORTH;
+		case SnakeEngine.SOUTH:
+			return Location.SOUTH;
+		case SnakeEngine.WEST:
+			return Location.WEST;
+		default:
+			return Location.EAST;
 		}
 	}
 
-}
\ No newline at end of file
+}
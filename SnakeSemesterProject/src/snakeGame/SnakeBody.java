@@ -1,15 +1,28 @@
 package snakeGame;
 
+import java.awt.Graphics2D;
+
 import ch.aplu.jgamegrid.Actor;
 
 public class SnakeBody extends Actor {
 
+	private final SnakePalette palette;
+
 	/**
 	 * Defines the image of the SnakeBody class.
-	 * @param colorMax Max. amount of images
+	 * @param palette current color of the snake (one image per color)
 	 */
-	public SnakeBody(final int colorMax) {
-		super("sprites/squarebody.png", colorMax); // 4 Images, squarebody_0, _1, _2 and _3
+	public SnakeBody(SnakePalette palette) {
+		super(SpriteAtlas.BODY, palette.getColorCount()); // 4 Images, SquareBody_0, _1, _2 and _3 (shared by all squares)
+		this.palette = palette;
 	}
 
+	/**
+	 * Draws the image of the current color of the palette, instead of the image chosen with show().
+	 * show() / hide() still decide if the square is visible.
+	 */
+	@Override
+	protected void draw(Graphics2D g2D, int spriteId) {
+		super.draw(g2D, palette.getColor());
+	}
 }
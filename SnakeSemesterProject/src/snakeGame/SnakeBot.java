@@ -0,0 +1,29 @@
+package snakeGame;
+
+/**
+ * Plays the game instead of the keyboard: chooses the direction for the next step of the engine.
+ */
+public interface SnakeBot {
+
+	/**
+	 * Creates one bot per game, so a bot can keep its own state.
+	 */
+	interface Factory {
+		/**
+		 * @param seed start value for the random generator of the bot (same seed --> same game)
+		 */
+		SnakeBot create(long seed);
+	}
+
+	/**
+	 * Called before every step of the engine.
+	 * @return SnakeEngine.NORTH, EAST, SOUTH, WEST or NO_DIRECTION (keep the direction)
+	 */
+	int nextDirection(SnakeEngine engine);
+
+	/**
+	 * Called after a reset of the engine (new game).
+	 * @param seed start value for the random generator of the bot
+	 */
+	void reset(long seed);
+}
@@ -0,0 +1,1074 @@
+package snakeGame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless model of the snake rules. Runs without a GameGrid, all positions are plain int cell coordinates.
+ * One call of step() equals one act() of the Snake actor.
+ */
+public class SnakeEngine {
+
+	public static final int NORTH = 0;
+	public static final int EAST = 1;
+	public static final int SOUTH = 2;
+	public static final int WEST = 3;
+	public static final int NO_DIRECTION = -1; // no key got pressed
+
+	// what is on a cell, see getOccupant()
+	public static final byte EMPTY = 0;
+	public static final byte BODY = 1;
+	public static final byte HEAD = 2;
+	public static final byte APPLE = 3;
+	public static final byte WALL = 4;	// everything outside of the grid
+
+	// step() results, more than one can be set in the same tick
+	public static final int EVENT_SECOND = 1;		// one (simulated) second passed
+	public static final int EVENT_SPEED = 2;		// simulation period changed
+	public static final int EVENT_GROW = 4;			// snake got one square longer
+	public static final int EVENT_APPLE = 8;		// apple eaten (and moved, see getEatenApple())
+	public static final int EVENT_GAME_OVER = 16;	// hit the border or itself
+	public static final int EVENT_GAME_WON = 32;	// no more free cells for the apple
+
+	static final int SNAKE_START_LENGTH = 3;
+	static final int SNAKE_EXPAND_PER_APPLE = 2;
+	static final int TIME_INTERVAL = 5; // seconds
+	static final int SPEED_INCREASE_PER_TIME = 2; // 2ms faster
+	static final int SPEED_START = 180; // 180 ms delay
+	static final int SPEED_MAX = 80; // 80ms delay
+	static final int SCORE_PER_APPLE = 10;
+	static final float SCORE_FACTOR_TIME = 3.0f; //100% speed -> 1 apple = 30 points
+
+	public static final int MAX_GRID = 4096; // max. width and height
+
+	private static final int BODY_CAPACITY_START = 1 << 12; // the ring buffer grows with the snake
+	private static final int FREE_INDEX_MAX_CELLS = 1 << 16; // bigger grids count the empty cells instead of the index
+	private static final int FREE_CHUNK_SHIFT = 6; // big grids: empty cells counted per chunk of 64 cells
+	private static final int FREE_BLOCK_SHIFT = 12; // and per block of 4096 cells
+	private static final int DIRTY_MAX = 8; // a step changes 4 cells: new head, neck, old tail and a new apple
+
+	private static final int[] DX = { 0, 1, 0, -1 }; // NORTH, EAST, SOUTH, WEST
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final int width;
+	private final int height;
+	private final int appleCount;
+	private final GameRandom random;
+	private long seed; // seed of the current game (see reset(long))
+
+	private int headX;
+	private int headY;
+	private int currentDirection;
+	private int[] body; // ring buffer of cells (y * width + x), tail at bodyTail, newest square at the end
+	private int bodyMask; // body.length - 1 (power of two)
+	private int bodyTail;
+	private int length;
+	private int retiredSlot = -1;
+	private final int[] appleCell; // cell of every apple, -1 = not placed
+	private int eatenApple = -1;
+	private int headFreeIndex = -1; // index of the cell the head moved to in the free cell index (last step), -1 = none
+	private int appleFreeIndex = -1; // index of the new apple cell in the free cell index (last step), -1 = none
+	private final byte[] occupants; // EMPTY, BODY, HEAD or APPLE for every cell
+	private final int[] freeCells; // all EMPTY cells, unordered (first freeCount entries), null on big grids
+	private final int[] freeIndex; // index of the cell in freeCells, -1 = not empty, null on big grids
+	private int freeCount; // amount of EMPTY cells
+	private final byte[] chunkFree; // EMPTY cells per chunk, null on small grids
+	private final int[] blockFree; // EMPTY cells per block, null on small grids
+	private boolean freeCounted; // chunkFree and blockFree are up to date (only kept once the grid gets full)
+	private final int[] dirtyCells = new int[DIRTY_MAX]; // cells changed by the last step
+	private int dirtyCount;
+	private boolean dirtyAll; // all cells changed (reset, or more than DIRTY_MAX cells)
+
+	private boolean gameFinish;
+	private boolean gameWon;
+	private long tick;
+	private int appleEaten;
+	private int expandSnakeLength;
+	private int simulationPeriod;
+	private long clock; // simulated time in ms (sum of all simulation periods)
+	private long nextInterval;
+	private int countInterval;
+	private int speedPercent;
+	private int countScore;
+	private PhaseTimer timer; // null = no timing (and always without -Dsnake.timing=true)
+
+	/**
+	 * Creates a new game with the snake in the middle of the grid and places the apples.
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples on the grid
+	 */
+	public SnakeEngine(int width, int height, int appleCount) {
+		this(width, height, appleCount, new Random().nextLong());
+	}
+
+	/**
+	 * Creates a new game with reproducible apple locations.
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples on the grid
+	 * @param seed start value of the random generator
+	 */
+	public SnakeEngine(int width, int height, int appleCount, long seed) {
+		if (width / 2 < SNAKE_START_LENGTH || height < 1) { // the start body lies left of the head in the middle
+			throw new IllegalArgumentException("Grid too small: " + width + "x" + height);
+		}
+		if (appleCount < 1) {
+			throw new IllegalArgumentException("At least one apple needed: " + appleCount);
+		}
+		if (width > MAX_GRID || height > MAX_GRID) {
+			throw new IllegalArgumentException("Grid too big: " + width + "x" + height + " (max. " + MAX_GRID + ")");
+		}
+		this.width = width;
+		this.height = height;
+		this.appleCount = appleCount;
+		this.random = new GameRandom(seed);
+
+		int cells = width * height;
+		int capacity = Math.min(Integer.highestOneBit(cells - 1) << 1, BODY_CAPACITY_START); // the body never gets longer than the grid
+		body = new int[capacity];
+		bodyMask = capacity - 1;
+		appleCell = new int[appleCount];
+		Arrays.fill(appleCell, -1);
+		occupants = new byte[cells]; // one byte per cell, no objects: 16 MB for 4096x4096
+		if (cells <= FREE_INDEX_MAX_CELLS) {
+			freeCells = new int[cells];
+			freeIndex = new int[cells];
+			chunkFree = null;
+			blockFree = null;
+		}
+		else {
+			freeCells = null; // would need 8 bytes per cell
+			freeIndex = null;
+			chunkFree = new byte[(cells + (1 << FREE_CHUNK_SHIFT) - 1) >>> FREE_CHUNK_SHIFT]; // 256 kB for 4096x4096
+			blockFree = new int[(cells + (1 << FREE_BLOCK_SHIFT) - 1) >>> FREE_BLOCK_SHIFT];
+		}
+
+		reset(seed);
+	}
+
+	/**
+	 * Resets the game with a new seed drawn from the current random generator.
+	 * Every game has its own seed (see getSeed()), so every game can be played again.
+	 */
+	public void reset() {
+		reset(random.nextLong());
+	}
+
+	/**
+	 * Resets the game to the start conditions: snake in the middle heading EAST, new apples, start speed.
+	 * Starts the random generator again with the seed (same seed and same directions --> same game).
+	 * @param seed start value of the random generator
+	 */
+	public void reset(long seed) {
+		this.seed = seed;
+		random.setSeed(seed);
+		clearOccupants();
+
+		gameFinish = false;
+		gameWon = false;
+		tick = 0;
+		appleEaten = 0;
+		expandSnakeLength = 0;
+		countScore = 0;
+		speedPercent = 0;
+		eatenApple = -1;
+
+		// set start speed, init timer for speed increase
+		simulationPeriod = SPEED_START;
+		clock = 0;
+		nextInterval = clock + 1000; // one second
+		countInterval = 0;
+
+		// init direction --> EAST, the body lies on the left side (x-axis) of the head
+		headX = width / 2;
+		headY = height / 2;
+		currentDirection = EAST;
+		bodyTail = 0;
+		length = SNAKE_START_LENGTH;
+		retiredSlot = -1;
+		for (int i = 0; i < SNAKE_START_LENGTH; i++) {
+			body[i] = toCell(headX - SNAKE_START_LENGTH + i, headY); // tail first
+			setOccupant(body[i], BODY);
+		}
+		setOccupant(toCell(headX, headY), HEAD);
+
+		// place the apples on free cells (snake already placed)
+		for (int i = 0; i < appleCount; i++) {
+			appleCell[i] = -1;
+			placeApple(i);
+		}
+		dirtyCount = 0;
+		dirtyAll = true;
+	}
+
+	/**
+	 * Empties all cells. The list of empty cells gets its start order again, so the same seed
+	 * places the apples on the same cells, no matter which games were played before.
+	 */
+	private void clearOccupants() {
+		Arrays.fill(occupants, EMPTY);
+		if (freeCells != null) {
+			for (int cell = 0; cell < freeCells.length; cell++) {
+				freeCells[cell] = cell;
+				freeIndex[cell] = cell;
+			}
+		}
+		freeCounted = false;
+		freeCount = occupants.length;
+	}
+
+	/**
+	 * Calculates one tick of the game, same order as the old Snake.act(): speed timer, body, direction, move, collisions.
+	 * @param newDirection next queued direction or NO_DIRECTION
+	 * @return EVENT_* flags of this tick, 0 if nothing special happened or the game is finished
+	 */
+	public int step(int newDirection) {
+		if (gameFinish) {
+			return 0;
+		}
+		tick++;
+		eatenApple = -1;
+		headFreeIndex = -1;
+		appleFreeIndex = -1;
+		dirtyCount = 0;
+		dirtyAll = false;
+
+		long time = startTiming();
+		int events = checkSpeedTimer();
+		time = lap(PhaseTimer.SPEED_TIMER, time);
+		events |= updateSnakeBody();
+		time = lap(PhaseTimer.BODY, time);
+		checkNewDirection(newDirection);
+		time = lap(PhaseTimer.DIRECTION, time);
+
+		// check for valid move
+		int nextX = headX + DX[currentDirection];
+		int nextY = headY + DY[currentDirection];
+		if (isInGrid(nextX, nextY)) {
+			headX = nextX; // move the snake
+			headY = nextY;
+			time = lap(PhaseTimer.MOVE, time);
+			int head = toCell(headX, headY);
+			byte occupant = occupants[head];
+
+			if (occupant == BODY) {
+				// Collision with SnakeBody :(
+				events |= gameOver();
+			}
+			else {
+				if (occupant == EMPTY && freeIndex != null) {
+					headFreeIndex = freeIndex[head]; // see undo()
+				}
+				setOccupant(head, HEAD);
+			}
+
+			int apple = occupant == APPLE ? checkForApple(head) : -1;
+			if (apple >= 0) {
+				// we found an apple :)
+				eatenApple = apple;
+				appleEaten++;
+				expandSnakeLength += SNAKE_EXPAND_PER_APPLE;
+
+				countScore += SCORE_PER_APPLE * (SCORE_FACTOR_TIME * ((speedPercent/10.0)+1));
+
+				events |= EVENT_APPLE;
+				if (!placeApple(apple)) {
+					// no more free spaces --> Game Won :D
+					events |= gameWon();
+				}
+			}
+		}
+		else { // outside of the grid
+			time = lap(PhaseTimer.MOVE, time);
+			events |= gameOver();
+		}
+		lap(PhaseTimer.COLLISION, time);
+
+		clock += simulationPeriod;
+		return events;
+	}
+
+	/**
+	 * Repeats a step of another engine (a delta of the GameServer): the direction, the growth and the new cell
+	 * of the eaten apple come from it, only the clock (same for both) runs here. Keeps the dirty cells like step().
+	 * @param direction direction of the head after the step
+	 * @param events EVENT_GROW, EVENT_APPLE, EVENT_GAME_OVER and EVENT_GAME_WON of the step
+	 * @param apple index of the eaten apple, -1 = none
+	 * @param newAppleCell new cell of the eaten apple (not used if the game got won)
+	 * @param score score after the step
+	 * @return EVENT_* flags of the step
+	 */
+	int apply(int direction, int events, int apple, int newAppleCell, int score) {
+		if (gameFinish) {
+			return 0;
+		}
+		tick++;
+		eatenApple = -1;
+		dirtyCount = 0;
+		dirtyAll = false;
+
+		events |= checkSpeedTimer();
+		boolean grow = (events & EVENT_GROW) != 0;
+		if (grow != expandSnakeLength > 0) {
+			expandSnakeLength = grow ? 1 : 0; // follow the server
+		}
+		updateSnakeBody();
+		currentDirection = direction;
+
+		int nextX = headX + DX[currentDirection];
+		int nextY = headY + DY[currentDirection];
+		if (isInGrid(nextX, nextY)) {
+			headX = nextX;
+			headY = nextY;
+			if ((events & EVENT_GAME_OVER) == 0) {
+				setOccupant(toCell(headX, headY), HEAD);
+			}
+		}
+		if (apple >= 0) {
+			eatenApple = apple;
+			appleEaten++;
+			expandSnakeLength += SNAKE_EXPAND_PER_APPLE;
+			countScore = score;
+			if ((events & EVENT_GAME_WON) == 0) {
+				moveApple(apple, newAppleCell);
+			}
+		}
+		if ((events & EVENT_GAME_WON) != 0) {
+			gameWon();
+		}
+		else if ((events & EVENT_GAME_OVER) != 0) {
+			gameOver();
+		}
+
+		clock += simulationPeriod;
+		return events;
+	}
+
+	/**
+	 * Takes over the whole state of another engine (a snapshot of the GameServer), all cells are dirty afterwards.
+	 * @param cells cells of the snake, tail first and the head last (length + 1 cells)
+	 * @param length amount of body squares (without the head)
+	 * @param apples cell of every apple
+	 */
+	void load(long tick, long clock, long nextInterval, int countInterval, int simulationPeriod, int speedPercent,
+			int score, int appleEaten, int expandSnakeLength, int direction, boolean finish, boolean won,
+			int[] cells, int length, int[] apples) {
+		clearOccupants();
+		this.tick = tick;
+		this.clock = clock;
+		this.nextInterval = nextInterval;
+		this.countInterval = countInterval;
+		this.simulationPeriod = simulationPeriod;
+		this.speedPercent = speedPercent;
+		this.countScore = score;
+		this.appleEaten = appleEaten;
+		this.expandSnakeLength = expandSnakeLength;
+		this.currentDirection = direction;
+		this.gameFinish = finish;
+		this.gameWon = won;
+		eatenApple = -1;
+
+		if (length >= body.length) {
+			body = new int[Integer.highestOneBit(length) << 1];
+			bodyMask = body.length - 1;
+		}
+		bodyTail = 0;
+		this.length = length;
+		retiredSlot = -1;
+		for (int i = 0; i < length; i++) {
+			body[i] = cells[i];
+			setOccupant(cells[i], BODY);
+		}
+		int head = cells[length];
+		headX = cellX(head);
+		headY = cellY(head);
+		if (!finish || won || occupants[head] != BODY) { // a head in the body stays BODY, like in step()
+			setOccupant(head, HEAD);
+		}
+		for (int i = 0; i < appleCount; i++) {
+			appleCell[i] = apples[i];
+			if (apples[i] >= 0 && occupants[apples[i]] == EMPTY) { // the last apple lies below the head if the game got won
+				setOccupant(apples[i], APPLE);
+			}
+		}
+		dirtyCount = 0;
+		dirtyAll = true;
+	}
+
+	/**
+	 * Takes over the seed and the state of the random generator (a saved game), so the game goes on with the same apples.
+	 * @param seed seed of the game (see getSeed())
+	 * @param randomState see getRandomState()
+	 */
+	void setRandom(long seed, long randomState) {
+		this.seed = seed;
+		random.setState(randomState);
+	}
+
+	/**
+	 * @return state of the random generator, the next apples depend on it and the order of the free cell index
+	 */
+	long getRandomState() {
+		return random.getState();
+	}
+
+	/**
+	 * @param index 0 .. getFreeCellCount() - 1
+	 * @return empty cell at the index of the free cell index (a random index picks the cell of a new apple),
+	 * 		-1 = big grid without the index
+	 */
+	int getFreeCell(int index) {
+		return freeCells != null ? freeCells[index] : -1;
+	}
+
+	/**
+	 * Takes over the order of the free cell index (a saved game), so the random generator picks the same cells.
+	 * Wrong cells change nothing but the order: the cells are checked first, then swapped into place one by one.
+	 * @param cells all empty cells in the order of getFreeCell(), from index 0
+	 * @param count amount of the cells, getFreeCellCount()
+	 * @throws IllegalArgumentException if the cells are not all empty cells once each (a broken snapshot)
+	 */
+	void setFreeCellOrder(int[] cells, int count) {
+		if (freeCells == null || count != freeCount) {
+			throw new IllegalArgumentException("Free cells: " + count + " instead of " + (freeCells == null ? 0 : freeCount));
+		}
+		for (int i = 0; i < count; i++) {
+			if (cells[i] < 0 || cells[i] >= occupants.length || occupants[cells[i]] != EMPTY) {
+				throw new IllegalArgumentException("Cell " + cells[i] + " is not empty");
+			}
+		}
+		for (int i = 0; i < count; i++) { // every empty cell stays in the index exactly once
+			int cell = cells[i];
+			int index = freeIndex[cell];
+			if (index < i) {
+				throw new IllegalArgumentException("Cell " + cell + " twice"); // already swapped into place
+			}
+			int other = freeCells[i];
+			freeCells[index] = other;
+			freeIndex[other] = index;
+			freeCells[i] = cell;
+			freeIndex[cell] = i;
+		}
+	}
+
+	/**
+	 * Takes back the last step exactly (see RewindBuffer): all cells, the counters, the random generator and the order
+	 * of the free cell index are like before the step. The values which the step lost come from the caller.
+	 * @param direction direction before the step
+	 * @param tailCell tail square retired by the step, -1 = the snake grew
+	 * @param apple apple eaten by the step, -1 = none
+	 * @param headFreeIndex getHeadFreeIndex() after the step
+	 * @param appleFreeIndex getAppleFreeIndex() after the step
+	 * @param score score before the step
+	 * @param randomState state of the random generator before the step
+	 * @param timeLeft getTimeLeft() before the step
+	 * @param nextInterval simulated time of the next EVENT_SECOND before the step
+	 * @param simulationPeriod simulation period before the step
+	 * @param speedPercent speed before the step
+	 */
+	void undo(int direction, int tailCell, int apple, int headFreeIndex, int appleFreeIndex, int score, long randomState,
+			int timeLeft, long nextInterval, int simulationPeriod, int speedPercent) {
+		dirtyCount = 0;
+		dirtyAll = false;
+		int head = toCell(headX, headY);
+		int neckSlot = (bodyTail + length - 1) & bodyMask;
+		int neck = body[neckSlot];
+
+		// in the opposite order of step(), so every cell gets its old place in the free cell index again
+		if (apple >= 0) {
+			if (!gameWon) { // the last apple was not moved
+				restoreFree(appleCell[apple], appleFreeIndex);
+			}
+			appleCell[apple] = head;
+			appleEaten--;
+			expandSnakeLength -= SNAKE_EXPAND_PER_APPLE;
+		}
+		if (head != neck) { // the head stays on the neck if it hit the border
+			if (apple >= 0) {
+				setOccupant(head, APPLE);
+			}
+			else if (!gameFinish || gameWon || occupants[head] != BODY) { // a head in the body stays BODY
+				restoreFree(head, headFreeIndex);
+			}
+		}
+		setOccupant(neck, HEAD);
+		if (tailCell < 0) {
+			length--;
+			expandSnakeLength++;
+		}
+		else {
+			bodyTail = (bodyTail - 1) & bodyMask;
+			body[bodyTail] = tailCell;
+			setOccupant(tailCell, BODY); // the last cell of the free cell index
+		}
+
+		headX = cellX(neck);
+		headY = cellY(neck);
+		currentDirection = direction;
+		clock -= this.simulationPeriod;
+		tick--;
+		countScore = score;
+		random.setState(randomState);
+		countInterval = TIME_INTERVAL - timeLeft;
+		this.nextInterval = nextInterval;
+		this.simulationPeriod = simulationPeriod;
+		this.speedPercent = speedPercent;
+		gameFinish = false;
+		gameWon = false;
+		eatenApple = -1;
+		retiredSlot = -1;
+		this.headFreeIndex = -1;
+		this.appleFreeIndex = -1;
+	}
+
+	/**
+	 * Makes the cell empty again at the index of the free cell index it was taken from (the opposite of setOccupant()).
+	 */
+	private void restoreFree(int cell, int index) {
+		if (freeCells == null || index < 0) {
+			setOccupant(cell, EMPTY);
+			return;
+		}
+		setOccupant(cell, EMPTY); // now the last free cell
+		int moved = freeCells[index]; // took the place of the cell when it was removed
+		freeCells[index] = cell;
+		freeIndex[cell] = index;
+		freeCells[freeCount - 1] = moved;
+		freeIndex[moved] = freeCount - 1;
+	}
+
+	/**
+	 * @return index of the cell the head moved to in the free cell index before the last step, -1 = none (see undo())
+	 */
+	int getHeadFreeIndex() {
+		return headFreeIndex;
+	}
+
+	/**
+	 * @return index of the cell of the new apple in the free cell index before the last step, -1 = none (see undo())
+	 */
+	int getAppleFreeIndex() {
+		return appleFreeIndex;
+	}
+
+	/**
+	 * @return start of the first phase, 0 = no timing
+	 */
+	private long startTiming() {
+		return PhaseTimer.ENABLED && timer != null ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the phase if timing is on.
+	 * @return start of the next phase
+	 */
+	private long lap(int phase, long start) {
+		return PhaseTimer.ENABLED && timer != null ? timer.lap(phase, start) : 0;
+	}
+
+	/**
+	 * Updates the timer and the speed (every TIME_INTERVAL seconds).
+	 */
+	private int checkSpeedTimer() {
+		int events = 0;
+		if (clock > nextInterval) {
+			nextInterval = clock + 1000; // one second
+			countInterval++;
+			events |= EVENT_SECOND;
+		}
+
+		if (countInterval >= TIME_INTERVAL) {
+			countInterval = 0; // reset counter
+
+			if (simulationPeriod > SPEED_MAX) { // < 80 is too fast... do not go faster then 80ms
+				simulationPeriod -= SPEED_INCREASE_PER_TIME; // increase speed ;-)
+				speedPercent = Math.abs(100 / (SPEED_START - SPEED_MAX) * (simulationPeriod - SPEED_START)); // math.abs() ->>+
+				events |= EVENT_SPEED;
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Moves the body one square further: a new square at the head's location, the tail square gets retired.
+	 * Expands the snake by one square (keeps the tail) if apple(s) got eaten.
+	 */
+	private int updateSnakeBody() {
+		if (length == body.length) {
+			growBody();
+		}
+		int neck = toCell(headX, headY);
+		body[(bodyTail + length) & bodyMask] = neck;
+		setOccupant(neck, BODY);
+
+		if (expandSnakeLength > 0) {
+			length++;
+			retiredSlot = -1;
+			expandSnakeLength--; // only one at a time
+			return EVENT_GROW;
+		}
+		retiredSlot = bodyTail;
+		setOccupant(body[bodyTail], EMPTY);
+		bodyTail = (bodyTail + 1) & bodyMask;
+		return 0;
+	}
+
+	/**
+	 * Doubles the ring buffer, the tail moves to slot 0 (all slots change, see getBodyCapacity()).
+	 */
+	private void growBody() {
+		int[] larger = new int[body.length * 2];
+		for (int i = 0; i < length; i++) {
+			larger[i] = body[(bodyTail + i) & bodyMask];
+		}
+		body = larger;
+		bodyMask = larger.length - 1;
+		bodyTail = 0;
+	}
+
+	/**
+	 * Changes the direction if the new direction is valid.
+	 * Not valid: opposite direction or NO_DIRECTION.
+	 */
+	private void checkNewDirection(int newDirection) {
+		if (newDirection >= NORTH && newDirection <= WEST && newDirection != opposite(currentDirection)) {
+			currentDirection = newDirection;
+		}
+	}
+
+	/**
+	 * Only called if the occupant of the cell is an APPLE.
+	 * @return index of the apple at the cell
+	 */
+	private int checkForApple(int cell) {
+		for (int i = 0; i < appleCount; i++) {
+			if (appleCell[i] == cell) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Places the apple on a random empty cell (no head, body or apple).
+	 * @return false, if there is no empty cell left (the apple stays where it is)
+	 */
+	private boolean placeApple(int apple) {
+		if (freeCount == 0) {
+			return false;
+		}
+		if (freeCells != null) {
+			appleFreeIndex = random.nextInt(freeCount);
+			moveApple(apple, freeCells[appleFreeIndex]);
+		}
+		else {
+			moveApple(apple, randomFreeCell());
+		}
+		return true;
+	}
+
+	/**
+	 * Finds a random empty cell without the index (big grids). Tries random cells while at least
+	 * a quarter of the grid is empty (4 tries on average), otherwise counts the empty cells up to a random one:
+	 * skips whole blocks and chunks by their counts, so at most 4096 blocks, 64 chunks and 64 cells (4096x4096).
+	 * The counts are made once when they are needed first, and kept up to date from then on.
+	 */
+	private int randomFreeCell() {
+		if (freeCount >= occupants.length / 4) {
+			while (true) {
+				int cell = random.nextInt(occupants.length);
+				if (occupants[cell] == EMPTY) {
+					return cell;
+				}
+			}
+		}
+		if (!freeCounted) {
+			countFreeCells();
+		}
+		int skip = random.nextInt(freeCount);
+		int block = 0;
+		while (skip >= blockFree[block]) {
+			skip -= blockFree[block++];
+		}
+		int chunk = block << (FREE_BLOCK_SHIFT - FREE_CHUNK_SHIFT);
+		while (skip >= chunkFree[chunk]) {
+			skip -= chunkFree[chunk++];
+		}
+		for (int cell = chunk << FREE_CHUNK_SHIFT; ; cell++) {
+			if (occupants[cell] == EMPTY && skip-- == 0) {
+				return cell;
+			}
+		}
+	}
+
+	/**
+	 * Counts the empty cells of every chunk and block (big grids).
+	 */
+	private void countFreeCells() {
+		Arrays.fill(chunkFree, (byte) 0);
+		Arrays.fill(blockFree, 0);
+		for (int cell = 0; cell < occupants.length; cell++) {
+			if (occupants[cell] == EMPTY) {
+				chunkFree[cell >>> FREE_CHUNK_SHIFT]++;
+				blockFree[cell >>> FREE_BLOCK_SHIFT]++;
+			}
+		}
+		freeCounted = true;
+	}
+
+	/**
+	 * Puts the apple on the (empty) cell. The old cell is already taken by the head.
+	 */
+	private void moveApple(int apple, int cell) {
+		appleCell[apple] = cell;
+		setOccupant(cell, APPLE);
+	}
+
+	/**
+	 * Changes the occupant of the cell and keeps the list of empty cells up to date.
+	 */
+	private void setOccupant(int cell, byte occupant) {
+		byte old = occupants[cell];
+		occupants[cell] = occupant;
+
+		if (dirtyCount < DIRTY_MAX) {
+			dirtyCells[dirtyCount++] = cell; // the same cell can be in the list twice, drawing it twice is cheaper than checking
+		}
+		else {
+			dirtyAll = true;
+		}
+
+		if (freeCells == null) {
+			int change = (old == EMPTY ? 1 : 0) - (occupant == EMPTY ? 1 : 0); // 1 = one empty cell less
+			if (change != 0) {
+				freeCount -= change;
+				if (freeCounted) {
+					chunkFree[cell >>> FREE_CHUNK_SHIFT] -= change;
+					blockFree[cell >>> FREE_BLOCK_SHIFT] -= change;
+				}
+			}
+		}
+		else if (old == EMPTY && occupant != EMPTY) {
+			// remove the cell: the last free cell takes its place
+			int index = freeIndex[cell];
+			int last = freeCells[--freeCount];
+			freeCells[index] = last;
+			freeIndex[last] = index;
+			freeIndex[cell] = -1;
+		}
+		else if (old != EMPTY && occupant == EMPTY) {
+			// add the cell at the end
+			freeCells[freeCount] = cell;
+			freeIndex[cell] = freeCount++;
+		}
+	}
+
+	/**
+	 * Lets the snake grow by the amount of squares in the next steps, like eaten apples without score.
+	 * Used by the benchmarks to get long snakes.
+	 */
+	void expand(int squares) {
+		expandSnakeLength += squares;
+	}
+
+	/**
+	 * Moves the apple to a new random empty cell, its old cell gets free first.
+	 * Used by the benchmarks to measure the respawn on full grids.
+	 * @return false, if there is no empty cell left
+	 */
+	boolean respawnApple(int apple) {
+		if (appleCell[apple] >= 0) {
+			setOccupant(appleCell[apple], EMPTY);
+		}
+		return placeApple(apple);
+	}
+
+	private int gameOver() {
+		gameFinish = true;
+		return EVENT_GAME_OVER;
+	}
+
+	private int gameWon() {
+		gameFinish = true;
+		gameWon = true;
+		return EVENT_GAME_WON;
+	}
+
+	/**
+	 * @return true, if the cell is inside the grid
+	 */
+	public boolean isInGrid(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/**
+	 * @return the opposite direction (NORTH <-> SOUTH, EAST <-> WEST)
+	 */
+	public static int opposite(int direction) {
+		return (direction + 2) % 4;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return seed of the current game: the same seed and the same directions at the same ticks give the same game
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return amount of cells changed by the last step (head, neck, tail, new apple)
+	 */
+	public int getDirtyCount() {
+		return dirtyCount;
+	}
+
+	/**
+	 * @param index 0 - getDirtyCount()-1
+	 * @return cell changed by the last step
+	 */
+	public int getDirtyCell(int index) {
+		return dirtyCells[index];
+	}
+
+	/**
+	 * @return true, if the last reset or step changed more cells than the dirty list holds: all cells need to be drawn
+	 */
+	public boolean isDirtyAll() {
+		return dirtyAll;
+	}
+
+	public int getAppleCount() {
+		return appleCount;
+	}
+
+	public int getHeadX() {
+		return headX;
+	}
+
+	public int getHeadY() {
+		return headY;
+	}
+
+	public int getDirection() {
+		return currentDirection;
+	}
+
+	/**
+	 * @return amount of body squares (without the head)
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @param index 0 = square behind the head, getLength() - 1 = tail
+	 */
+	public int getBodyX(int index) {
+		return cellX(body[getBodySlot(index)]);
+	}
+
+	public int getBodyY(int index) {
+		return cellY(body[getBodySlot(index)]);
+	}
+
+	/**
+	 * @param index 0 = square behind the head, getLength() - 1 = tail
+	 * @return slot of the square in the ring buffer, it keeps its slot until it gets retired
+	 */
+	public int getBodySlot(int index) {
+		return (bodyTail + length - 1 - index) & bodyMask;
+	}
+
+	/**
+	 * @return cell (y * width + x) stored in the slot of the ring buffer
+	 */
+	public int getBodyCellAt(int slot) {
+		return body[slot];
+	}
+
+	/**
+	 * @return amount of slots in the ring buffer (power of two), it grows with the snake: the slots change then
+	 */
+	public int getBodyCapacity() {
+		return body.length;
+	}
+
+	/**
+	 * @return slot of the tail square retired in the last step, -1 if the snake got longer
+	 */
+	public int getRetiredSlot() {
+		return retiredSlot;
+	}
+
+	public int toCell(int x, int y) {
+		return y * width + x;
+	}
+
+	public int cellX(int cell) {
+		return cell % width;
+	}
+
+	public int cellY(int cell) {
+		return cell / width;
+	}
+
+	/**
+	 * @return cell (y * width + x) of the apple, -1 if it is not placed (grid full)
+	 */
+	public int getAppleCell(int apple) {
+		return appleCell[apple];
+	}
+
+	public int getAppleX(int apple) {
+		return cellX(appleCell[apple]);
+	}
+
+	public int getAppleY(int apple) {
+		return cellY(appleCell[apple]);
+	}
+
+	/**
+	 * @return amount of empty cells (0 --> the next eaten apple wins the game)
+	 */
+	public int getFreeCellCount() {
+		return freeCount;
+	}
+
+	/**
+	 * @return EMPTY, BODY, HEAD, APPLE or WALL (outside of the grid)
+	 */
+	public byte getOccupant(int x, int y) {
+		if (!isInGrid(x, y)) {
+			return WALL;
+		}
+		return occupants[toCell(x, y)];
+	}
+
+	/**
+	 * @param cell y * width + x, inside of the grid
+	 * @return EMPTY, BODY, HEAD or APPLE
+	 */
+	byte getOccupantAt(int cell) {
+		return occupants[cell];
+	}
+
+	/**
+	 * @return index of the apple eaten in the last step, -1 if none
+	 */
+	public int getEatenApple() {
+		return eatenApple;
+	}
+
+	public boolean isGameFinish() {
+		return gameFinish;
+	}
+
+	public boolean isGameWon() {
+		return gameWon;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public int getAppleEaten() {
+		return appleEaten;
+	}
+
+	public int getExpandSnakeLength() {
+		return expandSnakeLength;
+	}
+
+	public int getSimulationPeriod() {
+		return simulationPeriod;
+	}
+
+	public int getSpeedPercent() {
+		return speedPercent;
+	}
+
+	public int getScore() {
+		return countScore;
+	}
+
+	/**
+	 * @param timer records the duration of the phases of every step, null = no timing
+	 */
+	public void setPhaseTimer(PhaseTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * @return timer of the phases, null = no timing
+	 */
+	public PhaseTimer getPhaseTimer() {
+		return timer;
+	}
+
+	/**
+	 * @return simulated time in ms
+	 */
+	long getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return simulated time of the next EVENT_SECOND
+	 */
+	long getNextInterval() {
+		return nextInterval;
+	}
+
+	/**
+	 * @return seconds until the next speed increase
+	 */
+	public int getTimeLeft() {
+		return TIME_INTERVAL - countInterval;
+	}
+
+	/**
+	 * The generator of java.util.Random (same numbers for the same seed), but its state can be saved and restored.
+	 */
+	static class GameRandom extends Random {
+
+		private static final long serialVersionUID = 1L;
+		static final long MULTIPLIER = 0x5DEECE66DL; // also used by the GameBatch, which keeps the states off-heap
+		static final long ADDEND = 0xBL;
+		static final long MASK = (1L << 48) - 1;
+
+		private long state; // 48 bits, set by the constructor of Random with setSeed()
+
+		GameRandom(long seed) {
+			super(seed);
+		}
+
+		@Override
+		public synchronized void setSeed(long seed) {
+			super.setSeed(seed); // clears the stored nextGaussian()
+			state = (seed ^ MULTIPLIER) & MASK; // scrambled like java.util.Random
+		}
+
+		@Override
+		protected int next(int bits) {
+			state = (state * MULTIPLIER + ADDEND) & MASK;
+			return (int) (state >>> (48 - bits));
+		}
+
+		long getState() {
+			return state;
+		}
+
+		void setState(long state) {
+			this.state = state & MASK;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package snakeGame;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /*
  * WIT Fall Semester 2014
  * COMP285 Object Oriented Programming
@@ -9,8 +12,130 @@ package snakeGame;
  */
 public class SnakeGame {
 
-	public static void main(String[] args) {
-		GameWindow myGame = new GameWindow();
+	private static final String SCORES_FILE = ".snake-scores"; // default high score log in the home directory
+
+	/**
+	 * Usage: java snakeGame.SnakeGame [-grid WIDTHxHEIGHT] [-apples N] [-autopilot] [-scores file] [-record file | -replay file [speed] | -connect host[:port] | -load file | -arena snakes]
+	 */
+	public static void main(String[] args) throws IOException {
+		int width = GameWindow.GRID_WIDTH;
+		int height = GameWindow.GRID_HEIGHT;
+		int apples = GameWindow.APPLE_COUNT;
+		String recordFile = null;
+		String replayFile = null;
+		double speed = 1;
+		boolean autopilot = false;
+		String server = null;
+		String loadFile = null;
+		int arenaSnakes = 0; // 0 = no arena
+		String scoresFile = Paths.get(System.getProperty("user.home"), SCORES_FILE).toString();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-grid") && i + 1 < args.length) {
+				String[] size = args[++i].split("x");
+				width = Integer.parseInt(size[0]);
+				height = Integer.parseInt(size[1]);
+			}
+			else if (args[i].equals("-apples") && i + 1 < args.length) {
+				apples = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-autopilot")) {
+				autopilot = true;
+			}
+			else if (args[i].equals("-record") && i + 1 < args.length) {
+				recordFile = args[++i];
+			}
+			else if (args[i].equals("-replay") && i + 1 < args.length) {
+				replayFile = args[++i];
+				if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+					speed = Double.parseDouble(args[++i]);
+				}
+			}
+			else if (args[i].equals("-scores") && i + 1 < args.length) {
+				scoresFile = args[++i];
+			}
+			else if (args[i].equals("-load") && i + 1 < args.length) {
+				loadFile = args[++i];
+			}
+			else if (args[i].equals("-arena") && i + 1 < args.length) {
+				arenaSnakes = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-connect") && i + 1 < args.length) {
+				server = args[++i];
+			}
+			else {
+				System.out.println("Usage: java snakeGame.SnakeGame [-grid WIDTHxHEIGHT] [-apples N] [-autopilot] [-scores file] [-record file | -replay file [speed] | -connect host[:port] | -load file | -arena snakes]");
+				return;
+			}
+		}
+
+		if (arenaSnakes > 0) {
+			new ArenaWindow(width, height, arenaSnakes, apples); // the keys play one snake, bots the others
+			return;
+		}
+
+		GameWindow myGame;
+		if (server != null) {
+			int colon = server.lastIndexOf(':');
+			String host = colon >= 0 ? server.substring(0, colon) : server;
+			int port = colon >= 0 ? Integer.parseInt(server.substring(colon + 1)) : GameServer.DEFAULT_PORT;
+			GameClient client = new GameClient(host, port); // the server defines the grid
+			if (client.getArena() != null) {
+				new ArenaWindow(client); // arena match of all connections
+				return;
+			}
+			myGame = new GameWindow(client);
+		}
+		else if (replayFile != null) {
+			Replay replay = Replay.read(Paths.get(replayFile)); // the replay defines the grid
+			if (replay.getGameCount() == 0) {
+				System.out.println(replayFile + " contains no game");
+				return;
+			}
+			myGame = new GameWindow(replay, speed);
+		}
+		else if (loadFile != null) {
+			SnakeEngine saved = GameSnapshot.read(Paths.get(loadFile)); // the snapshot defines the grid
+			myGame = new GameWindow(saved.getWidth(), saved.getHeight(), saved.getAppleCount(), null);
+			myGame.loadSnapshot(Paths.get(loadFile));
+			myGame.setAutopilot(autopilot);
+		}
+		else {
+			ReplayWriter recorder = null;
+			if (recordFile != null) {
+				recorder = new ReplayWriter(Paths.get(recordFile));
+				final ReplayWriter closeRecorder = recorder;
+				Runtime.getRuntime().addShutdownHook(new Thread() { // the window ends the program with System.exit()
+					public void run() {
+						try {
+							closeRecorder.close();
+						}
+						catch (IOException e) {
+							System.err.println("Replay not closed: " + e);
+						}
+					}
+				});
+			}
+			myGame = new GameWindow(width, height, apples, recorder);
+			myGame.setAutopilot(autopilot);
+		}
+
+		try {
+			final HighScoreLog highScores = new HighScoreLog(Paths.get(scoresFile));
+			Runtime.getRuntime().addShutdownHook(new Thread() { // writes the queued scores
+				public void run() {
+					try {
+						highScores.close();
+					}
+					catch (IOException e) {
+						System.err.println("High scores not closed: " + e);
+					}
+				}
+			});
+			myGame.setHighScores(highScores);
+		}
+		catch (IOException e) {
+			System.err.println("No high scores: " + e);
+		}
 
 		myGame.setTitle("Press ENTER to start...");
 	}
@@ -0,0 +1,38 @@
+package snakeGame;
+
+/**
+ * Current color of a snake, shared by the head and all SnakeBody squares. The squares read it when they
+ * get drawn, so changing the color is one write, no matter how long the snake is.
+ */
+public class SnakePalette {
+
+	private final int colorCount;
+	private volatile int color; // sprite index, written by the simulation or the AWT thread, read by the drawing
+
+	/**
+	 * @param colorCount amount of colors (sprites per actor)
+	 */
+	public SnakePalette(int colorCount) {
+		this.colorCount = colorCount;
+	}
+
+	public int getColorCount() {
+		return colorCount;
+	}
+
+	/**
+	 * @return sprite index of the current color
+	 */
+	public int getColor() {
+		return color;
+	}
+
+	/**
+	 * Switches to the next color (after the last one the first one again).
+	 * @return the new color
+	 */
+	public int next() {
+		color = (color + 1) % colorCount;
+		return color;
+	}
+}
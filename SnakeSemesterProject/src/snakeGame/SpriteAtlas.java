@@ -0,0 +1,109 @@
+package snakeGame;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import ch.aplu.jgamegrid.GGBitmap;
+
+/**
+ * All sprites of the game, decoded once per process and converted to the image format of the screen
+ * (no conversion while drawing). Everybody gets the same image objects.
+ *
+ * The actors pass the file names below to JGameGrid, which keeps one sprite per file name, so every
+ * SnakeBody and Apple shares the images as well (an image passed directly would be copied per actor).
+ */
+public class SpriteAtlas {
+
+	// files of the actors, JGameGrid adds _0, _1, ... for the sprites of an actor
+	public static final String HEAD = "sprites/SquareHead.png";
+	public static final String BODY = "sprites/SquareBody.png";
+	public static final String APPLE = "sprites/apple_small_18.png";
+
+	public static final int COLOR_COUNT = 4; // SquareHead_0 .. _3 and SquareBody_0 .. _3
+
+	private final BufferedImage[] bodyImages = new BufferedImage[COLOR_COUNT];
+	private final BufferedImage[][] headImages = new BufferedImage[COLOR_COUNT][4]; // [color][engine direction]
+	private final BufferedImage appleImage;
+
+	/**
+	 * Created by the first call of get().
+	 */
+	private static class Holder {
+		static final SpriteAtlas ATLAS = new SpriteAtlas();
+	}
+
+	private SpriteAtlas() {
+		GraphicsConfiguration screen = GraphicsEnvironment.isHeadless() ? null
+				: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		for (int color = 0; color < COLOR_COUNT; color++) {
+			bodyImages[color] = convert(screen, decode(sprite(BODY, color)), 0);
+			BufferedImage head = decode(sprite(HEAD, color)); // looks to the EAST
+			for (int direction = SnakeEngine.NORTH; direction <= SnakeEngine.WEST; direction++) {
+				headImages[color][direction] = convert(screen, head, (direction - SnakeEngine.EAST) * 90);
+			}
+		}
+		appleImage = convert(screen, decode(APPLE), 0);
+	}
+
+	/**
+	 * Decodes all sprites, if not done yet (call it at the start, so the first game does not wait for it).
+	 * @return the atlas of the process
+	 */
+	public static SpriteAtlas get() {
+		return Holder.ATLAS;
+	}
+
+	/**
+	 * @return file name of the sprite, the same JGameGrid uses for the sprite index
+	 */
+	private static String sprite(String file, int index) {
+		int dot = file.lastIndexOf('.');
+		return file.substring(0, dot) + "_" + index + file.substring(dot);
+	}
+
+	private static BufferedImage decode(String file) {
+		BufferedImage image = GGBitmap.getImage(file);
+		if (image == null) {
+			throw new IllegalStateException("Sprite not found: " + file);
+		}
+		return image;
+	}
+
+	/**
+	 * @param screen format of the image, null = no screen (ARGB)
+	 * @param degrees rotation around the center
+	 * @return copy of the image in the format of the screen
+	 */
+	private static BufferedImage convert(GraphicsConfiguration screen, BufferedImage image, int degrees) {
+		BufferedImage converted = screen != null
+				? screen.createCompatibleImage(image.getWidth(), image.getHeight(), Transparency.TRANSLUCENT)
+				: new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = converted.createGraphics();
+		g.drawImage(image, AffineTransform.getRotateInstance(Math.toRadians(degrees), image.getWidth() / 2.0, image.getHeight() / 2.0), null);
+		g.dispose();
+		return converted;
+	}
+
+	/**
+	 * @param color 0 .. COLOR_COUNT - 1
+	 */
+	public BufferedImage getBodyImage(int color) {
+		return bodyImages[color];
+	}
+
+	/**
+	 * @param color 0 .. COLOR_COUNT - 1
+	 * @param direction engine direction the head looks to
+	 */
+	public BufferedImage getHeadImage(int color, int direction) {
+		return headImages[color][direction];
+	}
+
+	public BufferedImage getAppleImage() {
+		return appleImage;
+	}
+}
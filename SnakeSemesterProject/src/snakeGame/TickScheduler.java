@@ -0,0 +1,209 @@
+package snakeGame;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Calls the task with a fixed timestep (the simulation period), paced with System.nanoTime().
+ *
+ * Every tick has a deadline (previous deadline + period), so a late tick does not delay the following ones.
+ * If the task fell behind (GC pause, busy machine), up to MAX_CATCH_UP ticks run back to back,
+ * a longer backlog gets dropped and the timeline starts again. The lateness of every tick gets measured.
+ */
+public class TickScheduler implements Runnable {
+
+	/**
+	 * The work done in every tick.
+	 */
+	public interface Task {
+		void tick();
+
+		/**
+		 * @return time between two ticks in ms, read again after every tick
+		 */
+		int getPeriod();
+	}
+
+	private static final int MAX_CATCH_UP = 5;				// ticks run back to back before the backlog gets dropped
+	private static final long SPIN_NANOS = 500 * 1000L;		// last 0.5ms before a deadline: yield instead of park
+
+	private final Task task;
+	private final Thread thread;
+	private volatile boolean paused = true;
+	private volatile boolean stopped;
+	private final Object tickLock = new Object(); // held during a tick, pause() waits for it
+
+	// statistics, written by the scheduler thread only
+	private volatile long tickCount;
+	private volatile long catchUpCount;		// ticks run without a wait because the previous ones were late
+	private volatile long droppedCount;		// ticks dropped because the backlog was too long
+	private volatile long maxLateness;		// ns
+	private double sumLateness;				// ns
+	private double sumSquaredLateness;
+
+	/**
+	 * Creates the scheduler thread, it starts paused.
+	 * @param task called in every tick
+	 */
+	public TickScheduler(Task task) {
+		this.task = task;
+		this.thread = new Thread(this, "Snake TickScheduler");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Starts ticking, the first tick is due at once.
+	 */
+	public void resume() {
+		paused = false;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Stops ticking and waits until a running tick is finished, so the caller can change the game afterwards.
+	 * Called by the task itself (inside of a tick), it returns at once and the tick goes on to its end.
+	 */
+	public void pause() {
+		paused = true;
+		if (Thread.currentThread() != thread) {
+			synchronized (tickLock) {
+				// the tick is over, the next one sees paused
+			}
+		}
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Ends the scheduler thread.
+	 */
+	public void stop() {
+		stopped = true;
+		LockSupport.unpark(thread);
+	}
+
+	@Override
+	public void run() {
+		long deadline = 0;
+		boolean wasPaused = true;
+
+		while (!stopped) {
+			if (paused) {
+				wasPaused = true;
+				LockSupport.park(this);
+				continue;
+			}
+			if (wasPaused) {
+				wasPaused = false;
+				deadline = System.nanoTime(); // start a new timeline
+			}
+
+			long now = waitFor(deadline);
+			if (paused || stopped) {
+				continue;
+			}
+
+			// run the due tick and catch up if we are behind
+			int ticks = 0;
+			while (now - deadline >= 0 && ticks < MAX_CATCH_UP && !paused) {
+				synchronized (tickLock) {
+					if (paused) {
+						break; // paused while waiting for the lock: pause() returned already
+					}
+					record(now - deadline, ticks > 0);
+					task.tick();
+				}
+				deadline += task.getPeriod() * 1000000L;
+				ticks++;
+				now = System.nanoTime();
+			}
+
+			if (now - deadline >= 0 && !paused) {
+				// still behind: drop the backlog, the next tick is due now
+				long period = task.getPeriod() * 1000000L;
+				droppedCount += (now - deadline) / period + 1;
+				deadline = now;
+			}
+		}
+	}
+
+	/**
+	 * Parks until shortly before the deadline, yields for the rest.
+	 * @return System.nanoTime() at the end
+	 */
+	private long waitFor(long deadline) {
+		long now = System.nanoTime();
+		while (deadline - now > 0 && !paused && !stopped) {
+			long remaining = deadline - now;
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+			}
+			else {
+				Thread.yield();
+			}
+			now = System.nanoTime();
+		}
+		return now;
+	}
+
+	private void record(long lateness, boolean catchUp) {
+		tickCount++;
+		if (catchUp) {
+			catchUpCount++;
+		}
+		if (lateness > maxLateness) {
+			maxLateness = lateness;
+		}
+		sumLateness += lateness;
+		sumSquaredLateness += (double) lateness * lateness;
+	}
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	public long getCatchUpCount() {
+		return catchUpCount;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return highest lateness of a tick compared to its deadline (ns)
+	 */
+	public long getMaxLateness() {
+		return maxLateness;
+	}
+
+	/**
+	 * @return average lateness of the ticks compared to their deadlines (ns)
+	 */
+	public double getMeanLateness() {
+		long count = tickCount;
+		return count == 0 ? 0 : sumLateness / count;
+	}
+
+	/**
+	 * @return standard deviation of the lateness (ns)
+	 */
+	public double getLatenessDeviation() {
+		long count = tickCount;
+		if (count == 0) {
+			return 0;
+		}
+		double mean = sumLateness / count;
+		return Math.sqrt(Math.max(0, sumSquaredLateness / count - mean * mean));
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "ticks: %d | jitter mean: %.1f us, sd: %.1f us, max: %.1f us | caught up: %d | dropped: %d",
+				getTickCount(), getMeanLateness() / 1000, getLatenessDeviation() / 1000, getMaxLateness() / 1000.0,
+				getCatchUpCount(), getDroppedCount());
+	}
+}
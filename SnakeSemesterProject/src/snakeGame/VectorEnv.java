@@ -0,0 +1,246 @@
+package snakeGame;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Many headless games stepped in lockstep, for training agents (like a vectorized Gym environment).
+ *
+ * The observations go into arrays of the caller, given to the constructor:
+ * planes: PLANES bit planes per game (HEAD, BODY, APPLE), getPlaneWords() longs each, bit (cell % 64) of
+ * word (cell / 64) is the cell y * width + x. Game i starts at index i * PLANES * getPlaneWords().
+ * scalars: SCALARS ints per game (length, direction, speed, ...), game i starts at index i * SCALARS.
+ * A step only changes the bits of the cells the engine changed (SnakeEngine.getDirtyCell()), so the caller
+ * must not change the arrays. Nothing gets allocated by reset() and step().
+ *
+ * The reward of a step is the score it added (the score formula of the engine), a game is done when it is over,
+ * won or reached maxTicks. A finished game starts again at once, its observation shows the new game.
+ */
+public class VectorEnv {
+
+	// bit planes of a game
+	public static final int PLANE_HEAD = 0;
+	public static final int PLANE_BODY = 1;
+	public static final int PLANE_APPLE = 2;
+	public static final int PLANES = 3;
+
+	// scalars of a game
+	public static final int SCALAR_LENGTH = 0;		// squares with the head
+	public static final int SCALAR_DIRECTION = 1;	// SnakeEngine.NORTH .. WEST
+	public static final int SCALAR_SPEED = 2;		// percent, see SnakeEngine.getSpeedPercent()
+	public static final int SCALAR_SCORE = 3;
+	public static final int SCALAR_APPLES = 4;		// eaten apples
+	public static final int SCALAR_HEAD_X = 5;
+	public static final int SCALAR_HEAD_Y = 6;
+	public static final int SCALAR_TICKS = 7;		// steps of the game, capped to Integer.MAX_VALUE
+	public static final int SCALARS = 8;
+
+	private final SnakeEngine[] engines;
+	private final int words; // longs per plane
+	private final long maxTicks;
+	private final long[] planes;
+	private final int[] scalars;
+
+	/**
+	 * @param count amount of games
+	 * @param width amount of horizontal cells
+	 * @param height amount of vertical cells
+	 * @param appleCount amount of apples of every game
+	 * @param maxTicks a game is done after this amount of steps, 0 = no limit
+	 * @param planes observation of the games, count * PLANES * planeWords(width, height) longs
+	 * @param scalars observation of the games, count * SCALARS ints
+	 */
+	public VectorEnv(int count, int width, int height, int appleCount, long maxTicks, long[] planes, int[] scalars) {
+		this.words = planeWords(width, height);
+		if (planes.length < (long) count * PLANES * words || scalars.length < (long) count * SCALARS) {
+			throw new IllegalArgumentException("Observation arrays too small for " + count + " games");
+		}
+		this.engines = new SnakeEngine[count];
+		for (int i = 0; i < count; i++) {
+			engines[i] = new SnakeEngine(width, height, appleCount, 0);
+		}
+		this.maxTicks = maxTicks;
+		this.planes = planes;
+		this.scalars = scalars;
+	}
+
+	/**
+	 * @return longs of one bit plane of the grid
+	 */
+	public static int planeWords(int width, int height) {
+		return (width * height + 63) >>> 6;
+	}
+
+	/**
+	 * Starts all games again and writes their observations.
+	 * @param seed seed of the games, game i gets BatchRunner.gameSeed(seed, i) (same seed --> same games)
+	 */
+	public void reset(long seed) {
+		for (int i = 0; i < engines.length; i++) {
+			engines[i].reset(BatchRunner.gameSeed(seed, i));
+			observe(i);
+		}
+	}
+
+	/**
+	 * Does one step of every game and updates the observations. A finished game starts again.
+	 * @param actions SnakeEngine.NORTH .. WEST per game, NO_DIRECTION = no turn (also the opposite direction)
+	 * @param rewards gets the score of the step per game
+	 * @param dones gets true for the games which ended with this step
+	 * @return amount of ended games
+	 */
+	public int step(int[] actions, int[] rewards, boolean[] dones) {
+		if (actions.length < engines.length || rewards.length < engines.length || dones.length < engines.length) {
+			throw new IllegalArgumentException("Arrays too small for " + engines.length + " games");
+		}
+		int ended = 0;
+		for (int i = 0; i < engines.length; i++) {
+			SnakeEngine engine = engines[i];
+			int score = engine.getScore();
+			engine.step(actions[i]);
+			rewards[i] = engine.getScore() - score;
+			boolean done = engine.isGameFinish() || maxTicks > 0 && engine.getTick() >= maxTicks;
+			dones[i] = done;
+			if (done) {
+				engine.reset(); // next seed from the random generator of the game
+				ended++;
+			}
+			observe(i);
+		}
+		return ended;
+	}
+
+	/**
+	 * Writes the observation of the game: all cells after a reset, otherwise only the changed ones.
+	 */
+	private void observe(int game) {
+		SnakeEngine engine = engines[game];
+		int base = game * PLANES * words;
+		if (engine.isDirtyAll()) {
+			Arrays.fill(planes, base, base + PLANES * words, 0);
+			// only snake and apples occupy cells, so they are enough (a short snake after a reset)
+			int head = engine.toCell(engine.getHeadX(), engine.getHeadY());
+			setBit(base, head, engine.getOccupantAt(head));
+			for (int i = 0; i < engine.getLength(); i++) {
+				int cell = engine.getBodyCellAt(engine.getBodySlot(i));
+				setBit(base, cell, engine.getOccupantAt(cell));
+			}
+			for (int apple = 0; apple < engine.getAppleCount(); apple++) {
+				int cell = engine.getAppleCell(apple);
+				if (cell >= 0) {
+					setBit(base, cell, engine.getOccupantAt(cell));
+				}
+			}
+		}
+		else {
+			for (int i = 0; i < engine.getDirtyCount(); i++) {
+				int cell = engine.getDirtyCell(i);
+				int word = base + (cell >>> 6);
+				long bit = 1L << cell; // shifts only use the lowest 6 bits
+				planes[word] &= ~bit;
+				planes[word + words] &= ~bit;
+				planes[word + 2 * words] &= ~bit;
+				setBit(base, cell, engine.getOccupantAt(cell));
+			}
+		}
+
+		int s = game * SCALARS;
+		scalars[s + SCALAR_LENGTH] = engine.getLength() + 1;
+		scalars[s + SCALAR_DIRECTION] = engine.getDirection();
+		scalars[s + SCALAR_SPEED] = engine.getSpeedPercent();
+		scalars[s + SCALAR_SCORE] = engine.getScore();
+		scalars[s + SCALAR_APPLES] = engine.getAppleEaten();
+		scalars[s + SCALAR_HEAD_X] = engine.getHeadX();
+		scalars[s + SCALAR_HEAD_Y] = engine.getHeadY();
+		scalars[s + SCALAR_TICKS] = (int) Math.min(Integer.MAX_VALUE, engine.getTick());
+	}
+
+	/**
+	 * Sets the bit of the cell in the plane of the occupant (the bit is clear in all planes, or already set).
+	 */
+	private void setBit(int base, int cell, byte occupant) {
+		int plane;
+		switch (occupant) {
+		case SnakeEngine.HEAD:
+			plane = PLANE_HEAD;
+			break;
+		case SnakeEngine.BODY:
+			plane = PLANE_BODY;
+			break;
+		case SnakeEngine.APPLE:
+			plane = PLANE_APPLE;
+			break;
+		default:
+			return;
+		}
+		planes[base + plane * words + (cell >>> 6)] |= 1L << cell;
+	}
+
+	/**
+	 * @return amount of games
+	 */
+	public int getCount() {
+		return engines.length;
+	}
+
+	/**
+	 * @return longs of one bit plane
+	 */
+	public int getPlaneWords() {
+		return words;
+	}
+
+	/**
+	 * @return engine of the game (read only, a step outside of step() breaks the observation)
+	 */
+	SnakeEngine getEngine(int game) {
+		return engines[game];
+	}
+
+	/**
+	 * Measures the steps per millisecond with random actions (one core).
+	 * Usage: java snakeGame.VectorEnv [games] [seconds] [width] [height] [apples]
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		int apples = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+		long[] planes = new long[count * PLANES * planeWords(width, height)];
+		int[] scalars = new int[count * SCALARS];
+		VectorEnv env = new VectorEnv(count, width, height, apples, 100L * width * height, planes, scalars);
+		env.reset(285);
+
+		// random turns, 1024 sets of actions (so the actions cost nothing)
+		Random random = new Random(285);
+		int[][] actions = new int[1024][count];
+		for (int[] set : actions) {
+			for (int i = 0; i < count; i++) {
+				set[i] = random.nextInt(4) == 0 ? random.nextInt(4) : SnakeEngine.NO_DIRECTION;
+			}
+		}
+		int[] rewards = new int[count];
+		boolean[] dones = new boolean[count];
+
+		long steps = 0;
+		long episodes = 0;
+		long score = 0;
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		while (System.nanoTime() < end) {
+			for (int i = 0; i < 100; i++) {
+				episodes += env.step(actions[(int) (steps % actions.length)], rewards, dones);
+				steps++;
+				for (int game = 0; game < count; game++) {
+					score += rewards[game];
+				}
+			}
+		}
+		double millis = (System.nanoTime() - start) / 1e6;
+		System.out.println(String.format(Locale.ROOT, "%d games %dx%d: %.0f game steps/ms | %d episodes | mean score %.1f",
+				count, width, height, steps * count / millis, episodes, episodes == 0 ? 0.0 : (double) score / episodes));
+	}
+}